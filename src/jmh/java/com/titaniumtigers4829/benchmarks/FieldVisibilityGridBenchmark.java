@@ -0,0 +1,145 @@
+package com.titaniumtigers4829.benchmarks;
+
+import com.titaniumtigers4829.data.fiducial.FieldVisibilityGrid;
+import com.titaniumtigers4829.data.fiducial.TagLayout;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.util.Units;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building a {@link FieldVisibilityGrid} for the 2025 field, and looking up the visible
+ * tags from it compared with checking every tag with {@link TagLayout#isVisibleFrom}, which is
+ * what the grid replaces. Lookups cycle through random poses on the field so they aren't all served
+ * from the same cache line. Run it with "./gradlew jmh".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+public class FieldVisibilityGridBenchmark {
+
+  private static final int POSE_COUNT = 1024;
+  private static final double FORWARD = 0.3;
+  private static final double SIDE = 0.1;
+  private static final double YAW = 15;
+  private static final double HORIZONTAL_FOV = 62.5;
+  private static final double FOV_MARGIN = 10;
+  private static final double MAX_VIEW_ANGLE = 85;
+
+  @Param({"0.25", "0.5"})
+  private double cellSize;
+
+  private TagLayout tagLayout;
+  private FieldVisibilityGrid grid;
+  private final double[] poseX = new double[POSE_COUNT];
+  private final double[] poseY = new double[POSE_COUNT];
+  private final double[] poseYaw = new double[POSE_COUNT];
+  private int[] tagIds;
+  private int nextPose;
+
+  /** Loads the field, builds the grid for the lookups, and picks the poses. */
+  @Setup
+  public void setup() {
+    tagLayout = new TagLayout(AprilTagFieldLayout.loadField(AprilTagFields.k2025ReefscapeWelded));
+    grid = createGrid();
+    grid.build();
+    tagIds = new int[tagLayout.getTagCount()];
+
+    Random random = new Random(4829);
+    for (int i = 0; i < POSE_COUNT; i++) {
+      poseX[i] = random.nextDouble() * tagLayout.getFieldLength();
+      poseY[i] = random.nextDouble() * tagLayout.getFieldWidth();
+      poseYaw[i] = random.nextDouble() * 360 - 180;
+    }
+  }
+
+  /**
+   * Builds a grid with 72 headings and one camera, which is the time it takes at startup when no
+   * saved grid can be loaded.
+   *
+   * @return The built grid
+   */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 2, time = 5)
+  @Measurement(iterations = 3, time = 5)
+  public FieldVisibilityGrid build() {
+    FieldVisibilityGrid builtGrid = createGrid();
+    builtGrid.build();
+    return builtGrid;
+  }
+
+  /**
+   * Looks up the ids of the tags visible from a pose in the grid.
+   *
+   * @return The number of visible tags
+   */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Warmup(iterations = 3, time = 2)
+  @Measurement(iterations = 5, time = 2)
+  public int gridLookup() {
+    int pose = nextPose();
+    return grid.getVisibleTagIds(0, poseX[pose], poseY[pose], poseYaw[pose], tagIds);
+  }
+
+  /**
+   * Checks every tag from a pose with the same rules the grid is built with.
+   *
+   * @return The number of visible tags
+   */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Warmup(iterations = 3, time = 2)
+  @Measurement(iterations = 5, time = 2)
+  public int checkEveryTag() {
+    int pose = nextPose();
+    double heading = Units.degreesToRadians(poseYaw[pose]);
+    double cos = Math.cos(heading);
+    double sin = Math.sin(heading);
+    double cameraX = poseX[pose] + FORWARD * cos - SIDE * sin;
+    double cameraY = poseY[pose] + FORWARD * sin + SIDE * cos;
+    double maxBearing = Units.degreesToRadians(HORIZONTAL_FOV / 2 + FOV_MARGIN);
+    double maxViewAngle = Units.degreesToRadians(MAX_VIEW_ANGLE);
+    int count = 0;
+    for (int i = 0; i < tagLayout.getTagCount(); i++) {
+      int id = tagLayout.getTagId(i);
+      if (tagLayout.isVisibleFrom(
+          id,
+          cameraX,
+          cameraY,
+          heading + Units.degreesToRadians(YAW),
+          maxBearing,
+          Double.POSITIVE_INFINITY,
+          maxViewAngle)) {
+        tagIds[count++] = id;
+      }
+    }
+    return count;
+  }
+
+  private FieldVisibilityGrid createGrid() {
+    FieldVisibilityGrid newGrid = new FieldVisibilityGrid(tagLayout, cellSize, 72);
+    newGrid.addCamera("limelight", FORWARD, SIDE, YAW, HORIZONTAL_FOV);
+    newGrid.setFovMargin(FOV_MARGIN);
+    newGrid.setMaxViewAngle(MAX_VIEW_ANGLE);
+    return newGrid;
+  }
+
+  private int nextPose() {
+    nextPose = (nextPose + 1) & (POSE_COUNT - 1);
+    return nextPose;
+  }
+}
@@ -0,0 +1,215 @@
+package com.titaniumtigers4829.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.titaniumtigers4829.data.results.LimelightResults;
+import com.titaniumtigers4829.data.results.ResultsParser;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link ResultsParser} against mapping the same JSON results onto objects with Jackson,
+ * the way LimelightHelpers parses them. The frames have the sections and fields a Limelight
+ * publishes, including the ones ResultsParser skips, with a varying number of tags. Run it with
+ * "./gradlew jmh".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultsParserBenchmark {
+
+  @Param({"1", "4", "8"})
+  private int tagCount;
+
+  private String json;
+  private final ResultsParser parser = new ResultsParser();
+  private final LimelightResults results = new LimelightResults();
+  private final LimelightResults fiducialsOnlyResults = new LimelightResults();
+  private final ObjectMapper mapper =
+      new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  /** Builds the frame and sets which sections each parse decodes. */
+  @Setup
+  public void setup() {
+    json = buildFrame(tagCount);
+    fiducialsOnlyResults.setParseDetector(false);
+    fiducialsOnlyResults.setParseClassifier(false);
+    fiducialsOnlyResults.setParseCorners(false);
+  }
+
+  /**
+   * Parses every section with ResultsParser, reusing the results.
+   *
+   * @return The parsed results
+   */
+  @Benchmark
+  public LimelightResults resultsParser() {
+    parser.parse(json, results);
+    return results;
+  }
+
+  /**
+   * Parses only the fiducials with ResultsParser, skipping the other sections.
+   *
+   * @return The parsed results
+   */
+  @Benchmark
+  public LimelightResults resultsParserFiducialsOnly() {
+    parser.parse(json, fiducialsOnlyResults);
+    return fiducialsOnlyResults;
+  }
+
+  /**
+   * Maps every section onto new objects with Jackson.
+   *
+   * @param blackhole Consumes the results so they aren't removed as dead code
+   * @throws IOException If the JSON is malformed
+   */
+  @Benchmark
+  public void jacksonObjectMapper(Blackhole blackhole) throws IOException {
+    blackhole.consume(mapper.readValue(json, JacksonFrame.class));
+  }
+
+  private static String buildFrame(int tagCount) {
+    StringBuilder builder = new StringBuilder();
+    builder.append("{\"Results\":{\"pID\":0,\"tl\":22.4,\"cl\":6.1,\"ts\":1234567.89,\"v\":1,");
+    builder.append("\"botpose\":[3.2,4.1,0,0,0,35],\"botpose_wpiblue\":[3.2,4.1,0,0,0,35],");
+    builder.append("\"botpose_wpired\":[13.3,4.0,0,0,0,-145],\"botpose_tagcount\":");
+    builder.append(tagCount).append(",\"botpose_avgdist\":2.6,\"botpose_avgarea\":0.41,");
+    builder.append("\"Fiducial\":[");
+    for (int i = 0; i < tagCount; i++) {
+      double x = 410 + i * 90;
+      builder
+          .append(i == 0 ? "" : ",")
+          .append("{\"fID\":")
+          .append(i + 1)
+          .append(",\"fam\":\"36H11C\",\"pts\":[[")
+          .append(x)
+          .append(",250.5],[")
+          .append(x + 40)
+          .append(",250.5],[")
+          .append(x + 40)
+          .append(",290.25],[")
+          .append(x)
+          .append(",290.25]],\"skew\":[],\"t6c_ts\":[0.1,0.2,2.4,1.5,-3.2,4.8],")
+          .append("\"t6r_fs\":[3.2,4.1,0,0,0,35],\"t6r_ts\":[0.3,-0.1,2.5,0.4,2.1,-5.5],")
+          .append("\"t6t_cs\":[-0.2,0.1,2.4,-2.2,3.1,-4.1],\"t6t_rs\":[2.4,-0.6,0.5,0,0,14.2],")
+          .append("\"ta\":0.51,\"tx\":-12.53,\"txp\":")
+          .append(x + 20)
+          .append(",\"ty\":3.14,\"typ\":270.38}");
+    }
+    builder.append("],\"Detector\":[{\"class\":\"algae\",\"classID\":0,\"conf\":0.91,");
+    builder.append("\"pts\":[[300,400],[360,400],[360,450],[300,450]],\"ta\":1.4,\"tx\":-5.2,");
+    builder.append("\"txp\":330,\"ty\":-8.1,\"typ\":425},{\"class\":\"coral\",\"classID\":1,");
+    builder.append("\"conf\":0.84,\"pts\":[[700,380],[740,380],[740,420],[700,420]],\"ta\":0.9,");
+    builder.append("\"tx\":10.3,\"txp\":720,\"ty\":-6.5,\"typ\":400}],\"Classifier\":[],");
+    builder.append("\"Retro\":[],\"Barcode\":[]}}");
+    return builder.toString();
+  }
+
+  /** The JSON results mapped onto objects, like the classes in LimelightHelpers. */
+  public static class JacksonFrame {
+    @JsonProperty("Results")
+    public JacksonResults results;
+  }
+
+  /** A frame's results. */
+  public static class JacksonResults {
+    @JsonProperty("pID")
+    public double pipelineId;
+
+    @JsonProperty("tl")
+    public double latencyPipeline;
+
+    @JsonProperty("cl")
+    public double latencyCapture;
+
+    @JsonProperty("ts")
+    public double timestamp;
+
+    @JsonProperty("v")
+    public double valid;
+
+    @JsonProperty("Fiducial")
+    public JacksonFiducial[] fiducials;
+
+    @JsonProperty("Detector")
+    public JacksonDetector[] detectors;
+
+    @JsonProperty("Classifier")
+    public JacksonDetector[] classifiers;
+  }
+
+  /** A fiducial result. */
+  public static class JacksonFiducial {
+    @JsonProperty("fID")
+    public double id;
+
+    @JsonProperty("pts")
+    public double[][] corners;
+
+    @JsonProperty("t6t_rs")
+    public double[] targetPoseRobotSpace;
+
+    @JsonProperty("ta")
+    public double ta;
+
+    @JsonProperty("tx")
+    public double tx;
+
+    @JsonProperty("txp")
+    public double txPixels;
+
+    @JsonProperty("ty")
+    public double ty;
+
+    @JsonProperty("typ")
+    public double tyPixels;
+  }
+
+  /** A detector or classifier result. */
+  public static class JacksonDetector {
+    @JsonProperty("class")
+    public String className;
+
+    @JsonProperty("classID")
+    public double classId;
+
+    @JsonProperty("conf")
+    public double confidence;
+
+    @JsonProperty("pts")
+    public double[][] corners;
+
+    @JsonProperty("ta")
+    public double ta;
+
+    @JsonProperty("tx")
+    public double tx;
+
+    @JsonProperty("txp")
+    public double txPixels;
+
+    @JsonProperty("ty")
+    public double ty;
+
+    @JsonProperty("typ")
+    public double tyPixels;
+  }
+}
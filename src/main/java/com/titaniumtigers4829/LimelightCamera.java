@@ -0,0 +1,793 @@
+package com.titaniumtigers4829;
+
+import com.titaniumtigers4829.data.detection.RawDetections;
+import com.titaniumtigers4829.data.fiducial.FiducialConstants;
+import com.titaniumtigers4829.data.fiducial.RawFiducial;
+import com.titaniumtigers4829.data.fiducial.TagCorners;
+import com.titaniumtigers4829.data.imu.IMUData;
+import com.titaniumtigers4829.data.imu.IMUData.IMUMode;
+import com.titaniumtigers4829.data.imu.IMUDataConstants;
+import com.titaniumtigers4829.data.networktables.NetworkTablesEntries;
+import com.titaniumtigers4829.data.pose.Botpose;
+import com.titaniumtigers4829.data.pose.LazyPoseEstimate;
+import com.titaniumtigers4829.data.pose.PoseEstimate;
+import com.titaniumtigers4829.data.pose.PoseEstimateConstants;
+import com.titaniumtigers4829.data.results.LimelightResults;
+import com.titaniumtigers4829.data.results.ResultsParser;
+import com.titaniumtigers4829.data.targeting.TargetingSnapshot;
+import com.titaniumtigers4829.estimation.AimingSolution;
+import com.titaniumtigers4829.processing.LatencyModel;
+import com.titaniumtigers4829.transport.DoubleArrayHandle;
+import com.titaniumtigers4829.transport.DoubleHandle;
+import com.titaniumtigers4829.transport.LimelightTransport;
+import com.titaniumtigers4829.transport.StringHandle;
+import com.titaniumtigers4829.utils.AllianceUtils;
+import com.titaniumtigers4829.utils.DataUtils;
+import com.titaniumtigers4829.utils.FiducialDownscaleUtils;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A single Limelight camera. This has the same methods as {@link TigerHelpers}, but every entry is
+ * resolved once when the camera is created, so calls don't have to look anything up by name. This
+ * is the fastest way to use a Limelight, so it's recommended to create one per camera and keep it
+ * around, for example in your vision subsystem. The static TigerHelpers methods delegate to a
+ * cached LimelightCamera for each name.
+ *
+ * <p>A camera keeps the transport it was created with. If the transport or NetworkTableInstance is
+ * changed, create new cameras.
+ *
+ * <p>A camera can be shared between threads. The handles are resolved in the constructor and never
+ * change, and reads don't lock, so any number of threads can read the same camera at once. The
+ * frame counters are striped and the frame timestamp is only locked when a new frame arrives, which
+ * happens at most once per camera frame. Writes lock their own buffer, so they only wait on another
+ * write of the same value.
+ */
+public class LimelightCamera {
+
+  private final String limelightName;
+  private final LimelightTransport transport;
+
+  private final DoubleHandle tv;
+  private final DoubleHandle tx;
+  private final DoubleHandle ty;
+  private final DoubleHandle txnc;
+  private final DoubleHandle tync;
+  private final DoubleHandle ta;
+  private final DoubleHandle tl;
+  private final DoubleHandle cl;
+  private final DoubleHandle tid;
+  private final DoubleArrayHandle rawFiducials;
+  private final DoubleArrayHandle rawDetections;
+  private final DoubleArrayHandle tagCorners;
+  private final DoubleArrayHandle imu;
+  private final DoubleHandle imuModeSet;
+  private final DoubleHandle imuAssistAlphaSet;
+  private final DoubleHandle priorityId;
+  private final DoubleHandle throttleSet;
+  private final DoubleHandle fiducialDownscaleSet;
+  private final DoubleArrayHandle crop;
+  private final DoubleArrayHandle fiducialOffsetSet;
+  private final DoubleArrayHandle robotOrientationSet;
+  private final DoubleArrayHandle fiducialIdFiltersSet;
+  private final DoubleArrayHandle cameraPoseRobotSpaceSet;
+  private final DoubleArrayHandle targetPoseRobotSpace;
+  private final DoubleArrayHandle botPoseTargetSpace;
+  private final DoubleArrayHandle t2d;
+  private final StringHandle json;
+  private final StringHandle tdclass;
+  private final StringHandle tcclass;
+  // Botpose entries are only resolved when first used, indexed by Botpose ordinal
+  private final AtomicReferenceArray<DoubleArrayHandle> botposes =
+      new AtomicReferenceArray<>(Botpose.values().length);
+
+  // Reused for writes, the transport copies the array so these can be overwritten after
+  private final double[] cropBuffer = new double[4];
+  private final double[] offsetBuffer = new double[3];
+  private final double[] orientationBuffer = new double[6];
+  private final double[] cameraPoseBuffer = new double[6];
+
+  // Also the lock for updating the frame timestamp
+  private final LatencyModel latencyModel = new LatencyModel();
+  private final ResultsParser resultsParser = new ResultsParser();
+  private volatile double lastTimestampSeconds;
+  private final LongAdder newFrameCount = new LongAdder();
+  private final LongAdder repeatedFrameCount = new LongAdder();
+
+  /**
+   * Creates a LimelightCamera using the transport set in {@link TigerHelpers}.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   */
+  public LimelightCamera(String limelightName) {
+    this(limelightName, TigerHelpers.getTransport());
+  }
+
+  /**
+   * Creates a LimelightCamera.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param transport The transport to read and write values with
+   */
+  public LimelightCamera(String limelightName, LimelightTransport transport) {
+    this.limelightName = limelightName;
+    this.transport = transport;
+    tv = transport.getDoubleHandle(limelightName, NetworkTablesEntries.TV);
+    tx = transport.getDoubleHandle(limelightName, NetworkTablesEntries.TX);
+    ty = transport.getDoubleHandle(limelightName, NetworkTablesEntries.TY);
+    txnc = transport.getDoubleHandle(limelightName, NetworkTablesEntries.TXNC);
+    tync = transport.getDoubleHandle(limelightName, NetworkTablesEntries.TYNC);
+    ta = transport.getDoubleHandle(limelightName, NetworkTablesEntries.TA);
+    tl = transport.getDoubleHandle(limelightName, NetworkTablesEntries.TL);
+    cl = transport.getDoubleHandle(limelightName, NetworkTablesEntries.CL);
+    tid = transport.getDoubleHandle(limelightName, NetworkTablesEntries.TID);
+    rawFiducials =
+        transport.getDoubleArrayHandle(limelightName, NetworkTablesEntries.RAW_FIDUCIALS);
+    rawDetections =
+        transport.getDoubleArrayHandle(limelightName, NetworkTablesEntries.RAW_DETECTIONS);
+    tagCorners = transport.getDoubleArrayHandle(limelightName, NetworkTablesEntries.TCORNXY);
+    imu = transport.getDoubleArrayHandle(limelightName, NetworkTablesEntries.IMU);
+    imuModeSet = transport.getDoubleHandle(limelightName, NetworkTablesEntries.IMU_MODE_SET);
+    imuAssistAlphaSet =
+        transport.getDoubleHandle(limelightName, NetworkTablesEntries.IMU_ASSIST_ALPHA_SET);
+    priorityId = transport.getDoubleHandle(limelightName, NetworkTablesEntries.PRIORITY_ID);
+    throttleSet = transport.getDoubleHandle(limelightName, NetworkTablesEntries.THROTTLE_SET);
+    fiducialDownscaleSet =
+        transport.getDoubleHandle(limelightName, NetworkTablesEntries.FIDUCIAL_DOWNSCALE_SET);
+    crop = transport.getDoubleArrayHandle(limelightName, NetworkTablesEntries.CROP);
+    fiducialOffsetSet =
+        transport.getDoubleArrayHandle(limelightName, NetworkTablesEntries.FIDUCIAL_OFFSET_SET);
+    robotOrientationSet =
+        transport.getDoubleArrayHandle(limelightName, NetworkTablesEntries.ROBOT_ORIENTATION_SET);
+    fiducialIdFiltersSet =
+        transport.getDoubleArrayHandle(limelightName, NetworkTablesEntries.FIDUCIAL_ID_FILTERS_SET);
+    cameraPoseRobotSpaceSet =
+        transport.getDoubleArrayHandle(
+            limelightName, NetworkTablesEntries.CAMERAPOSE_ROBOTSPACE_SET);
+    targetPoseRobotSpace =
+        transport.getDoubleArrayHandle(limelightName, NetworkTablesEntries.TARGETPOSE_ROBOTSPACE);
+    botPoseTargetSpace =
+        transport.getDoubleArrayHandle(limelightName, NetworkTablesEntries.BOTPOSE_TARGETSPACE);
+    t2d = transport.getDoubleArrayHandle(limelightName, NetworkTablesEntries.T2D);
+    json = transport.getStringHandle(limelightName, NetworkTablesEntries.JSON);
+    tdclass = transport.getStringHandle(limelightName, NetworkTablesEntries.TDCLASS);
+    tcclass = transport.getStringHandle(limelightName, NetworkTablesEntries.TCCLASS);
+  }
+
+  /**
+   * Gets the name of the Limelight set in the UI.
+   *
+   * @return The name of the Limelight
+   */
+  public String getName() {
+    return limelightName;
+  }
+
+  /**
+   * Gets the transport the camera reads and writes values with.
+   *
+   * @return The transport
+   */
+  public LimelightTransport getTransport() {
+    return transport;
+  }
+
+  /**
+   * Gets if the Limelight have a valid target?
+   *
+   * @return True if a valid target is present, false otherwise
+   */
+  public boolean getTV() {
+    return 1.0 == tv.get();
+  }
+
+  /**
+   * Gets the horizontal offset from the crosshair to the target in degrees.
+   *
+   * @return Horizontal offset angle in degrees
+   */
+  public double getTX() {
+    return tx.get();
+  }
+
+  /**
+   * Gets the vertical offset from the crosshair to the target in degrees.
+   *
+   * @return Vertical offset angle in degrees
+   */
+  public double getTY() {
+    return ty.get();
+  }
+
+  /**
+   * Gets the horizontal offset from the principal pixel/point to the target in degrees.
+   *
+   * @return Horizontal offset angle in degrees
+   */
+  public double getTXNC() {
+    return txnc.get();
+  }
+
+  /**
+   * Gets the vertical offset from the principal pixel/point to the target in degrees.
+   *
+   * @return Vertical offset angle in degrees
+   */
+  public double getTYNC() {
+    return tync.get();
+  }
+
+  /**
+   * Gets the target area as a percentage of the image (0-100%).
+   *
+   * @return Target area percentage (0-100%)
+   */
+  public double getTA() {
+    return ta.get();
+  }
+
+  /**
+   * Gets the pipeline's processing latency contribution.
+   *
+   * @return Pipeline latency in milliseconds
+   */
+  public double getLatencyPipeline() {
+    return tl.get();
+  }
+
+  /**
+   * Gets the capture latency.
+   *
+   * @return Capture latency in milliseconds
+   */
+  public double getLatencyCapture() {
+    return cl.get();
+  }
+
+  /**
+   * Gets the ID of the primary april tag in view.
+   *
+   * @return The ID of the april tag
+   */
+  public double getFiducialID() {
+    return tid.get();
+  }
+
+  /**
+   * Gets the latest raw fiducial/AprilTag detection results.
+   *
+   * @return Array of RawFiducial objects containing detection details
+   */
+  public RawFiducial[] getRawFiducials() {
+    double[] rawFiducialArray = rawFiducials.get();
+    if (rawFiducialArray.length % FiducialConstants.FIDUCIAL_DATA_SIZE != 0) {
+      return new RawFiducial[0];
+    }
+
+    int numFiducials = rawFiducialArray.length / FiducialConstants.FIDUCIAL_DATA_SIZE;
+    RawFiducial[] result = new RawFiducial[numFiducials];
+    for (int i = 0; i < numFiducials; i++) {
+      int baseIndex = i * FiducialConstants.FIDUCIAL_DATA_SIZE;
+      result[i] =
+          new RawFiducial(
+              (int) rawFiducialArray[baseIndex],
+              rawFiducialArray[baseIndex + 1],
+              rawFiducialArray[baseIndex + 2],
+              rawFiducialArray[baseIndex + 3],
+              rawFiducialArray[baseIndex + 4],
+              rawFiducialArray[baseIndex + 5],
+              rawFiducialArray[baseIndex + 6]);
+    }
+    return result;
+  }
+
+  /**
+   * Points a {@link TagCorners} view at the latest april tag corners, paired with the ids from the
+   * raw fiducials. Both are read atomically with their timestamps, so the ids are only used if they
+   * are from the same frame as the corners.
+   *
+   * @param corners The view to update, this is reused to avoid allocating
+   * @return The number of tags
+   */
+  public int getTagCorners(TagCorners corners) {
+    return corners.update(tagCorners.getAtomic(), rawFiducials.getAtomic());
+  }
+
+  /**
+   * Points a {@link RawDetections} view at the latest neural detector results, without creating an
+   * object for each detection.
+   *
+   * @param detections The view to update, this is reused to avoid allocating
+   * @return The number of detections
+   */
+  public int getRawDetections(RawDetections detections) {
+    return detections.update(rawDetections.getAtomic());
+  }
+
+  /**
+   * Gets the class name of the primary neural detector result.
+   *
+   * @return The class name, or an empty string if there is no detection
+   */
+  public String getDetectorClass() {
+    return tdclass.get();
+  }
+
+  /**
+   * Gets the class name of the neural classifier result.
+   *
+   * @return The class name, or an empty string if there is no result
+   */
+  public String getClassifierClass() {
+    return tcclass.get();
+  }
+
+  /**
+   * Sets the raw fiducials. This is useful for setting values for unit testing.
+   *
+   * @param rawFiducialArray the array of raw fiducials to set
+   */
+  public void setRawFiducials(RawFiducial[] rawFiducialArray) {
+    double[] data = new double[rawFiducialArray.length * FiducialConstants.FIDUCIAL_DATA_SIZE];
+    for (int i = 0; i < rawFiducialArray.length; i++) {
+      int baseIndex = i * FiducialConstants.FIDUCIAL_DATA_SIZE;
+      RawFiducial fid = rawFiducialArray[i];
+      data[baseIndex] = fid.id();
+      data[baseIndex + 1] = fid.txnc();
+      data[baseIndex + 2] = fid.tync();
+      data[baseIndex + 3] = fid.ta();
+      data[baseIndex + 4] = fid.distToCamera();
+      data[baseIndex + 5] = fid.distToRobot();
+      data[baseIndex + 6] = fid.ambiguity();
+    }
+    rawFiducials.set(data);
+  }
+
+  /**
+   * Updates an {@link AimingSolution} from the targetspace arrays, without creating any poses.
+   *
+   * @param solution The solution to update, this is reused to avoid allocating
+   * @return True if a target is being tracked, false otherwise
+   */
+  public boolean getAimingSolution(AimingSolution solution) {
+    return solution.update(targetPoseRobotSpace.get(), botPoseTargetSpace.get());
+  }
+
+  /**
+   * Fills a {@link TargetingSnapshot} from the "t2d" array, so every targeting value comes from the
+   * same frame with one read.
+   *
+   * @param snapshot The snapshot to fill, this is reused to avoid allocating
+   * @return True if the Limelight has a valid target, false otherwise
+   */
+  public boolean getTargetingSnapshot(TargetingSnapshot snapshot) {
+    return snapshot.update(t2d.getAtomic());
+  }
+
+  /**
+   * Parses the latest JSON results into {@link LimelightResults}, only decoding the sections it
+   * asks for.
+   *
+   * @param results The results to fill, this is reused to avoid allocating
+   * @return True if the JSON was parsed, false if it was empty or malformed
+   */
+  public boolean getLatestResults(LimelightResults results) {
+    String value = json.get();
+    // The parser keeps its position in fields, and cameras can be shared between threads
+    synchronized (resultsParser) {
+      return resultsParser.parse(value, results);
+    }
+  }
+
+  /**
+   * Gets the specified Pose2d for easy use with Odometry vision pose estimator
+   * (addVisionMeasurement).
+   *
+   * @param botpose the type of botpose to get
+   * @return the Pose2d of the robot relative to the origin specified by the botpose
+   */
+  public Pose2d getBotPose2d(Botpose botpose) {
+    return DataUtils.toPose2D(getBotposeHandle(botpose).get());
+  }
+
+  /**
+   * Gets the PoseEstimate for the specified {@link Botpose} type. This also updates the camera's
+   * frame metrics and {@link LatencyModel}.
+   *
+   * @param botpose the type of botpose to get
+   * @return the PoseEstimate object
+   */
+  public PoseEstimate getBotPoseEstimate(Botpose botpose) {
+    TimestampedDoubleArray tsValue = getBotposeHandle(botpose).getAtomic();
+    PoseEstimate poseEstimate = DataUtils.unpackBotPoseEstimate(tsValue, botpose);
+    recordFrame(tsValue, poseEstimate.timestampSeconds());
+    return poseEstimate;
+  }
+
+  /**
+   * Gets a {@link LazyPoseEstimate} for the specified {@link Botpose} type, which only decodes the
+   * pose and fiducials if they are used. This also updates the camera's frame metrics and {@link
+   * LatencyModel}.
+   *
+   * @param botpose the type of botpose to get
+   * @return the LazyPoseEstimate object
+   */
+  public LazyPoseEstimate getLazyBotPoseEstimate(Botpose botpose) {
+    TimestampedDoubleArray tsValue = getBotposeHandle(botpose).getAtomic();
+    LazyPoseEstimate poseEstimate = new LazyPoseEstimate(tsValue, botpose);
+    recordFrame(tsValue, poseEstimate.getTimestampSeconds());
+    return poseEstimate;
+  }
+
+  /**
+   * Gets the PoseEstimate with the origin on the robot's alliance's side of the field. Only this
+   * alliance's botpose entries are subscribed to, and the alliance is cached by {@link
+   * AllianceUtils}, so this is as fast as {@link #getBotPoseEstimate(Botpose)}.
+   *
+   * @param isMegaTag2 True to use MegaTag2, false to use MegaTag1
+   * @return the PoseEstimate object
+   */
+  public PoseEstimate getAllianceBotPoseEstimate(boolean isMegaTag2) {
+    return getBotPoseEstimate(AllianceUtils.getBotpose(isMegaTag2));
+  }
+
+  /**
+   * Gets a {@link LazyPoseEstimate} with the origin on the robot's alliance's side of the field.
+   *
+   * @param isMegaTag2 True to use MegaTag2, false to use MegaTag1
+   * @return the LazyPoseEstimate object
+   */
+  public LazyPoseEstimate getAllianceLazyBotPoseEstimate(boolean isMegaTag2) {
+    return getLazyBotPoseEstimate(AllianceUtils.getBotpose(isMegaTag2));
+  }
+
+  /**
+   * Gets the PoseEstimate using MegaTag1, with the blue-side origin or, in alliance-aware mode, the
+   * robot's alliance's origin. See {@link TigerHelpers#setAllianceAware(boolean)}.
+   *
+   * @return the PoseEstimate object
+   */
+  public PoseEstimate getBotPoseEstimate() {
+    return getBotPoseEstimate(TigerHelpers.getDefaultBotpose());
+  }
+
+  /**
+   * Sets the botpose data. This is useful for setting values for unit testing. The {@link
+   * PoseEstimate} does not contain values for the z coordinate, roll, and pitch, so these will be
+   * set to 0.
+   *
+   * @param poseEstimate the pose estimate to set
+   * @param botpose the type of botpose to set (e.g., BLUE_MEGATAG1)
+   */
+  public void setBotPoseEstimate(PoseEstimate poseEstimate, Botpose botpose) {
+    int fiducialCount = poseEstimate.rawFiducials().length;
+    double[] data =
+        new double
+            [PoseEstimateConstants.POSE_ESTIMATE_DATA_SIZE
+                + FiducialConstants.FIDUCIAL_DATA_SIZE * fiducialCount];
+
+    // Populates the PoseEstimate, matching DataUtils.unpackBotPoseEstimate
+    data[0] = poseEstimate.pose().getX();
+    data[1] = poseEstimate.pose().getY();
+    data[5] = poseEstimate.pose().getRotation().getDegrees();
+    data[6] = poseEstimate.latency();
+    data[7] = fiducialCount;
+    data[8] = poseEstimate.tagSpan();
+    data[9] = poseEstimate.avgTagDist();
+    data[10] = poseEstimate.avgTagArea();
+
+    for (int i = 0; i < fiducialCount; i++) {
+      int baseIndex =
+          PoseEstimateConstants.POSE_ESTIMATE_DATA_SIZE
+              + (i * FiducialConstants.FIDUCIAL_DATA_SIZE);
+      RawFiducial fid = poseEstimate.rawFiducials()[i];
+      data[baseIndex] = fid.id();
+      data[baseIndex + 1] = fid.txnc();
+      data[baseIndex + 2] = fid.tync();
+      data[baseIndex + 3] = fid.ta();
+      data[baseIndex + 4] = fid.distToCamera();
+      data[baseIndex + 5] = fid.distToRobot();
+      data[baseIndex + 6] = fid.ambiguity();
+    }
+
+    getBotposeHandle(botpose).set(data);
+  }
+
+  /**
+   * Gets the current IMU data. Returns all zeros if data is invalid or unavailable.
+   *
+   * @return IMUData object containing all current IMU data
+   */
+  public IMUData getIMUData() {
+    double[] imuData = imu.get();
+    if (imuData == null || imuData.length < IMUDataConstants.IMU_DATA_SIZE) {
+      return new IMUData();
+    }
+    return new IMUData(
+        imuData[0],
+        imuData[1],
+        imuData[2],
+        imuData[3],
+        imuData[4],
+        imuData[5],
+        imuData[6],
+        imuData[7],
+        imuData[8],
+        imuData[9],
+        IMUMode.fromValue((int) imuModeSet.get()));
+  }
+
+  /**
+   * Sets the priority tag ID for the Limelight camera.
+   *
+   * @param ID ID of the tag to prioritize
+   */
+  public void setPriorityTagID(int ID) {
+    priorityId.set(ID);
+  }
+
+  /**
+   * Sets the crop window for the camera. The crop window in the UI must be completely open.
+   *
+   * @param cropXMin Minimum X value (-1 to 1)
+   * @param cropXMax Maximum X value (-1 to 1)
+   * @param cropYMin Minimum Y value (-1 to 1)
+   * @param cropYMax Maximum Y value (-1 to 1)
+   */
+  public void setCropWindow(double cropXMin, double cropXMax, double cropYMin, double cropYMax) {
+    synchronized (cropBuffer) {
+      cropBuffer[0] = cropXMin;
+      cropBuffer[1] = cropXMax;
+      cropBuffer[2] = cropYMin;
+      cropBuffer[3] = cropYMax;
+      crop.set(cropBuffer);
+    }
+  }
+
+  /**
+   * Sets the 3D point-of-interest offset for the current fiducial pipeline.
+   *
+   * @param offsetX Offset in the X direction in meters
+   * @param offsetY Offset in the Y direction in meters
+   * @param offsetZ Offset in the Z direction in meters
+   */
+  public void setFiducial3DOffset(double offsetX, double offsetY, double offsetZ) {
+    synchronized (offsetBuffer) {
+      offsetBuffer[0] = offsetX;
+      offsetBuffer[1] = offsetY;
+      offsetBuffer[2] = offsetZ;
+      fiducialOffsetSet.set(offsetBuffer);
+    }
+  }
+
+  /**
+   * Sets robot orientation values used by MegaTag2 localization algorithm.
+   *
+   * @param yaw Robot yaw in degrees. 0 = robot facing red alliance wall in FRC
+   * @param yawRate (Unnecessary) Angular velocity of robot yaw in degrees per second
+   * @param pitch (Unnecessary) Robot pitch in degrees
+   * @param pitchRate (Unnecessary) Angular velocity of robot pitch in degrees per second
+   * @param roll (Unnecessary) Robot roll in degrees
+   * @param rollRate (Unnecessary) Angular velocity of robot roll in degrees per second
+   */
+  public void setRobotOrientation(
+      double yaw, double yawRate, double pitch, double pitchRate, double roll, double rollRate) {
+    synchronized (orientationBuffer) {
+      orientationBuffer[0] = yaw;
+      orientationBuffer[1] = yawRate;
+      orientationBuffer[2] = pitch;
+      orientationBuffer[3] = pitchRate;
+      orientationBuffer[4] = roll;
+      orientationBuffer[5] = rollRate;
+      robotOrientationSet.set(orientationBuffer);
+    }
+    transport.flush();
+  }
+
+  /**
+   * Sets robot yaw used by MegaTag2 localization algorithm. Puts 0 for all other orientation
+   * values.
+   *
+   * @param yaw Robot yaw in degrees. 0 = robot facing red alliance wall in FRC
+   */
+  public void setRobotOrientation(double yaw) {
+    setRobotOrientation(yaw, 0, 0, 0, 0, 0);
+  }
+
+  /**
+   * Configures the IMU mode for MegaTag2 Localization
+   *
+   * @param imuMode The IMU mode to set, uses the {@link IMUMode} enum.
+   */
+  public void setIMUMode(IMUMode imuMode) {
+    imuModeSet.set(imuMode.getModeValue());
+  }
+
+  /**
+   * Sets the throttle for the Limelight camera.
+   *
+   * @param throttle Number of frames to skip between each processed frame. 0 = process every frame,
+   *     1 = process every other frame, etc.
+   */
+  public void setLimelightThrottle(int throttle) {
+    throttleSet.set(throttle);
+  }
+
+  /**
+   * Configures the complementary filter alpha value for IMU Assist Modes (Modes 3 and 4)
+   *
+   * @param alpha Defaults to .001. Higher values will cause the internal IMU to converge onto the
+   *     assist source more rapidly.
+   */
+  public void setIMUAssistAlpha(double alpha) {
+    imuAssistAlphaSet.set(alpha);
+  }
+
+  /**
+   * Overrides the valid AprilTag IDs that will be used for localization. Tags not in this list will
+   * be ignored for robot pose estimation.
+   *
+   * @param validIDs Array of valid AprilTag IDs to track
+   */
+  public void setFiducialIDFiltersOverride(int[] validIDs) {
+    double[] validIDsDouble = new double[validIDs.length];
+    for (int i = 0; i < validIDs.length; i++) {
+      validIDsDouble[i] = validIDs[i];
+    }
+    fiducialIdFiltersSet.set(validIDsDouble);
+  }
+
+  /**
+   * Sets the downscaling factor for AprilTag detection.
+   *
+   * @param downscale Downscale factor. Valid values: 1.0 (no downscale), 1.5, 2.0, 3.0, 4.0.
+   */
+  public void setFiducialDownscalingOverride(float downscale) {
+    fiducialDownscaleSet.set(FiducialDownscaleUtils.convertDownscale(downscale));
+  }
+
+  /**
+   * Sets the camera pose relative to the robot.
+   *
+   * @param forward Forward offset in meters
+   * @param side Side offset in meters
+   * @param up Up offset in meters
+   * @param roll Roll angle in degrees
+   * @param pitch Pitch angle in degrees
+   * @param yaw Yaw angle in degrees
+   */
+  public void setCameraPoseRobotSpace(
+      double forward, double side, double up, double roll, double pitch, double yaw) {
+    synchronized (cameraPoseBuffer) {
+      cameraPoseBuffer[0] = forward;
+      cameraPoseBuffer[1] = side;
+      cameraPoseBuffer[2] = up;
+      cameraPoseBuffer[3] = roll;
+      cameraPoseBuffer[4] = pitch;
+      cameraPoseBuffer[5] = yaw;
+      cameraPoseRobotSpaceSet.set(cameraPoseBuffer);
+    }
+  }
+
+  /**
+   * Resolves every entry the camera reads, including the botpose entries that are otherwise only
+   * resolved when first used, and reads each one once. In alliance-aware mode, only the robot's
+   * alliance's botpose entries are resolved, or both alliances' if the DriverStation hasn't
+   * reported it yet, which is usually the case in robotInit. Otherwise the first loop after the
+   * alliance is known would create the subscribers, and they would have no value yet. Nothing is
+   * written and the frame metrics aren't changed, so this is safe to call at any time.
+   */
+  public void warmUp() {
+    if (!TigerHelpers.isAllianceAware()) {
+      warmUp(Botpose.values());
+    } else if (AllianceUtils.getAlliance().isPresent()) {
+      warmUp(AllianceUtils.getBotpose(false), AllianceUtils.getBotpose(true));
+    } else {
+      warmUp(
+          Botpose.BLUE_MEGATAG1, Botpose.BLUE_MEGATAG2, Botpose.RED_MEGATAG1, Botpose.RED_MEGATAG2);
+    }
+  }
+
+  /**
+   * Resolves every entry the camera reads and the given botpose entries, and reads each one once.
+   *
+   * @param botposes The botpose types to resolve
+   */
+  public void warmUp(Botpose... botposes) {
+    for (Botpose botpose : botposes) {
+      getBotposeHandle(botpose).getAtomic();
+    }
+    tv.get();
+    tx.get();
+    ty.get();
+    txnc.get();
+    tync.get();
+    ta.get();
+    tl.get();
+    cl.get();
+    tid.get();
+    rawFiducials.get();
+    rawDetections.get();
+    tagCorners.get();
+    imu.get();
+    targetPoseRobotSpace.get();
+    botPoseTargetSpace.get();
+    t2d.getAtomic();
+    json.get();
+    tdclass.get();
+    tcclass.get();
+    transport.getServerTimeOffset();
+  }
+
+  /**
+   * Gets the timestamp of the last pose estimate read with {@link #getBotPoseEstimate(Botpose)}.
+   *
+   * @return The timestamp in seconds
+   */
+  public double getLastTimestampSeconds() {
+    return lastTimestampSeconds;
+  }
+
+  /**
+   * Gets the number of times {@link #getBotPoseEstimate(Botpose)} returned a new frame.
+   *
+   * @return The number of new frames
+   */
+  public long getNewFrameCount() {
+    return newFrameCount.sum();
+  }
+
+  /**
+   * Gets the number of times {@link #getBotPoseEstimate(Botpose)} returned the same frame as the
+   * last call. If this is high, the camera is running slower than the robot loop.
+   *
+   * @return The number of repeated frames
+   */
+  public long getRepeatedFrameCount() {
+    return repeatedFrameCount.sum();
+  }
+
+  /**
+   * Gets the camera's latency model, which is updated with every new frame read with {@link
+   * #getBotPoseEstimate(Botpose)}. It tracks the capture timestamp and how regularly the camera's
+   * frames arrive. It is updated while locked on itself, so threads other than the one reading
+   * estimates should synchronize on it when reading it.
+   *
+   * @return The latency model
+   */
+  public LatencyModel getLatencyModel() {
+    return latencyModel;
+  }
+
+  private void recordFrame(TimestampedDoubleArray tsValue, double timestampSeconds) {
+    if (timestampSeconds != lastTimestampSeconds) {
+      // Checked again once locked, so a frame read by several threads is only counted once
+      synchronized (latencyModel) {
+        if (timestampSeconds != lastTimestampSeconds) {
+          lastTimestampSeconds = timestampSeconds;
+          newFrameCount.increment();
+          latencyModel.update(tsValue, transport.getServerTimeOffset());
+          return;
+        }
+      }
+    }
+    repeatedFrameCount.increment();
+  }
+
+  private DoubleArrayHandle getBotposeHandle(Botpose botpose) {
+    DoubleArrayHandle handle = botposes.get(botpose.ordinal());
+    if (handle == null) {
+      // Locked so two threads can't both create a subscriber for the same entry
+      synchronized (botposes) {
+        handle = botposes.get(botpose.ordinal());
+        if (handle == null) {
+          handle = transport.getDoubleArrayHandle(limelightName, botpose.getEntryName());
+          botposes.set(botpose.ordinal(), handle);
+        }
+      }
+    }
+    return handle;
+  }
+}
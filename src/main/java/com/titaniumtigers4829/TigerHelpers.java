@@ -2,21 +2,29 @@
 
 package com.titaniumtigers4829;
 
-import com.titaniumtigers4829.data.fiducial.FiducialConstants;
+import com.titaniumtigers4829.data.detection.RawDetections;
 import com.titaniumtigers4829.data.fiducial.RawFiducial;
+import com.titaniumtigers4829.data.fiducial.TagCorners;
 import com.titaniumtigers4829.data.imu.IMUData;
 import com.titaniumtigers4829.data.imu.IMUData.IMUMode;
-import com.titaniumtigers4829.data.imu.IMUDataConstants;
 import com.titaniumtigers4829.data.networktables.NetworkTablesEntries;
 import com.titaniumtigers4829.data.pose.Botpose;
+import com.titaniumtigers4829.data.pose.LazyPoseEstimate;
 import com.titaniumtigers4829.data.pose.PoseEstimate;
-import com.titaniumtigers4829.data.pose.PoseEstimateConstants;
+import com.titaniumtigers4829.data.results.LimelightResults;
+import com.titaniumtigers4829.data.targeting.TargetingSnapshot;
+import com.titaniumtigers4829.estimation.AimingSolution;
+import com.titaniumtigers4829.transport.LimelightTransport;
+import com.titaniumtigers4829.transport.NetworkTablesTransport;
+import com.titaniumtigers4829.utils.AllianceUtils;
 import com.titaniumtigers4829.utils.DataUtils;
-import com.titaniumtigers4829.utils.FiducialDownscaleUtils;
 import com.titaniumtigers4829.utils.NTUtils;
+import com.titaniumtigers4829.utils.WarmUpUtils;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
-import edu.wpi.first.networktables.NetworkTableEntry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * TigerHelpers is built on top of LimelightHelpers, providing a set of static methods and classes
@@ -25,9 +33,164 @@ import edu.wpi.first.networktables.NetworkTableEntry;
  *
  * <p>It includes additional helper methods to simplify common tasks, improve integration with unit
  * testing, and enhance usability while staying up to date with new Limelight features.
+ *
+ * <p>Every method can be called from any thread. The transport, NetworkTableInstance, and cached
+ * cameras are swapped atomically, and the cached cameras are kept in a concurrent map, so threads
+ * reading different cameras never wait on each other. See {@link LimelightCamera} for how a single
+ * camera is shared between threads.
  */
 public class TigerHelpers {
 
+  // The transport and the cameras created with it are swapped together, so a camera is never
+  // cached after the transport it was created with, or its generation, has been replaced
+  private static final AtomicReference<CameraRegistry> registry =
+      new AtomicReference<>(new CameraRegistry(new NetworkTablesTransport()));
+  private static volatile boolean isAllianceAware;
+
+  // Written with the values read by warmUp so the compiler can't remove the reads as dead code
+  private static volatile double warmUpSink;
+
+  /**
+   * Gets the transport used to read and write Limelight values.
+   *
+   * @return The transport, which is a {@link NetworkTablesTransport} by default
+   */
+  public static LimelightTransport getTransport() {
+    return registry.get().transport;
+  }
+
+  /**
+   * Sets the transport used to read and write Limelight values. Normally this is NetworkTables,
+   * but an {@link com.titaniumtigers4829.transport.InMemoryTransport} can be used to make unit
+   * tests and simulations much faster.
+   *
+   * @param newTransport The transport to use
+   */
+  public static void setTransport(LimelightTransport newTransport) {
+    registry.set(new CameraRegistry(newTransport));
+  }
+
+  /**
+   * Gets the cached {@link LimelightCamera} for a Limelight, creating it if needed. Every static
+   * method in TigerHelpers that takes a name delegates to this camera.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return The camera for the Limelight
+   */
+  public static LimelightCamera getCamera(String limelightName) {
+    CameraRegistry current = getRegistry();
+    LimelightCamera camera = current.cameras.get(limelightName);
+    if (camera == null) {
+      camera =
+          current.cameras.computeIfAbsent(
+              limelightName, name -> new LimelightCamera(name, current.transport));
+    }
+    return camera;
+  }
+
+  private static CameraRegistry getRegistry() {
+    CameraRegistry current = registry.get();
+    if (current.generation == current.transport.getGeneration()) {
+      return current;
+    }
+    return registry.updateAndGet(
+        latest ->
+            latest.generation != latest.transport.getGeneration()
+                ? new CameraRegistry(latest.transport)
+                : latest);
+  }
+
+  /**
+   * Clears the cached cameras, so they are recreated with the current transport the next time
+   * they're used. The cameras are also recreated automatically when the transport is replaced or
+   * its {@link LimelightTransport#getGeneration() generation} changes, such as when the
+   * NetworkTableInstance is replaced with {@link NTUtils#setNetworkTableInstance}.
+   */
+  public static void clearCameras() {
+    registry.updateAndGet(current -> new CameraRegistry(current.transport));
+  }
+
+  /**
+   * Sets if the methods that don't take a {@link Botpose} use the robot's alliance's origin
+   * instead of always using the blue-side origin. The alliance is cached by {@link AllianceUtils},
+   * and only the alliance's botpose entries are subscribed to. {@link #warmUp(String...)}
+   * subscribes to both alliances' entries if the alliance isn't known yet.
+   *
+   * @param allianceAware True to use the alliance's origin, false to use the blue-side origin
+   */
+  public static void setAllianceAware(boolean allianceAware) {
+    isAllianceAware = allianceAware;
+  }
+
+  /**
+   * Gets if alliance-aware mode is on.
+   *
+   * @return True if the methods that don't take a {@link Botpose} use the alliance's origin
+   */
+  public static boolean isAllianceAware() {
+    return isAllianceAware;
+  }
+
+  /**
+   * Gets the {@link Botpose} used by the methods that don't take one, which is MegaTag1 with the
+   * blue-side origin or, in alliance-aware mode, the robot's alliance's origin.
+   *
+   * @return The botpose type
+   */
+  public static Botpose getDefaultBotpose() {
+    return isAllianceAware ? AllianceUtils.getBotpose(false) : Botpose.BLUE_MEGATAG1;
+  }
+
+  /**
+   * Prepares TigerHelpers before the first match loop, so the first calls don't cause loop
+   * overruns. Every entry each camera reads is resolved, which creates the NetworkTables
+   * subscribers, and every decode and encode path is run on synthetic frames published to a private
+   * NetworkTableInstance until the JVM compiles it. The static entry points are then called on each
+   * camera, so they and the cameras' own handles are compiled as well. Nothing is written to the
+   * Limelights. This should be called from robotInit or while disabled.
+   *
+   * @param limelightNames The names of the Limelights set in the UI ("" for default)
+   * @return How long the warm-up took in seconds
+   */
+  public static double warmUp(String... limelightNames) {
+    return warmUp(WarmUpUtils.DEFAULT_ITERATIONS, limelightNames);
+  }
+
+  /**
+   * Prepares TigerHelpers before the first match loop, running each decode path a set number of
+   * times.
+   *
+   * @param iterations The number of times to run each decode path
+   * @param limelightNames The names of the Limelights set in the UI ("" for default)
+   * @return How long the warm-up took in seconds
+   */
+  public static double warmUp(int iterations, String... limelightNames) {
+    long startTime = System.nanoTime();
+    for (String limelightName : limelightNames) {
+      getCamera(limelightName).warmUp();
+    }
+    WarmUpUtils.exerciseDecoders(iterations);
+
+    // The Limelights may not be publishing yet, but the entry points and handles are the same
+    LimelightResults results = new LimelightResults();
+    TagCorners corners = new TagCorners();
+    double total = 0;
+    for (int i = 0; i < iterations; i++) {
+      for (String limelightName : limelightNames) {
+        total += getTX(limelightName) + getTY(limelightName) + getTA(limelightName);
+        total += getTV(limelightName) ? 1 : 0;
+        total += getRawFiducials(limelightName).length;
+        total += getBotPoseEstimate(limelightName).tagCount();
+        total += getBotPose2d(limelightName).getX();
+        total += getIMUData(limelightName).robotYaw();
+        total += getTagCorners(limelightName, corners);
+        total += getLatestResults(limelightName, results) ? 1 : 0;
+      }
+    }
+    warmUpSink = total;
+    return (System.nanoTime() - startTime) / 1e9;
+  }
+
   /**
    * Gets if the Limelight have a valid target?
    *
@@ -35,7 +198,7 @@ public class TigerHelpers {
    * @return True if a valid target is present, false otherwise
    */
   public static boolean getTV(String limelightName) {
-    return 1.0 == NTUtils.getLimelightNetworkTableDouble(limelightName, NetworkTablesEntries.TV);
+    return getCamera(limelightName).getTV();
   }
 
   /**
@@ -45,7 +208,7 @@ public class TigerHelpers {
    * @return Horizontal offset angle in degrees
    */
   public static double getTX(String limelightName) {
-    return NTUtils.getLimelightNetworkTableDouble(limelightName, NetworkTablesEntries.TX);
+    return getCamera(limelightName).getTX();
   }
 
   /**
@@ -55,7 +218,7 @@ public class TigerHelpers {
    * @return Vertical offset angle in degrees
    */
   public static double getTY(String limelightName) {
-    return NTUtils.getLimelightNetworkTableDouble(limelightName, NetworkTablesEntries.TY);
+    return getCamera(limelightName).getTY();
   }
 
   /**
@@ -67,7 +230,7 @@ public class TigerHelpers {
    * @return Horizontal offset angle in degrees
    */
   public static double getTXNC(String limelightName) {
-    return NTUtils.getLimelightNetworkTableDouble(limelightName, NetworkTablesEntries.TXNC);
+    return getCamera(limelightName).getTXNC();
   }
 
   /**
@@ -79,7 +242,7 @@ public class TigerHelpers {
    * @return Vertical offset angle in degrees
    */
   public static double getTYNC(String limelightName) {
-    return NTUtils.getLimelightNetworkTableDouble(limelightName, NetworkTablesEntries.TYNC);
+    return getCamera(limelightName).getTYNC();
   }
 
   /**
@@ -89,7 +252,7 @@ public class TigerHelpers {
    * @return Target area percentage (0-100%)
    */
   public static double getTA(String limelightName) {
-    return NTUtils.getLimelightNetworkTableDouble(limelightName, NetworkTablesEntries.TA);
+    return getCamera(limelightName).getTA();
   }
 
   /**
@@ -99,7 +262,7 @@ public class TigerHelpers {
    * @return Pipeline latency in milliseconds
    */
   public static double getLatencyPipeline(String limelightName) {
-    return NTUtils.getLimelightNetworkTableDouble(limelightName, NetworkTablesEntries.TL);
+    return getCamera(limelightName).getLatencyPipeline();
   }
 
   /**
@@ -109,7 +272,7 @@ public class TigerHelpers {
    * @return Capture latency in milliseconds
    */
   public static double getLatencyCapture(String limelightName) {
-    return NTUtils.getLimelightNetworkTableDouble(limelightName, NetworkTablesEntries.CL);
+    return getCamera(limelightName).getLatencyCapture();
   }
 
   /**
@@ -119,44 +282,70 @@ public class TigerHelpers {
    * @return Array of RawFiducial objects containing detection details
    */
   public static RawFiducial[] getRawFiducials(String limelightName) {
-    NetworkTableEntry entry =
-        NTUtils.getLimelightNetworkTableEntry(limelightName, NetworkTablesEntries.RAW_FIDUCIALS);
-    double[] rawFiducialArray = entry.getDoubleArray(new double[0]);
-    if (rawFiducialArray.length % FiducialConstants.FIDUCIAL_DATA_SIZE != 0) {
-      return new RawFiducial[0];
-    }
+    return getCamera(limelightName).getRawFiducials();
+  }
 
-    int numFiducials = rawFiducialArray.length / FiducialConstants.FIDUCIAL_DATA_SIZE;
-    RawFiducial[] rawFiducials = new RawFiducial[numFiducials];
+  /**
+   * Points a {@link TagCorners} view at the pixel coordinates of every april tag's corners
+   * ("tcornxy"), paired with the tag ids. The pipeline needs "send contours" enabled for the
+   * corners to be published. Use {@link
+   * com.titaniumtigers4829.estimation.CameraIntrinsics#undistort(TagCorners, double[], int)} to
+   * prepare the corners for a custom solver.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param corners The view to update, this is reused to avoid allocating
+   * @return The number of tags
+   */
+  public static int getTagCorners(String limelightName, TagCorners corners) {
+    return getCamera(limelightName).getTagCorners(corners);
+  }
 
-    for (int i = 0; i < numFiducials; i++) {
-      int baseIndex = i * FiducialConstants.FIDUCIAL_DATA_SIZE;
-      int id = (int) DataUtils.extractArrayEntry(rawFiducialArray, baseIndex);
-      double txnc = DataUtils.extractArrayEntry(rawFiducialArray, baseIndex + 1);
-      double tync = DataUtils.extractArrayEntry(rawFiducialArray, baseIndex + 2);
-      double ta = DataUtils.extractArrayEntry(rawFiducialArray, baseIndex + 3);
-      double distToCamera = DataUtils.extractArrayEntry(rawFiducialArray, baseIndex + 4);
-      double distToRobot = DataUtils.extractArrayEntry(rawFiducialArray, baseIndex + 5);
-      double ambiguity = DataUtils.extractArrayEntry(rawFiducialArray, baseIndex + 6);
+  /**
+   * Points a {@link RawDetections} view at the latest neural detector results. Unlike {@link
+   * #getRawFiducials(String)}, no object is created for each detection, so the view can be reused
+   * every frame, for example with a {@link
+   * com.titaniumtigers4829.processing.GamePieceTracker}.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param detections The view to update, this is reused to avoid allocating
+   * @return The number of detections
+   */
+  public static int getRawDetections(String limelightName, RawDetections detections) {
+    return getCamera(limelightName).getRawDetections(detections);
+  }
 
-      rawFiducials[i] = new RawFiducial(id, txnc, tync, ta, distToCamera, distToRobot, ambiguity);
-    }
+  /**
+   * Gets the class name of the primary neural detector result.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return The class name, or an empty string if there is no detection
+   */
+  public static String getDetectorClass(String limelightName) {
+    return getCamera(limelightName).getDetectorClass();
+  }
 
-    return rawFiducials;
+  /**
+   * Gets the class name of the neural classifier result.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return The class name, or an empty string if there is no result
+   */
+  public static String getClassifierClass(String limelightName) {
+    return getCamera(limelightName).getClassifierClass();
   }
 
   // TODO: deprecate these methods (all the way down to the enum)
   public static double[] getBotPose(String limelightName) {
-    return NTUtils.getLimelightNetworkTableDoubleArray(limelightName, NetworkTablesEntries.BOTPOSE);
+    return getTransport().readDoubleArray(limelightName, NetworkTablesEntries.BOTPOSE);
   }
 
   public static double getFiducialID(String limelightName) {
-    return NTUtils.getLimelightNetworkTableDouble(limelightName, NetworkTablesEntries.TID);
+    return getCamera(limelightName).getFiducialID();
   }
 
   public static Pose3d getBotPose3d(String limelightName) {
     double[] poseArray =
-        NTUtils.getLimelightNetworkTableDoubleArray(limelightName, NetworkTablesEntries.BOTPOSE);
+        getTransport().readDoubleArray(limelightName, NetworkTablesEntries.BOTPOSE);
     return DataUtils.toPose3D(poseArray);
   }
 
@@ -170,8 +359,7 @@ public class TigerHelpers {
   @Deprecated
   public static Pose3d getBotPose3d_wpiRed(String limelightName) {
     double[] poseArray =
-        NTUtils.getLimelightNetworkTableDoubleArray(
-            limelightName, NetworkTablesEntries.BOTPOSE_WPIRED);
+        getTransport().readDoubleArray(limelightName, NetworkTablesEntries.BOTPOSE_WPIRED);
     return DataUtils.toPose3D(poseArray);
   }
 
@@ -185,8 +373,7 @@ public class TigerHelpers {
   @Deprecated
   public static Pose3d getBotPose3d_wpiBlue(String limelightName) {
     double[] poseArray =
-        NTUtils.getLimelightNetworkTableDoubleArray(
-            limelightName, NetworkTablesEntries.BOTPOSE_WPIBLUE);
+        getTransport().readDoubleArray(limelightName, NetworkTablesEntries.BOTPOSE_WPIBLUE);
     return DataUtils.toPose3D(poseArray);
   }
 
@@ -199,8 +386,7 @@ public class TigerHelpers {
   @Deprecated
   public static Pose3d getBotPose3d_TargetSpace(String limelightName) {
     double[] poseArray =
-        NTUtils.getLimelightNetworkTableDoubleArray(
-            limelightName, NetworkTablesEntries.BOTPOSE_TARGETSPACE);
+        getTransport().readDoubleArray(limelightName, NetworkTablesEntries.BOTPOSE_TARGETSPACE);
     return DataUtils.toPose3D(poseArray);
   }
 
@@ -213,8 +399,7 @@ public class TigerHelpers {
   @Deprecated
   public static Pose3d getCameraPose3d_TargetSpace(String limelightName) {
     double[] poseArray =
-        NTUtils.getLimelightNetworkTableDoubleArray(
-            limelightName, NetworkTablesEntries.CAMERAPOSE_TARGETSPACE);
+        getTransport().readDoubleArray(limelightName, NetworkTablesEntries.CAMERAPOSE_TARGETSPACE);
     return DataUtils.toPose3D(poseArray);
   }
 
@@ -227,8 +412,7 @@ public class TigerHelpers {
   @Deprecated
   public static Pose3d getTargetPose3d_CameraSpace(String limelightName) {
     double[] poseArray =
-        NTUtils.getLimelightNetworkTableDoubleArray(
-            limelightName, NetworkTablesEntries.TARGETPOSE_CAMERASPACE);
+        getTransport().readDoubleArray(limelightName, NetworkTablesEntries.TARGETPOSE_CAMERASPACE);
     return DataUtils.toPose3D(poseArray);
   }
 
@@ -241,11 +425,51 @@ public class TigerHelpers {
   @Deprecated
   public static Pose3d getTargetPose3d_RobotSpace(String limelightName) {
     double[] poseArray =
-        NTUtils.getLimelightNetworkTableDoubleArray(
-            limelightName, NetworkTablesEntries.TARGETPOSE_ROBOTSPACE);
+        getTransport().readDoubleArray(limelightName, NetworkTablesEntries.TARGETPOSE_ROBOTSPACE);
     return DataUtils.toPose3D(poseArray);
   }
 
+  /**
+   * Updates an {@link AimingSolution} with the distance, bearing, elevation, and skew to the
+   * currently tracked target. This decodes the targetspace arrays directly, so it is much cheaper
+   * than {@link #getTargetPose3d_RobotSpace(String)} for aiming loops.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param solution The solution to update, this is reused to avoid allocating
+   * @return True if a target is being tracked, false otherwise
+   */
+  public static boolean getAimingSolution(String limelightName, AimingSolution solution) {
+    return getCamera(limelightName).getAimingSolution(solution);
+  }
+
+  /**
+   * Fills a {@link TargetingSnapshot} with tv, tx, ty, ta, tid, the latencies, and the rest of the
+   * basic targeting values in one read of the "t2d" array. Unlike calling {@link #getTX(String)},
+   * {@link #getTY(String)}, and so on separately, every value comes from the same frame, and the
+   * snapshot is tagged with that frame's capture timestamp.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param snapshot The snapshot to fill, this is reused to avoid allocating
+   * @return True if the Limelight has a valid target, false otherwise
+   */
+  public static boolean getTargetingSnapshot(String limelightName, TargetingSnapshot snapshot) {
+    return getCamera(limelightName).getTargetingSnapshot(snapshot);
+  }
+
+  /**
+   * Parses the Limelight's JSON results, which have values that aren't published anywhere else,
+   * such as each tag's corners and the neural detector and classifier results. Only the sections
+   * the results ask for are decoded, and nothing is allocated once the results have grown to fit
+   * the largest frame.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param results The results to fill, this is reused to avoid allocating
+   * @return True if the JSON was parsed, false if it was empty or malformed
+   */
+  public static boolean getLatestResults(String limelightName, LimelightResults results) {
+    return getCamera(limelightName).getLatestResults(results);
+  }
+
   /**
    * Gets the camera's 3D pose with respect to the robot's coordinate system.
    *
@@ -255,8 +479,7 @@ public class TigerHelpers {
   @Deprecated
   public static Pose3d getCameraPose3d_RobotSpace(String limelightName) {
     double[] poseArray =
-        NTUtils.getLimelightNetworkTableDoubleArray(
-            limelightName, NetworkTablesEntries.CAMERAPOSE_ROBOTSPACE);
+        getTransport().readDoubleArray(limelightName, NetworkTablesEntries.CAMERAPOSE_ROBOTSPACE);
     return DataUtils.toPose3D(poseArray);
   }
 
@@ -269,8 +492,7 @@ public class TigerHelpers {
    */
   @Deprecated
   public static PoseEstimate getBotPoseEstimate_wpiBlue(String limelightName) {
-    return DataUtils.unpackBotPoseEstimate(
-        limelightName, NetworkTablesEntries.BOTPOSE_WPIBLUE, false);
+    return unpackBotPoseEstimate(limelightName, NetworkTablesEntries.BOTPOSE_WPIBLUE, false);
   }
 
   /**
@@ -283,8 +505,7 @@ public class TigerHelpers {
    */
   @Deprecated
   public static PoseEstimate getBotPoseEstimate_wpiBlue_MegaTag2(String limelightName) {
-    return DataUtils.unpackBotPoseEstimate(
-        limelightName, NetworkTablesEntries.BOTPOSE_ORB_WPIBLUE, true);
+    return unpackBotPoseEstimate(limelightName, NetworkTablesEntries.BOTPOSE_ORB_WPIBLUE, true);
   }
 
   /**
@@ -296,8 +517,7 @@ public class TigerHelpers {
    */
   @Deprecated
   public static PoseEstimate getBotPoseEstimate_wpiRed(String limelightName) {
-    return DataUtils.unpackBotPoseEstimate(
-        limelightName, NetworkTablesEntries.BOTPOSE_WPIRED, false);
+    return unpackBotPoseEstimate(limelightName, NetworkTablesEntries.BOTPOSE_WPIRED, false);
   }
 
   /**
@@ -309,8 +529,7 @@ public class TigerHelpers {
    */
   @Deprecated
   public static PoseEstimate getBotPoseEstimate_wpiRed_MegaTag2(String limelightName) {
-    return DataUtils.unpackBotPoseEstimate(
-        limelightName, NetworkTablesEntries.BOTPOSE_ORB_WPIRED, true);
+    return unpackBotPoseEstimate(limelightName, NetworkTablesEntries.BOTPOSE_ORB_WPIRED, true);
   }
 
   /**
@@ -322,20 +541,19 @@ public class TigerHelpers {
    * @return the Pose2d of the robot relative to the origin specified by the botpose
    */
   public static Pose2d getBotPose2d(String limelightName, Botpose botpose) {
-    double[] result =
-        NTUtils.getLimelightNetworkTableDoubleArray(limelightName, botpose.getEntryName());
-    return DataUtils.toPose2D(result);
+    return getCamera(limelightName).getBotPose2d(botpose);
   }
 
   /**
-   * Gets the Pose2d with the blue-side origin for use with Odometry vision pose estimator
-   * (addVisionMeasurement).
+   * Gets the Pose2d for use with Odometry vision pose estimator (addVisionMeasurement), with the
+   * blue-side origin or, in alliance-aware mode, the robot's alliance's origin.
    *
    * @param limelightName The name of the Limelight set in the UI ("" for default)
-   * @return the Pose2d of the robot relative to the blue-side origin
+   * @return the Pose2d of the robot relative to the origin specified by {@link
+   *     #getDefaultBotpose()}
    */
   public static Pose2d getBotPose2d(String limelightName) {
-    return getBotPose2d(limelightName, Botpose.BLUE_MEGATAG1);
+    return getBotPose2d(limelightName, getDefaultBotpose());
   }
 
   /**
@@ -346,18 +564,56 @@ public class TigerHelpers {
    * @return the PoseEstimate object
    */
   public static PoseEstimate getBotPoseEstimate(String limelightName, Botpose botpose) {
-    return DataUtils.unpackBotPoseEstimate(
-        limelightName, botpose.getEntryName(), botpose.isMegaTag2());
+    return getCamera(limelightName).getBotPoseEstimate(botpose);
   }
 
   /**
-   * Gets the PoseEstimate with the blue-side origin using MegaTag1.
+   * Gets the PoseEstimate using MegaTag1, with the blue-side origin or, in alliance-aware mode, the
+   * robot's alliance's origin.
    *
    * @param limelightName The name of the Limelight set in the UI ("" for default)
    * @return the PoseEstimate object
    */
   public static PoseEstimate getBotPoseEstimate(String limelightName) {
-    return getBotPoseEstimate(limelightName, Botpose.BLUE_MEGATAG1);
+    return getBotPoseEstimate(limelightName, getDefaultBotpose());
+  }
+
+  /**
+   * Gets the PoseEstimate with the origin on the robot's alliance's side of the field using
+   * MegaTag1. The alliance is cached by {@link AllianceUtils}, and the blue-side origin is used if
+   * it isn't known.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return the PoseEstimate object
+   */
+  public static PoseEstimate getBotPoseEstimate_alliance(String limelightName) {
+    return getCamera(limelightName).getAllianceBotPoseEstimate(false);
+  }
+
+  /**
+   * Gets the PoseEstimate with the origin on the robot's alliance's side of the field using
+   * MegaTag2. The alliance is cached by {@link AllianceUtils}, and the blue-side origin is used if
+   * it isn't known.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return the PoseEstimate object
+   */
+  public static PoseEstimate getBotPoseEstimate_alliance_MegaTag2(String limelightName) {
+    return getCamera(limelightName).getAllianceBotPoseEstimate(true);
+  }
+
+  /**
+   * Gets a {@link LazyPoseEstimate} for the specified {@link Botpose} type. This only reads the
+   * array once, and the pose and fiducials are only decoded if they are used, so it is cheaper than
+   * {@link #getBotPoseEstimate(String, Botpose)} when only the pose, timestamp, and tag count are
+   * needed.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param botpose the type of botpose to get
+   * @return the LazyPoseEstimate object
+   */
+  public static LazyPoseEstimate getLazyBotPoseEstimate(String limelightName, Botpose botpose) {
+    return getCamera(limelightName).getLazyBotPoseEstimate(botpose);
   }
 
   /**
@@ -371,57 +627,20 @@ public class TigerHelpers {
    */
   public static void setBotPoseEstimate(
       PoseEstimate poseEstimate, String limelightName, Botpose botpose) {
-    // Because network tables don't support 2D arrays, we need to flatten the data into a 1D array
-    // Calculates array size: 11 (for PoseEstimate data) + 7 * number of fiducials (for each raw
-    // fiducial)
-    int fiducialCount = poseEstimate.rawFiducials().length;
-    double[] data =
-        new double
-            [PoseEstimateConstants.POSE_ESTIMATE_DATA_SIZE
-                + FiducialConstants.FIDUCIAL_DATA_SIZE * fiducialCount];
-
-    // Populates the PoseEstimate, matching DataUtils.unpackBotPoseEstimate
-    data[0] = poseEstimate.pose().getX(); // x
-    data[1] = poseEstimate.pose().getY(); // y
-    data[2] = 0.0; // z (Pose2d doesn't use this)
-    data[3] = 0.0; // roll (not used)
-    data[4] = 0.0; // pitch (not used)
-    data[5] = poseEstimate.pose().getRotation().getDegrees(); // yaw
-    data[6] = poseEstimate.latency(); // latency
-    data[7] = fiducialCount; // tagCount (must match fiducials length)
-    data[8] = poseEstimate.tagSpan(); // tagSpan
-    data[9] = poseEstimate.avgTagDist(); // avgTagDist
-    data[10] = poseEstimate.avgTagArea(); // avgTagArea
-
-    // Add data for each fiducial
-    for (int i = 0; i < fiducialCount; i++) {
-      int baseIndex =
-          PoseEstimateConstants.POSE_ESTIMATE_DATA_SIZE
-              + (i * FiducialConstants.FIDUCIAL_DATA_SIZE);
-      RawFiducial fid = poseEstimate.rawFiducials()[i];
-      data[baseIndex] = fid.id(); // id (cast to double)
-      data[baseIndex + 1] = fid.txnc(); // txnc
-      data[baseIndex + 2] = fid.tync(); // tync
-      data[baseIndex + 3] = fid.ta(); // ta
-      data[baseIndex + 4] = fid.distToCamera(); // distToCamera
-      data[baseIndex + 5] = fid.distToRobot(); // distToRobot
-      data[baseIndex + 6] = fid.ambiguity(); // ambiguity
-    }
-
-    // Write the array to NetworkTables
-    NTUtils.setLimelightNetworkTableDoubleArray(limelightName, botpose.getEntryName(), data);
+    getCamera(limelightName).setBotPoseEstimate(poseEstimate, botpose);
   }
 
   /**
-   * Sets the network table entry for the blue-side, MegaTag1 botpose data. This is useful for
-   * setting values for unit testing. The {@link PoseEstimate} does not contain values for the z
-   * coordinate, roll, and pitch, so these will be set to 0.
+   * Sets the network table entry for the MegaTag1 botpose data read by {@link
+   * #getBotPoseEstimate(String)}, which is the blue-side origin unless alliance-aware mode is on.
+   * This is useful for setting values for unit testing. The {@link PoseEstimate} does not contain
+   * values for the z coordinate, roll, and pitch, so these will be set to 0.
    *
    * @param poseEstimate the pose estimate to set
    * @param limelightName The name of the Limelight set in the UI ("" for default)
    */
   public static void setBotPoseEstimate(PoseEstimate poseEstimate, String limelightName) {
-    setBotPoseEstimate(poseEstimate, limelightName, Botpose.BLUE_MEGATAG1);
+    setBotPoseEstimate(poseEstimate, limelightName, getDefaultBotpose());
   }
 
   /**
@@ -432,23 +651,7 @@ public class TigerHelpers {
    * @param limelightName The name of the Limelight set in the UI ("" for default)
    */
   public static void setRawFiducials(RawFiducial[] rawFiducials, String limelightName) {
-    NetworkTableEntry entry =
-        NTUtils.getLimelightNetworkTableEntry(limelightName, NetworkTablesEntries.RAW_FIDUCIALS);
-    double[] data = new double[rawFiducials.length * FiducialConstants.FIDUCIAL_DATA_SIZE];
-
-    for (int i = 0; i < rawFiducials.length; i++) {
-      int baseIndex = i * FiducialConstants.FIDUCIAL_DATA_SIZE;
-      RawFiducial fid = rawFiducials[i];
-      data[baseIndex] = (double) fid.id();
-      data[baseIndex + 1] = fid.txnc();
-      data[baseIndex + 2] = fid.tync();
-      data[baseIndex + 3] = fid.ta();
-      data[baseIndex + 4] = fid.distToCamera();
-      data[baseIndex + 5] = fid.distToRobot();
-      data[baseIndex + 6] = fid.ambiguity();
-    }
-
-    entry.setDoubleArray(data);
+    getCamera(limelightName).setRawFiducials(rawFiducials);
   }
 
   /**
@@ -460,28 +663,7 @@ public class TigerHelpers {
    * @return IMUData object containing all current IMU data
    */
   public static IMUData getIMUData(String limelightName) {
-    double[] imuData =
-        NTUtils.getLimelightNetworkTableDoubleArray(limelightName, NetworkTablesEntries.IMU);
-    IMUMode imuMode =
-        IMUMode.fromValue(
-            (int)
-                NTUtils.getLimelightNetworkTableDouble(
-                    limelightName, NetworkTablesEntries.IMU_MODE_SET));
-    if (imuData == null || imuData.length < IMUDataConstants.IMU_DATA_SIZE) {
-      return new IMUData(); // Returns object with all zeros
-    }
-    return new IMUData(
-        imuData[0],
-        imuData[1],
-        imuData[2],
-        imuData[3],
-        imuData[4],
-        imuData[5],
-        imuData[6],
-        imuData[7],
-        imuData[8],
-        imuData[9],
-        imuMode);
+    return getCamera(limelightName).getIMUData();
   }
 
   /**
@@ -492,7 +674,7 @@ public class TigerHelpers {
    * @param ID ID of the tag to prioritize
    */
   public static void setPriorityTagID(String limelightName, int ID) {
-    NTUtils.setLimelightNetworkTableDouble(limelightName, NetworkTablesEntries.PRIORITY_ID, ID);
+    getCamera(limelightName).setPriorityTagID(ID);
   }
 
   /**
@@ -508,12 +690,7 @@ public class TigerHelpers {
    */
   public static void setCropWindow(
       String limelightName, double cropXMin, double cropXMax, double cropYMin, double cropYMax) {
-    double[] entries = new double[4];
-    entries[0] = cropXMin;
-    entries[1] = cropXMax;
-    entries[2] = cropYMin;
-    entries[3] = cropYMax;
-    NTUtils.setLimelightNetworkTableDoubleArray(limelightName, NetworkTablesEntries.CROP, entries);
+    getCamera(limelightName).setCropWindow(cropXMin, cropXMax, cropYMin, cropYMax);
   }
 
   /**
@@ -526,12 +703,7 @@ public class TigerHelpers {
    */
   public static void setFiducial3DOffset(
       String limelightName, double offsetX, double offsetY, double offsetZ) {
-    double[] entries = new double[3];
-    entries[0] = offsetX;
-    entries[1] = offsetY;
-    entries[2] = offsetZ;
-    NTUtils.setLimelightNetworkTableDoubleArray(
-        limelightName, NetworkTablesEntries.FIDUCIAL_OFFSET_SET, entries);
+    getCamera(limelightName).setFiducial3DOffset(offsetX, offsetY, offsetZ);
   }
 
   /**
@@ -553,16 +725,7 @@ public class TigerHelpers {
       double pitchRate,
       double roll,
       double rollRate) {
-    double[] entries = new double[6];
-    entries[0] = yaw;
-    entries[1] = yawRate;
-    entries[2] = pitch;
-    entries[3] = pitchRate;
-    entries[4] = roll;
-    entries[5] = rollRate;
-    NTUtils.setLimelightNetworkTableDoubleArray(
-        limelightName, NetworkTablesEntries.ROBOT_ORIENTATION_SET, entries);
-    NTUtils.flushNetworkTable();
+    getCamera(limelightName).setRobotOrientation(yaw, yawRate, pitch, pitchRate, roll, rollRate);
   }
 
   /**
@@ -585,8 +748,7 @@ public class TigerHelpers {
    */
   @Deprecated
   public static void setIMUMode(String limelightName, int imuMode) {
-    NTUtils.setLimelightNetworkTableDouble(
-        limelightName, NetworkTablesEntries.IMU_MODE_SET, imuMode);
+    getTransport().writeDouble(limelightName, NetworkTablesEntries.IMU_MODE_SET, imuMode);
   }
 
   /**
@@ -596,8 +758,7 @@ public class TigerHelpers {
    * @param imuMode The IMU mode to set, uses the {@link IMUMode} enum.
    */
   public static void setIMUMode(String limelightName, IMUMode imuMode) {
-    NTUtils.setLimelightNetworkTableDouble(
-        limelightName, NetworkTablesEntries.IMU_MODE_SET, imuMode.getModeValue());
+    getCamera(limelightName).setIMUMode(imuMode);
   }
 
   /**
@@ -609,8 +770,7 @@ public class TigerHelpers {
    *     1 = process every other frame, etc.
    */
   public static void setLimelightThrottle(String limelightName, int throttle) {
-    NTUtils.setLimelightNetworkTableDouble(
-        limelightName, NetworkTablesEntries.THROTTLE_SET, throttle);
+    getCamera(limelightName).setLimelightThrottle(throttle);
   }
 
   /**
@@ -621,8 +781,7 @@ public class TigerHelpers {
    *     assist source more rapidly.
    */
   public static void setIMUAssistAlpha(String limelightName, double alpha) {
-    NTUtils.setLimelightNetworkTableDouble(
-        limelightName, NetworkTablesEntries.IMU_ASSIST_ALPHA_SET, alpha);
+    getCamera(limelightName).setIMUAssistAlpha(alpha);
   }
 
   /**
@@ -635,12 +794,7 @@ public class TigerHelpers {
    * @param z Z offset in meters
    */
   public static void setFidcuial3DOffset(String limelightName, double x, double y, double z) {
-    double[] entries = new double[3];
-    entries[0] = x;
-    entries[1] = y;
-    entries[2] = z;
-    NTUtils.setLimelightNetworkTableDoubleArray(
-        limelightName, NetworkTablesEntries.FIDUCIAL_OFFSET_SET, entries);
+    getCamera(limelightName).setFiducial3DOffset(x, y, z);
   }
 
   /**
@@ -651,12 +805,7 @@ public class TigerHelpers {
    * @param validIDs Array of valid AprilTag IDs to track
    */
   public static void setFiducialIDFiltersOverride(String limelightName, int[] validIDs) {
-    double[] validIDsDouble = new double[validIDs.length];
-    for (int i = 0; i < validIDs.length; i++) {
-      validIDsDouble[i] = validIDs[i];
-    }
-    NTUtils.setLimelightNetworkTableDoubleArray(
-        limelightName, NetworkTablesEntries.FIDUCIAL_ID_FILTERS_SET, validIDsDouble);
+    getCamera(limelightName).setFiducialIDFiltersOverride(validIDs);
   }
 
   /**
@@ -668,10 +817,7 @@ public class TigerHelpers {
    *     0 for pipeline control.
    */
   public static void setFiducialDownscalingOverride(String limelightName, float downscale) {
-    NTUtils.setLimelightNetworkTableDouble(
-        limelightName,
-        NetworkTablesEntries.FIDUCIAL_DOWNSCALE_SET,
-        FiducialDownscaleUtils.convertDownscale(downscale));
+    getCamera(limelightName).setFiducialDownscalingOverride(downscale);
   }
 
   /**
@@ -693,14 +839,23 @@ public class TigerHelpers {
       double roll,
       double pitch,
       double yaw) {
-    double[] entries = new double[6];
-    entries[0] = forward;
-    entries[1] = side;
-    entries[2] = up;
-    entries[3] = roll;
-    entries[4] = pitch;
-    entries[5] = yaw;
-    NTUtils.setLimelightNetworkTableDoubleArray(
-        limelightName, NetworkTablesEntries.CAMERAPOSE_ROBOTSPACE_SET, entries);
+    getCamera(limelightName).setCameraPoseRobotSpace(forward, side, up, roll, pitch, yaw);
+  }
+
+  private static PoseEstimate unpackBotPoseEstimate(
+      String limelightName, String entryName, boolean isMegaTag2) {
+    return DataUtils.unpackBotPoseEstimate(
+        getTransport().readTimestampedDoubleArray(limelightName, entryName), entryName, isMegaTag2);
+  }
+
+  private static class CameraRegistry {
+    private final LimelightTransport transport;
+    private final long generation;
+    private final Map<String, LimelightCamera> cameras = new ConcurrentHashMap<>();
+
+    private CameraRegistry(LimelightTransport transport) {
+      this.transport = transport;
+      generation = transport.getGeneration();
+    }
   }
 }
@@ -0,0 +1,203 @@
+package com.titaniumtigers4829.control;
+
+import com.titaniumtigers4829.TigerHelpers;
+import com.titaniumtigers4829.data.pose.PoseEstimate;
+import edu.wpi.first.wpilibj.DriverStation;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Automatically picks the fiducial downscale and throttle of each camera. Close tags are large in
+ * the image, so they can still be detected with heavy downscaling, which greatly increases the
+ * Limelight's frame rate. Cameras that aren't seeing any tags, such as ones facing away from the
+ * tags or any camera while the robot is disabled, are throttled to reduce their temperature. By
+ * default a camera is throttled to skip 10 frames after 50 updates without a tag, which can be
+ * changed with {@link #setNoTargetThrottle(int, int)}.
+ *
+ * <p>NetworkTables is only written to when the chosen downscale or throttle for a camera changes.
+ */
+public class DownscaleThrottleController {
+
+  /** The downscale levels, from least to most downscaled. */
+  private static final float[] DOWNSCALES = {1.0F, 1.5F, 2.0F, 3.0F, 4.0F};
+
+  private final Map<String, CameraState> cameras = new HashMap<>();
+
+  // The max distance each downscale level past 1.0 can be used at, indexed like DOWNSCALES
+  private final double[] maxDistances = {Double.POSITIVE_INFINITY, 3.0, 2.0, 1.25, 0.75};
+  private double distanceHysteresis = 0.25;
+  private double minTagArea = 0.0;
+  private int disabledThrottle = 100;
+  private int noTargetThrottle = 10;
+  private int noTargetLoops = 50;
+
+  /**
+   * Registers a camera to have its downscale and throttle managed.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   */
+  public void addCamera(String limelightName) {
+    cameras.put(limelightName, new CameraState());
+  }
+
+  /**
+   * Sets the max average tag distance each downscale level can be used at. A level is only used if
+   * the tags are closer than its distance, so the distances should decrease.
+   *
+   * @param maxDistance1_5 The max distance in meters for 1.5x downscale, defaults to 3.0
+   * @param maxDistance2 The max distance in meters for 2x downscale, defaults to 2.0
+   * @param maxDistance3 The max distance in meters for 3x downscale, defaults to 1.25
+   * @param maxDistance4 The max distance in meters for 4x downscale, defaults to 0.75
+   */
+  public void setMaxDistances(
+      double maxDistance1_5, double maxDistance2, double maxDistance3, double maxDistance4) {
+    maxDistances[1] = maxDistance1_5;
+    maxDistances[2] = maxDistance2;
+    maxDistances[3] = maxDistance3;
+    maxDistances[4] = maxDistance4;
+  }
+
+  /**
+   * Sets how much closer than a level's max distance the tags have to be before switching to more
+   * downscaling. Switching to less downscaling happens immediately so distant tags aren't lost.
+   *
+   * @param distanceHysteresis The hysteresis in meters, defaults to 0.25
+   */
+  public void setDistanceHysteresis(double distanceHysteresis) {
+    this.distanceHysteresis = distanceHysteresis;
+  }
+
+  /**
+   * Sets the min average tag area for any downscaling to be used. Tags smaller than this will
+   * always be detected at full resolution.
+   *
+   * @param minTagArea The min area as a percentage of the image, defaults to 0
+   */
+  public void setMinTagArea(double minTagArea) {
+    this.minTagArea = minTagArea;
+  }
+
+  /**
+   * Sets the throttle used while the robot is disabled.
+   *
+   * @param disabledThrottle Number of frames to skip between each processed frame, defaults to 100
+   */
+  public void setDisabledThrottle(int disabledThrottle) {
+    this.disabledThrottle = disabledThrottle;
+  }
+
+  /**
+   * Sets the throttle used for a camera that hasn't seen a tag for a while, and how long that is.
+   * A throttled camera still processes some frames, so it is unthrottled on the first update after
+   * it sees a tag again. Use a throttle of 0 to turn this off.
+   *
+   * @param noTargetThrottle Number of frames to skip between each processed frame, defaults to 10
+   * @param noTargetLoops The number of updates in a row without tags before the camera is
+   *     throttled, defaults to 50
+   */
+  public void setNoTargetThrottle(int noTargetThrottle, int noTargetLoops) {
+    this.noTargetThrottle = noTargetThrottle;
+    this.noTargetLoops = noTargetLoops;
+  }
+
+  /**
+   * Updates the downscale and throttle of a camera from its latest pose estimate.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param poseEstimate The camera's latest pose estimate
+   */
+  public void update(String limelightName, PoseEstimate poseEstimate) {
+    update(
+        limelightName,
+        poseEstimate.tagCount(),
+        poseEstimate.avgTagDist(),
+        poseEstimate.avgTagArea());
+  }
+
+  /**
+   * Updates the downscale and throttle of a camera. This should be called every loop for every
+   * registered camera.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param tagCount The number of tags the camera sees
+   * @param avgTagDist The average distance to the tags in meters
+   * @param avgTagArea The average area of the tags as a percentage of the image
+   */
+  public void update(String limelightName, int tagCount, double avgTagDist, double avgTagArea) {
+    CameraState camera = cameras.get(limelightName);
+    if (camera == null) {
+      throw new IllegalArgumentException("Camera " + limelightName + " was never added");
+    }
+
+    if (tagCount > 0) {
+      camera.loopsWithoutTargets = 0;
+    } else if (camera.loopsWithoutTargets < Integer.MAX_VALUE) {
+      camera.loopsWithoutTargets++;
+    }
+
+    int throttle = 0;
+    if (DriverStation.isDisabled()) {
+      throttle = disabledThrottle;
+    } else if (camera.loopsWithoutTargets >= noTargetLoops) {
+      throttle = noTargetThrottle;
+    }
+    if (throttle != camera.throttle) {
+      camera.throttle = throttle;
+      TigerHelpers.setLimelightThrottle(limelightName, throttle);
+    }
+
+    int level = chooseLevel(camera.level, tagCount, avgTagDist, avgTagArea);
+    if (level != camera.level) {
+      camera.level = level;
+      TigerHelpers.setFiducialDownscalingOverride(limelightName, DOWNSCALES[level]);
+    }
+  }
+
+  /**
+   * Gets the downscale currently set for a camera.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return The downscale, 1.0, 1.5, 2.0, 3.0, or 4.0
+   */
+  public float getDownscale(String limelightName) {
+    CameraState camera = cameras.get(limelightName);
+    return camera == null || camera.level < 0 ? DOWNSCALES[0] : DOWNSCALES[camera.level];
+  }
+
+  /**
+   * Gets the throttle currently set for a camera.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return Number of frames skipped between each processed frame
+   */
+  public int getThrottle(String limelightName) {
+    CameraState camera = cameras.get(limelightName);
+    return camera == null || camera.throttle < 0 ? 0 : camera.throttle;
+  }
+
+  private int chooseLevel(int currentLevel, int tagCount, double avgTagDist, double avgTagArea) {
+    // Without tags, full resolution gives the best chance of finding distant ones
+    if (tagCount == 0 || avgTagDist <= 0 || avgTagArea < minTagArea) {
+      return 0;
+    }
+
+    int level = 0;
+    for (int i = DOWNSCALES.length - 1; i > 0; i--) {
+      // Moving to a more downscaled level requires the tags to be past the hysteresis
+      double maxDistance =
+          i > currentLevel ? maxDistances[i] - distanceHysteresis : maxDistances[i];
+      if (avgTagDist < maxDistance) {
+        level = i;
+        break;
+      }
+    }
+    return level;
+  }
+
+  private static class CameraState {
+    // Starts at -1 so the first update always writes to NetworkTables
+    private int level = -1;
+    private int throttle = -1;
+    private int loopsWithoutTargets;
+  }
+}
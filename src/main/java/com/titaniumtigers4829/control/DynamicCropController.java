@@ -0,0 +1,342 @@
+package com.titaniumtigers4829.control;
+
+import com.titaniumtigers4829.TigerHelpers;
+import com.titaniumtigers4829.data.fiducial.FiducialConstants;
+import com.titaniumtigers4829.data.fiducial.RawFiducial;
+import com.titaniumtigers4829.data.networktables.NetworkTablesEntries;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.util.Units;
+
+/**
+ * Moves a camera's crop window to follow the april tags it is tracking. Cropping is one of the
+ * biggest frame rate improvements on a Limelight, as it only has to process the cropped area.
+ *
+ * <p>Every update, each tag's position in the next frame is predicted from its last txnc and tync
+ * and the robot's velocity, and the crop window is fit around where the tags are and where they
+ * are going to be. To avoid writing to NetworkTables every loop, the window is only moved when a
+ * tag is predicted to leave it or when it is much larger than needed. If tags are lost for more
+ * than a few frames the crop window falls back to the full frame so they can be found again. The
+ * crop window in the Limelight UI must be completely open for this to work.
+ */
+public class DynamicCropController {
+
+  private static final double FULL_FRAME_AREA = 4.0;
+
+  private final String limelightName;
+  private final double tanHalfHorizontalFov;
+  private final double tanHalfVerticalFov;
+  private final double[] cropWindow = {-1, 1, -1, 1};
+
+  private double cameraYawRadians;
+  private double tagSize = 0.1651;
+  private double padding = 0.1;
+  private double hysteresis = 0.1;
+  private double shrinkRatio = 2.0;
+  private int lostFrameTolerance = 3;
+
+  private boolean isFullFrame = true;
+  private int lostFrames;
+  private int resetCount;
+  private int fullFrameFallbackCount;
+  private int writeCount;
+
+  // The box around the tags, reused between updates
+  private double minX;
+  private double maxX;
+  private double minY;
+  private double maxY;
+
+  /**
+   * Creates a DynamicCropController for a camera.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param horizontalFov The camera's full horizontal field of view in degrees
+   * @param verticalFov The camera's full vertical field of view in degrees
+   */
+  public DynamicCropController(String limelightName, double horizontalFov, double verticalFov) {
+    this.limelightName = limelightName;
+    this.tanHalfHorizontalFov = Math.tan(Units.degreesToRadians(horizontalFov) / 2.0);
+    this.tanHalfVerticalFov = Math.tan(Units.degreesToRadians(verticalFov) / 2.0);
+  }
+
+  /**
+   * Sets the camera's yaw relative to the robot. This is needed to know how the robot's velocity
+   * moves tags through the camera's image. It should be the same yaw passed to {@link
+   * com.titaniumtigers4829.TigerHelpers#setCameraPoseRobotSpace}.
+   *
+   * @param yaw Yaw angle in degrees
+   */
+  public void setCameraYaw(double yaw) {
+    cameraYawRadians = Units.degreesToRadians(yaw);
+  }
+
+  /**
+   * Sets the size of the april tags, used to know how much of the image a tag covers.
+   *
+   * @param tagSize The width of the tags' black border in meters, defaults to 6.5 inches
+   */
+  public void setTagSize(double tagSize) {
+    this.tagSize = tagSize;
+  }
+
+  /**
+   * Sets how much extra space is left around the tags in the crop window. A larger padding causes
+   * fewer resets, but gives less of a frame rate improvement.
+   *
+   * @param padding The padding in crop window units (the full frame is -1 to 1), defaults to 0.1
+   */
+  public void setPadding(double padding) {
+    this.padding = padding;
+  }
+
+  /**
+   * Sets how much the crop window is grown past what is needed whenever it is moved. Larger values
+   * cause the crop window to be written less often.
+   *
+   * @param hysteresis The hysteresis in crop window units (the full frame is -1 to 1), defaults to
+   *     0.1
+   */
+  public void setHysteresis(double hysteresis) {
+    this.hysteresis = hysteresis;
+  }
+
+  /**
+   * Sets how much larger than needed the crop window can get before it is shrunk.
+   *
+   * @param shrinkRatio The ratio of the current area to the needed area, defaults to 2
+   */
+  public void setShrinkRatio(double shrinkRatio) {
+    this.shrinkRatio = shrinkRatio;
+  }
+
+  /**
+   * Sets how many updates in a row can have no tags before the crop window falls back to the full
+   * frame.
+   *
+   * @param lostFrameTolerance The number of updates, defaults to 3
+   */
+  public void setLostFrameTolerance(int lostFrameTolerance) {
+    this.lostFrameTolerance = lostFrameTolerance;
+  }
+
+  /**
+   * Updates the crop window from the latest raw fiducials.
+   *
+   * @param rawFiducials The raw fiducials from the camera's latest frame
+   * @param robotRelativeSpeeds The robot relative speeds of the robot
+   * @param dt The time until the next frame in seconds, usually the loop time
+   */
+  public void update(RawFiducial[] rawFiducials, ChassisSpeeds robotRelativeSpeeds, double dt) {
+    resetBox();
+    for (RawFiducial rawFiducial : rawFiducials) {
+      addToBox(
+          rawFiducial.txnc(),
+          rawFiducial.tync(),
+          rawFiducial.distToCamera(),
+          robotRelativeSpeeds.vxMetersPerSecond,
+          robotRelativeSpeeds.vyMetersPerSecond,
+          robotRelativeSpeeds.omegaRadiansPerSecond,
+          dt);
+    }
+    applyBox(rawFiducials.length);
+  }
+
+  /**
+   * Updates the crop window from a flattened raw fiducial array, such as the "rawfiducials" entry
+   * or the fiducials at the end of a botpose entry. This avoids creating {@link RawFiducial}
+   * objects entirely.
+   *
+   * @param rawFiducialArray The flattened raw fiducial data
+   * @param offset The index of the first fiducial's id in the array, 0 for "rawfiducials" and 11
+   *     for a botpose entry
+   * @param vx The robot's forward velocity in meters per second
+   * @param vy The robot's leftward velocity in meters per second
+   * @param omega The robot's counterclockwise angular velocity in radians per second
+   * @param dt The time until the next frame in seconds, usually the loop time
+   */
+  public void update(
+      double[] rawFiducialArray, int offset, double vx, double vy, double omega, double dt) {
+    resetBox();
+    int tagCount = 0;
+    for (int baseIndex = offset;
+        baseIndex + FiducialConstants.FIDUCIAL_DATA_SIZE <= rawFiducialArray.length;
+        baseIndex += FiducialConstants.FIDUCIAL_DATA_SIZE) {
+      addToBox(
+          rawFiducialArray[baseIndex + 1],
+          rawFiducialArray[baseIndex + 2],
+          rawFiducialArray[baseIndex + 4],
+          vx,
+          vy,
+          omega,
+          dt);
+      tagCount++;
+    }
+    applyBox(tagCount);
+  }
+
+  /**
+   * Gets the current crop window as [xMin, xMax, yMin, yMax]. Don't modify the returned array.
+   *
+   * @return The current crop window
+   */
+  public double[] getCropWindow() {
+    return cropWindow;
+  }
+
+  /**
+   * Gets if the crop window is currently the full frame.
+   *
+   * @return True if the crop window is the full frame, false otherwise
+   */
+  public boolean isFullFrame() {
+    return isFullFrame;
+  }
+
+  /**
+   * Gets the fraction of the full frame the crop window currently covers. Lower is faster.
+   *
+   * @return The fraction of the frame, from 0 to 1
+   */
+  public double getCropAreaFraction() {
+    return (cropWindow[1] - cropWindow[0]) * (cropWindow[3] - cropWindow[2]) / FULL_FRAME_AREA;
+  }
+
+  /**
+   * Gets the number of times a tag was predicted to leave the crop window, so it had to be reset
+   * around the tags. If this is high, increase the padding or hysteresis.
+   *
+   * @return The number of resets
+   */
+  public int getResetCount() {
+    return resetCount;
+  }
+
+  /**
+   * Gets the number of times tags were lost and the crop window fell back to the full frame.
+   *
+   * @return The number of full frame fallbacks
+   */
+  public int getFullFrameFallbackCount() {
+    return fullFrameFallbackCount;
+  }
+
+  /**
+   * Gets the number of times the crop window was written to NetworkTables.
+   *
+   * @return The number of writes
+   */
+  public int getWriteCount() {
+    return writeCount;
+  }
+
+  /** Resets all of the metrics to 0. */
+  public void resetMetrics() {
+    resetCount = 0;
+    fullFrameFallbackCount = 0;
+    writeCount = 0;
+  }
+
+  private void resetBox() {
+    minX = Double.POSITIVE_INFINITY;
+    maxX = Double.NEGATIVE_INFINITY;
+    minY = Double.POSITIVE_INFINITY;
+    maxY = Double.NEGATIVE_INFINITY;
+  }
+
+  private void addToBox(
+      double txnc,
+      double tync,
+      double distToCamera,
+      double vx,
+      double vy,
+      double omega,
+      double dt) {
+    double tx = Units.degreesToRadians(txnc);
+    double ty = Units.degreesToRadians(tync);
+
+    // Rotates the robot's velocity into the camera's frame
+    double cos = Math.cos(cameraYawRadians);
+    double sin = Math.sin(cameraYawRadians);
+    double cameraVx = vx * cos + vy * sin;
+    double cameraVy = -vx * sin + vy * cos;
+
+    // txnc is positive to the right, so the tag's counterclockwise bearing is -tx. Turning the
+    // robot counterclockwise and moving the camera left both move the tag to the right.
+    double txRate = omega;
+    double halfSize = 0;
+    if (distToCamera > 0) {
+      double bearing = -tx;
+      txRate -= (cameraVx * Math.sin(bearing) - cameraVy * Math.cos(bearing)) / distToCamera;
+      halfSize = Math.atan(tagSize / 2.0 / distToCamera);
+    }
+    double predictedTx = tx + txRate * dt;
+
+    double halfWidth = Math.tan(halfSize) / tanHalfHorizontalFov;
+    double halfHeight = Math.tan(halfSize) / tanHalfVerticalFov;
+    double x = Math.tan(tx) / tanHalfHorizontalFov;
+    double predictedX = Math.tan(predictedTx) / tanHalfHorizontalFov;
+    double y = Math.tan(ty) / tanHalfVerticalFov;
+
+    minX = Math.min(minX, Math.min(x, predictedX) - halfWidth);
+    maxX = Math.max(maxX, Math.max(x, predictedX) + halfWidth);
+    minY = Math.min(minY, y - halfHeight);
+    maxY = Math.max(maxY, y + halfHeight);
+  }
+
+  private void applyBox(int tagCount) {
+    if (tagCount == 0) {
+      lostFrames++;
+      if (lostFrames > lostFrameTolerance && !isFullFrame) {
+        fullFrameFallbackCount++;
+        setWindow(-1, 1, -1, 1);
+      }
+      return;
+    }
+    lostFrames = 0;
+
+    double neededXMin = MathUtil.clamp(minX - padding, -1, 1);
+    double neededXMax = MathUtil.clamp(maxX + padding, -1, 1);
+    double neededYMin = MathUtil.clamp(minY - padding, -1, 1);
+    double neededYMax = MathUtil.clamp(maxY + padding, -1, 1);
+
+    boolean isOutside =
+        neededXMin < cropWindow[0]
+            || neededXMax > cropWindow[1]
+            || neededYMin < cropWindow[2]
+            || neededYMax > cropWindow[3];
+    double neededArea = (neededXMax - neededXMin) * (neededYMax - neededYMin);
+    boolean isTooLarge =
+        (cropWindow[1] - cropWindow[0]) * (cropWindow[3] - cropWindow[2])
+            > neededArea * shrinkRatio;
+    if (!isOutside && !isTooLarge) {
+      return;
+    }
+    if (isOutside) {
+      resetCount++;
+    }
+
+    setWindow(
+        MathUtil.clamp(neededXMin - hysteresis, -1, 1),
+        MathUtil.clamp(neededXMax + hysteresis, -1, 1),
+        MathUtil.clamp(neededYMin - hysteresis, -1, 1),
+        MathUtil.clamp(neededYMax + hysteresis, -1, 1));
+  }
+
+  private void setWindow(double xMin, double xMax, double yMin, double yMax) {
+    if (xMin == cropWindow[0]
+        && xMax == cropWindow[1]
+        && yMin == cropWindow[2]
+        && yMax == cropWindow[3]) {
+      return;
+    }
+    cropWindow[0] = xMin;
+    cropWindow[1] = xMax;
+    cropWindow[2] = yMin;
+    cropWindow[3] = yMax;
+    isFullFrame = xMin == -1 && xMax == 1 && yMin == -1 && yMax == 1;
+    writeCount++;
+    TigerHelpers.getTransport()
+        .writeDoubleArray(limelightName, NetworkTablesEntries.CROP, cropWindow);
+  }
+}
@@ -0,0 +1,184 @@
+package com.titaniumtigers4829.control;
+
+import com.titaniumtigers4829.TigerHelpers;
+import com.titaniumtigers4829.data.imu.IMUData.IMUMode;
+import com.titaniumtigers4829.processing.GyroDriftMonitor;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.DriverStation;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Automatically sets the IMU mode and IMU assist alpha of each camera from the robot's state. While
+ * the robot is disabled the internal IMU is seeded from the external gyro, so it starts aligned,
+ * and while enabled the internal IMU is used with the external gyro assisting it. This gives
+ * MegaTag2 the most accurate orientation without having to switch modes in robot code.
+ *
+ * <p>If a camera has a {@link GyroDriftMonitor}, its assist alpha is raised as the two gyros drift
+ * apart, so the internal IMU converges back onto the external gyro faster. NetworkTables is only
+ * written to when a camera's mode changes or its alpha changes by more than the tolerance.
+ */
+public class IMUModeManager {
+
+  private final List<CameraState> cameras = new ArrayList<>();
+
+  private IMUMode disabledMode = IMUMode.EXTERNAL_IMU_SEED_INTERNAL;
+  private IMUMode enabledMode = IMUMode.INTERNAL_EXTERNAL_ASSISTED;
+  private double minAssistAlpha = 0.001;
+  private double maxAssistAlpha = 0.01;
+  private double biasForMaxAssistAlpha = 1.0;
+  private double assistAlphaTolerance = 0.25;
+
+  /**
+   * Registers a camera to have its IMU mode managed. Its assist alpha is always the min alpha.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   */
+  public void addCamera(String limelightName) {
+    addCamera(limelightName, null);
+  }
+
+  /**
+   * Registers a camera to have its IMU mode and assist alpha managed. The drift monitor must be
+   * updated separately, every loop.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param driftMonitor The drift monitor comparing the camera's internal IMU to the external gyro
+   */
+  public void addCamera(String limelightName, GyroDriftMonitor driftMonitor) {
+    cameras.add(new CameraState(limelightName, driftMonitor));
+  }
+
+  /**
+   * Sets the IMU mode used while the robot is disabled.
+   *
+   * @param disabledMode The IMU mode, defaults to {@link IMUMode#EXTERNAL_IMU_SEED_INTERNAL}
+   */
+  public void setDisabledMode(IMUMode disabledMode) {
+    this.disabledMode = disabledMode;
+  }
+
+  /**
+   * Sets the IMU mode used while the robot is enabled.
+   *
+   * @param enabledMode The IMU mode, defaults to {@link IMUMode#INTERNAL_EXTERNAL_ASSISTED}
+   */
+  public void setEnabledMode(IMUMode enabledMode) {
+    this.enabledMode = enabledMode;
+  }
+
+  /**
+   * Sets the range of IMU assist alphas. The alpha rises linearly from the min to the max as the
+   * drift monitor's bias rises from 0 to the bias for the max alpha.
+   *
+   * @param minAssistAlpha The alpha with no drift, defaults to 0.001
+   * @param maxAssistAlpha The highest alpha, defaults to 0.01
+   * @param biasForMaxAssistAlpha The bias in degrees per second the max alpha is reached at,
+   *     defaults to 1
+   */
+  public void setAssistAlphas(
+      double minAssistAlpha, double maxAssistAlpha, double biasForMaxAssistAlpha) {
+    this.minAssistAlpha = minAssistAlpha;
+    this.maxAssistAlpha = maxAssistAlpha;
+    this.biasForMaxAssistAlpha = biasForMaxAssistAlpha;
+  }
+
+  /**
+   * Sets how much the assist alpha has to change before it is written again.
+   *
+   * @param assistAlphaTolerance The change as a fraction of the current alpha, defaults to 0.25
+   */
+  public void setAssistAlphaTolerance(double assistAlphaTolerance) {
+    this.assistAlphaTolerance = assistAlphaTolerance;
+  }
+
+  /** Updates every camera using the robot's state from the DriverStation. */
+  public void update() {
+    update(DriverStation.isEnabled());
+  }
+
+  /**
+   * Updates every camera. This should be called every loop.
+   *
+   * @param isEnabled True if the robot is enabled, false if it is disabled
+   */
+  public void update(boolean isEnabled) {
+    IMUMode mode = isEnabled ? enabledMode : disabledMode;
+    for (int i = 0; i < cameras.size(); i++) {
+      CameraState camera = cameras.get(i);
+      if (mode != camera.mode) {
+        // The internal IMU was just seeded or stopped being assisted, so old drift doesn't apply
+        if (camera.driftMonitor != null) {
+          camera.driftMonitor.reset();
+        }
+        camera.mode = mode;
+        TigerHelpers.setIMUMode(camera.limelightName, mode);
+      }
+
+      // The assist alpha only affects the assisted modes
+      if (mode != IMUMode.INTERNAL_MT1_ASSISTED && mode != IMUMode.INTERNAL_EXTERNAL_ASSISTED) {
+        continue;
+      }
+      double assistAlpha = chooseAssistAlpha(camera);
+      if (camera.assistAlpha < 0
+          || Math.abs(assistAlpha - camera.assistAlpha)
+              > camera.assistAlpha * assistAlphaTolerance) {
+        camera.assistAlpha = assistAlpha;
+        TigerHelpers.setIMUAssistAlpha(camera.limelightName, assistAlpha);
+      }
+    }
+  }
+
+  /**
+   * Gets the IMU mode currently set for a camera.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return The IMU mode, or null if it hasn't been set yet
+   */
+  public IMUMode getMode(String limelightName) {
+    CameraState camera = getCamera(limelightName);
+    return camera == null ? null : camera.mode;
+  }
+
+  /**
+   * Gets the IMU assist alpha currently set for a camera.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return The assist alpha, or -1 if it hasn't been set yet
+   */
+  public double getAssistAlpha(String limelightName) {
+    CameraState camera = getCamera(limelightName);
+    return camera == null ? -1 : camera.assistAlpha;
+  }
+
+  private double chooseAssistAlpha(CameraState camera) {
+    if (camera.driftMonitor == null) {
+      return minAssistAlpha;
+    }
+    double fraction =
+        MathUtil.clamp(Math.abs(camera.driftMonitor.getBias()) / biasForMaxAssistAlpha, 0, 1);
+    return minAssistAlpha + (maxAssistAlpha - minAssistAlpha) * fraction;
+  }
+
+  private CameraState getCamera(String limelightName) {
+    for (int i = 0; i < cameras.size(); i++) {
+      if (cameras.get(i).limelightName.equals(limelightName)) {
+        return cameras.get(i);
+      }
+    }
+    return null;
+  }
+
+  private static class CameraState {
+    private final String limelightName;
+    private final GyroDriftMonitor driftMonitor;
+    // Starts unset so the first update always writes to NetworkTables
+    private IMUMode mode;
+    private double assistAlpha = -1;
+
+    private CameraState(String limelightName, GyroDriftMonitor driftMonitor) {
+      this.limelightName = limelightName;
+      this.driftMonitor = driftMonitor;
+    }
+  }
+}
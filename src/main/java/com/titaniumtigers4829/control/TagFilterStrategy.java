@@ -0,0 +1,271 @@
+package com.titaniumtigers4829.control;
+
+import com.titaniumtigers4829.TigerHelpers;
+import com.titaniumtigers4829.data.fiducial.TagLayout;
+import com.titaniumtigers4829.data.networktables.NetworkTablesEntries;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Automatically sets the fiducial ID filters of each camera to the april tags that camera should be
+ * able to see from the robot's current pose. Having the Limelight reject tags it doesn't need
+ * reduces its processing time and raises its frame rate.
+ *
+ * <p>A tag is considered relevant to a camera if it is inside the camera's horizontal field of view
+ * (plus a margin), within the max distance, and facing towards the camera. The filters are only
+ * written to NetworkTables when the set of relevant tags changes.
+ */
+public class TagFilterStrategy {
+
+  private final TagLayout tagLayout;
+  private final List<CameraFilter> cameras = new ArrayList<>();
+  private final int wordCount;
+
+  private double fovMarginRadians = Units.degreesToRadians(10);
+  private double maxDistance = Double.POSITIVE_INFINITY;
+  private double maxViewAngleRadians = Units.degreesToRadians(85);
+  private long[] blueAllianceMask;
+  private long[] redAllianceMask;
+
+  /**
+   * Creates a TagFilterStrategy.
+   *
+   * @param fieldLayout The layout of the april tags on the field
+   */
+  public TagFilterStrategy(AprilTagFieldLayout fieldLayout) {
+    this(new TagLayout(fieldLayout));
+  }
+
+  /**
+   * Creates a TagFilterStrategy. Use this if you are sharing a TagLayout between multiple helpers.
+   *
+   * @param tagLayout The layout of the april tags on the field
+   */
+  public TagFilterStrategy(TagLayout tagLayout) {
+    this.tagLayout = tagLayout;
+    this.wordCount = tagLayout.getMaxTagId() / Long.SIZE + 1;
+  }
+
+  /**
+   * Registers a camera to have its filters managed. The pose should be the same values passed to
+   * {@link com.titaniumtigers4829.TigerHelpers#setCameraPoseRobotSpace}.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param forward Forward offset in meters
+   * @param side Side offset in meters
+   * @param yaw Yaw angle in degrees
+   * @param horizontalFov The camera's full horizontal field of view in degrees
+   */
+  public void addCamera(
+      String limelightName, double forward, double side, double yaw, double horizontalFov) {
+    cameras.add(
+        new CameraFilter(
+            limelightName,
+            forward,
+            side,
+            Units.degreesToRadians(yaw),
+            Units.degreesToRadians(horizontalFov) / 2.0,
+            wordCount));
+  }
+
+  /**
+   * Sets the extra angle added to each side of a camera's field of view. This lets tags that are
+   * just about to come into view be detected on the first frame they're visible.
+   *
+   * @param fovMargin The margin in degrees, defaults to 10
+   */
+  public void setFovMargin(double fovMargin) {
+    fovMarginRadians = Units.degreesToRadians(fovMargin);
+  }
+
+  /**
+   * Sets the max distance a tag can be from a camera to be considered relevant.
+   *
+   * @param maxDistance The max distance in meters, defaults to no limit
+   */
+  public void setMaxDistance(double maxDistance) {
+    this.maxDistance = maxDistance;
+  }
+
+  /**
+   * Sets the max angle between a tag's face and the camera for the tag to be considered relevant.
+   * Tags viewed nearly edge on can't be detected reliably.
+   *
+   * @param maxViewAngle The max angle in degrees, defaults to 85
+   */
+  public void setMaxViewAngle(double maxViewAngle) {
+    maxViewAngleRadians = Units.degreesToRadians(maxViewAngle);
+  }
+
+  /**
+   * Restricts the tags that can be used while on an alliance, for example to ignore tags on the
+   * opposing alliance's side of the field. If this isn't set for an alliance, any tag can be used.
+   *
+   * @param alliance The alliance the restriction applies to
+   * @param tagIds The ids of the april tags that can be used
+   */
+  public void setAllianceTagIds(Alliance alliance, int... tagIds) {
+    long[] mask = new long[wordCount];
+    for (int id : tagIds) {
+      if (tagLayout.hasTag(id)) {
+        mask[id / Long.SIZE] |= 1L << id;
+      }
+    }
+    if (alliance == Alliance.Red) {
+      redAllianceMask = mask;
+    } else {
+      blueAllianceMask = mask;
+    }
+  }
+
+  /**
+   * Updates the filters of every camera from the robot's pose, using the alliance from the
+   * DriverStation.
+   *
+   * @param robotPose The robot's pose with the blue-side origin
+   */
+  public void update(Pose2d robotPose) {
+    update(
+        robotPose.getX(),
+        robotPose.getY(),
+        robotPose.getRotation().getDegrees(),
+        DriverStation.getAlliance());
+  }
+
+  /**
+   * Updates the filters of every camera from the robot's pose. NetworkTables is only written to for
+   * cameras whose set of relevant tags changed.
+   *
+   * @param robotX The robot's x position with the blue-side origin in meters
+   * @param robotY The robot's y position with the blue-side origin in meters
+   * @param robotYaw The robot's yaw with the blue-side origin in degrees
+   * @param alliance The robot's alliance, or empty if it isn't known
+   */
+  public void update(double robotX, double robotY, double robotYaw, Optional<Alliance> alliance) {
+    long[] allianceMask = null;
+    if (alliance.isPresent()) {
+      allianceMask = alliance.get() == Alliance.Red ? redAllianceMask : blueAllianceMask;
+    }
+
+    double heading = Units.degreesToRadians(robotYaw);
+    double cos = Math.cos(heading);
+    double sin = Math.sin(heading);
+    for (int i = 0; i < cameras.size(); i++) {
+      CameraFilter camera = cameras.get(i);
+      double cameraX = robotX + camera.forward * cos - camera.side * sin;
+      double cameraY = robotY + camera.forward * sin + camera.side * cos;
+      double cameraHeading = heading + camera.yawRadians;
+      computeVisibleTags(camera, cameraX, cameraY, cameraHeading, allianceMask);
+
+      if (!camera.hasPushed || !isSameSet(camera.visibleTags, camera.pushedTags)) {
+        push(camera);
+      }
+    }
+  }
+
+  /**
+   * Clears the filters on every camera, so every tag can be used again. This should be called when
+   * the robot's pose can't be trusted, such as before it has been localized.
+   */
+  public void reset() {
+    for (int i = 0; i < cameras.size(); i++) {
+      CameraFilter camera = cameras.get(i);
+      for (int word = 0; word < wordCount; word++) {
+        camera.visibleTags[word] = 0;
+      }
+      push(camera);
+    }
+  }
+
+  private void computeVisibleTags(
+      CameraFilter camera,
+      double cameraX,
+      double cameraY,
+      double cameraHeading,
+      long[] allianceMask) {
+    long[] visibleTags = camera.visibleTags;
+    for (int word = 0; word < wordCount; word++) {
+      visibleTags[word] = 0;
+    }
+
+    double maxBearing = camera.halfFovRadians + fovMarginRadians;
+    for (int i = 0; i < tagLayout.getTagCount(); i++) {
+      int id = tagLayout.getTagId(i);
+      if (allianceMask != null && (allianceMask[id / Long.SIZE] & (1L << id)) == 0) {
+        continue;
+      }
+
+      if (tagLayout.isVisibleFrom(
+          id, cameraX, cameraY, cameraHeading, maxBearing, maxDistance, maxViewAngleRadians)) {
+        visibleTags[id / Long.SIZE] |= 1L << id;
+      }
+    }
+  }
+
+  private void push(CameraFilter camera) {
+    int count = 0;
+    for (int word = 0; word < wordCount; word++) {
+      count += Long.bitCount(camera.visibleTags[word]);
+    }
+
+    // An empty filter means every tag can be used, which is the safe fallback if nothing should
+    // be visible
+    double[] validIDs = new double[count];
+    int index = 0;
+    for (int word = 0; word < wordCount; word++) {
+      long bits = camera.visibleTags[word];
+      while (bits != 0) {
+        validIDs[index++] = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+      }
+      camera.pushedTags[word] = camera.visibleTags[word];
+    }
+    camera.hasPushed = true;
+
+    TigerHelpers.getTransport()
+        .writeDoubleArray(
+            camera.limelightName, NetworkTablesEntries.FIDUCIAL_ID_FILTERS_SET, validIDs);
+  }
+
+  private static boolean isSameSet(long[] a, long[] b) {
+    for (int word = 0; word < a.length; word++) {
+      if (a[word] != b[word]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static class CameraFilter {
+    private final String limelightName;
+    private final double forward;
+    private final double side;
+    private final double yawRadians;
+    private final double halfFovRadians;
+    private final long[] visibleTags;
+    private final long[] pushedTags;
+    private boolean hasPushed;
+
+    private CameraFilter(
+        String limelightName,
+        double forward,
+        double side,
+        double yawRadians,
+        double halfFovRadians,
+        int wordCount) {
+      this.limelightName = limelightName;
+      this.forward = forward;
+      this.side = side;
+      this.yawRadians = yawRadians;
+      this.halfFovRadians = halfFovRadians;
+      this.visibleTags = new long[wordCount];
+      this.pushedTags = new long[wordCount];
+    }
+  }
+}
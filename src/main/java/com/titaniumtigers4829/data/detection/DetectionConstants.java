@@ -0,0 +1,10 @@
+package com.titaniumtigers4829.data.detection;
+
+/** Neural detection related constants */
+public class DetectionConstants {
+
+  private DetectionConstants() {}
+
+  public static final int DETECTION_DATA_SIZE = 12;
+  public static final int CORNER_COUNT = 4;
+}
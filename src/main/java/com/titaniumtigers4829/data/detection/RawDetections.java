@@ -0,0 +1,133 @@
+package com.titaniumtigers4829.data.detection;
+
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+
+/**
+ * A view over the Limelight's "rawdetections" array, which has the neural detector's results for
+ * every detection in a frame. Unlike {@link com.titaniumtigers4829.TigerHelpers#getRawFiducials},
+ * no object is created for each detection, the values are read straight out of the array, so one
+ * instance can be reused every frame.
+ *
+ * <p>Each detection is stored as [classId, txnc, tync, ta, corner0X, corner0Y, ..., corner3X,
+ * corner3Y], with the corners in pixels.
+ */
+public class RawDetections {
+
+  private static final double[] EMPTY = new double[0];
+
+  private double[] data = EMPTY;
+  private int count;
+  private double timestampSeconds;
+
+  /**
+   * Points the view at a new "rawdetections" value. If the array's length isn't a multiple of
+   * {@link DetectionConstants#DETECTION_DATA_SIZE}, there are no detections.
+   *
+   * @param rawDetections The "rawdetections" array and the time it was received in microseconds
+   * @return The number of detections
+   */
+  public int update(TimestampedDoubleArray rawDetections) {
+    return update(rawDetections.value, rawDetections.timestamp / 1000000.0);
+  }
+
+  /**
+   * Points the view at a new "rawdetections" array. The array is not copied, so it must not be
+   * modified while it is being viewed.
+   *
+   * @param rawDetections The "rawdetections" array
+   * @param timestampSeconds The time the array was received in seconds
+   * @return The number of detections
+   */
+  public int update(double[] rawDetections, double timestampSeconds) {
+    if (rawDetections == null
+        || rawDetections.length % DetectionConstants.DETECTION_DATA_SIZE != 0) {
+      data = EMPTY;
+      count = 0;
+    } else {
+      data = rawDetections;
+      count = rawDetections.length / DetectionConstants.DETECTION_DATA_SIZE;
+    }
+    this.timestampSeconds = timestampSeconds;
+    return count;
+  }
+
+  /**
+   * Gets the number of detections.
+   *
+   * @return The number of detections
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Gets the time the detections were received.
+   *
+   * @return The timestamp in seconds
+   */
+  public double getTimestampSeconds() {
+    return timestampSeconds;
+  }
+
+  /**
+   * Gets the class index of a detection.
+   *
+   * @param index The index of the detection, less than {@link #getCount()}
+   * @return The class index
+   */
+  public int getClassId(int index) {
+    return (int) data[index * DetectionConstants.DETECTION_DATA_SIZE];
+  }
+
+  /**
+   * Gets the horizontal offset of a detection from the principal pixel.
+   *
+   * @param index The index of the detection, less than {@link #getCount()}
+   * @return Horizontal offset angle in degrees
+   */
+  public double getTXNC(int index) {
+    return data[index * DetectionConstants.DETECTION_DATA_SIZE + 1];
+  }
+
+  /**
+   * Gets the vertical offset of a detection from the principal pixel.
+   *
+   * @param index The index of the detection, less than {@link #getCount()}
+   * @return Vertical offset angle in degrees
+   */
+  public double getTYNC(int index) {
+    return data[index * DetectionConstants.DETECTION_DATA_SIZE + 2];
+  }
+
+  /**
+   * Gets the area of a detection as a percentage of the image.
+   *
+   * @param index The index of the detection, less than {@link #getCount()}
+   * @return Target area percentage (0-100%)
+   */
+  public double getTA(int index) {
+    return data[index * DetectionConstants.DETECTION_DATA_SIZE + 3];
+  }
+
+  /**
+   * Gets the x coordinate of a corner of a detection's bounding box.
+   *
+   * @param index The index of the detection, less than {@link #getCount()}
+   * @param corner The index of the corner, from 0 to 3
+   * @return The x coordinate in pixels
+   */
+  public double getCornerX(int index, int corner) {
+    return data[index * DetectionConstants.DETECTION_DATA_SIZE + 4 + corner * 2];
+  }
+
+  /**
+   * Gets the y coordinate of a corner of a detection's bounding box.
+   *
+   * @param index The index of the detection, less than {@link #getCount()}
+   * @param corner The index of the corner, from 0 to 3
+   * @return The y coordinate in pixels
+   */
+  public double getCornerY(int index, int corner) {
+    return data[index * DetectionConstants.DETECTION_DATA_SIZE + 5 + corner * 2];
+  }
+}
@@ -6,4 +6,5 @@ public class FiducialConstants {
   private FiducialConstants() {}
 
   public static final int FIDUCIAL_DATA_SIZE = 7;
+  public static final int CORNER_DATA_SIZE = 8;
 }
@@ -0,0 +1,458 @@
+package com.titaniumtigers4829.data.fiducial;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.util.Units;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A precomputed table of which april tags each camera can see from anywhere on the field. The
+ * field is split into a grid of x, y, and heading cells, and for every cell and camera the set of
+ * visible tags is stored as a bitset, using {@link TagLayout#isVisibleFrom} like {@link
+ * com.titaniumtigers4829.control.TagFilterStrategy}: a tag is visible if it is inside the camera's
+ * horizontal field of view plus a margin, within the max distance, and facing the camera. Looking
+ * up a pose is then a few multiplications and an array read, instead of checking every tag.
+ *
+ * <p>Building the grid checks every tag from every cell, which can take a few seconds on a
+ * roboRIO, so the grid can be saved to a compressed file and loaded at startup instead. The file
+ * stores the grid's configuration, the tag layout, and the camera poses, and is only loaded if they
+ * all match, so a stale file is never used:
+ *
+ * <pre>{@code
+ * FieldVisibilityGrid grid = new FieldVisibilityGrid(tagLayout, 0.25, 72);
+ * grid.addCamera("limelight-front", 0.3, 0.0, 0.0, 62.5);
+ * Path path = Filesystem.getDeployDirectory().toPath().resolve("visibility.grid");
+ * if (!grid.load(path)) {
+ *   grid.build();
+ *   grid.save(path);
+ * }
+ * }</pre>
+ *
+ * <p>Poses are snapped to the nearest cell, so the field of view margin should cover half a cell
+ * and half a heading step. The grid uses cellCount * cameraCount * (maxTagId / 64 + 1) longs, about
+ * 2.7MB for a 2025 field with 0.25 meter cells, 72 headings, and two cameras. Once built it is
+ * never modified, so it can be read from any thread.
+ */
+public class FieldVisibilityGrid {
+
+  private static final int FILE_MAGIC = 0x54475647;
+  private static final int FILE_VERSION = 1;
+
+  private final TagLayout tagLayout;
+  private final double cellSize;
+  private final int headingCount;
+  private final int xCount;
+  private final int yCount;
+  private final int wordCount;
+  private final double headingStep;
+  private final List<Camera> cameras = new ArrayList<>();
+
+  private double fovMarginRadians = Units.degreesToRadians(10);
+  private double maxDistance = Double.POSITIVE_INFINITY;
+  private double maxViewAngleRadians = Units.degreesToRadians(85);
+
+  private long[] visibleTags;
+
+  /**
+   * Creates an empty FieldVisibilityGrid. Cameras need to be added before it is built or loaded.
+   *
+   * @param tagLayout The layout of the april tags on the field
+   * @param cellSize The width of each cell in meters
+   * @param headingCount The number of headings to split a full rotation into
+   */
+  public FieldVisibilityGrid(TagLayout tagLayout, double cellSize, int headingCount) {
+    this.tagLayout = tagLayout;
+    this.cellSize = cellSize;
+    this.headingCount = headingCount;
+    this.xCount = Math.max(1, (int) Math.ceil(tagLayout.getFieldLength() / cellSize));
+    this.yCount = Math.max(1, (int) Math.ceil(tagLayout.getFieldWidth() / cellSize));
+    this.wordCount = tagLayout.getMaxTagId() / Long.SIZE + 1;
+    this.headingStep = 2 * Math.PI / headingCount;
+  }
+
+  /**
+   * Adds a camera to the grid. The pose should be the same values passed to {@link
+   * com.titaniumtigers4829.TigerHelpers#setCameraPoseRobotSpace}.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param forward Forward offset in meters
+   * @param side Side offset in meters
+   * @param yaw Yaw angle in degrees
+   * @param horizontalFov The camera's full horizontal field of view in degrees
+   * @return The index of the camera, for use with the lookup methods
+   */
+  public int addCamera(
+      String limelightName, double forward, double side, double yaw, double horizontalFov) {
+    cameras.add(
+        new Camera(
+            limelightName,
+            forward,
+            side,
+            Units.degreesToRadians(yaw),
+            Units.degreesToRadians(horizontalFov) / 2.0));
+    visibleTags = null;
+    return cameras.size() - 1;
+  }
+
+  /**
+   * Sets the extra angle added to each side of a camera's field of view.
+   *
+   * @param fovMargin The margin in degrees, defaults to 10
+   */
+  public void setFovMargin(double fovMargin) {
+    fovMarginRadians = Units.degreesToRadians(fovMargin);
+    visibleTags = null;
+  }
+
+  /**
+   * Sets the max distance a tag can be from a camera to be visible.
+   *
+   * @param maxDistance The max distance in meters, defaults to no limit
+   */
+  public void setMaxDistance(double maxDistance) {
+    this.maxDistance = maxDistance;
+    visibleTags = null;
+  }
+
+  /**
+   * Sets the max angle between a tag's face and the camera for the tag to be visible.
+   *
+   * @param maxViewAngle The max angle in degrees, defaults to 85
+   */
+  public void setMaxViewAngle(double maxViewAngle) {
+    maxViewAngleRadians = Units.degreesToRadians(maxViewAngle);
+    visibleTags = null;
+  }
+
+  /** Computes the visible tags for every cell and camera. */
+  public void build() {
+    if (cameras.isEmpty()) {
+      throw new IllegalStateException("Cameras must be added before the grid is built");
+    }
+
+    int cameraCount = cameras.size();
+    long[] grid = new long[xCount * yCount * headingCount * cameraCount * wordCount];
+    for (int xi = 0; xi < xCount; xi++) {
+      double robotX = (xi + 0.5) * cellSize;
+      for (int yi = 0; yi < yCount; yi++) {
+        double robotY = (yi + 0.5) * cellSize;
+        for (int hi = 0; hi < headingCount; hi++) {
+          double heading = hi * headingStep;
+          double cos = Math.cos(heading);
+          double sin = Math.sin(heading);
+          int cell = (xi * yCount + yi) * headingCount + hi;
+          for (int c = 0; c < cameraCount; c++) {
+            Camera camera = cameras.get(c);
+            computeVisibleTags(
+                grid,
+                (cell * cameraCount + c) * wordCount,
+                robotX + camera.forward * cos - camera.side * sin,
+                robotY + camera.forward * sin + camera.side * cos,
+                heading + camera.yawRadians,
+                camera.halfFovRadians);
+          }
+        }
+      }
+    }
+    visibleTags = grid;
+  }
+
+  /**
+   * Gets if the grid has been built or loaded.
+   *
+   * @return True if the grid can be used, false otherwise
+   */
+  public boolean isBuilt() {
+    return visibleTags != null;
+  }
+
+  /**
+   * Gets the index of a camera from its name.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return The index of the camera, or -1 if it was never added
+   */
+  public int indexOf(String limelightName) {
+    for (int i = 0; i < cameras.size(); i++) {
+      if (cameras.get(i).limelightName.equals(limelightName)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the cell a robot pose is in. Use this with {@link #isVisible(int, int, int)} when checking
+   * many tags or cameras from the same pose.
+   *
+   * @param robotX The robot's x position with the blue-side origin in meters
+   * @param robotY The robot's y position with the blue-side origin in meters
+   * @param robotYaw The robot's yaw with the blue-side origin in degrees
+   * @return The index of the cell
+   */
+  public int getCell(double robotX, double robotY, double robotYaw) {
+    int xi = MathUtil.clamp((int) Math.floor(robotX / cellSize), 0, xCount - 1);
+    int yi = MathUtil.clamp((int) Math.floor(robotY / cellSize), 0, yCount - 1);
+    int hi = (int) Math.round(Units.degreesToRadians(robotYaw) / headingStep) % headingCount;
+    if (hi < 0) {
+      hi += headingCount;
+    }
+    return (xi * yCount + yi) * headingCount + hi;
+  }
+
+  /**
+   * Gets if a tag is visible to a camera from a cell.
+   *
+   * @param cell The index of the cell from {@link #getCell(double, double, double)}
+   * @param cameraIndex The index of the camera
+   * @param tagId The id of the april tag
+   * @return True if the tag is visible, false otherwise or if the grid hasn't been built
+   */
+  public boolean isVisible(int cell, int cameraIndex, int tagId) {
+    if (visibleTags == null || tagId < 0 || tagId / Long.SIZE >= wordCount) {
+      return false;
+    }
+    int base = (cell * cameras.size() + cameraIndex) * wordCount;
+    return (visibleTags[base + tagId / Long.SIZE] & (1L << tagId)) != 0;
+  }
+
+  /**
+   * Gets if a tag is visible to a camera from a robot pose.
+   *
+   * @param cameraIndex The index of the camera
+   * @param robotX The robot's x position with the blue-side origin in meters
+   * @param robotY The robot's y position with the blue-side origin in meters
+   * @param robotYaw The robot's yaw with the blue-side origin in degrees
+   * @param tagId The id of the april tag
+   * @return True if the tag is visible, false otherwise or if the grid hasn't been built
+   */
+  public boolean isVisible(
+      int cameraIndex, double robotX, double robotY, double robotYaw, int tagId) {
+    return isVisible(getCell(robotX, robotY, robotYaw), cameraIndex, tagId);
+  }
+
+  /**
+   * Copies the bitset of tags visible to a camera from a robot pose. Tag id n is bit n % 64 of
+   * word n / 64.
+   *
+   * @param cameraIndex The index of the camera
+   * @param robotX The robot's x position with the blue-side origin in meters
+   * @param robotY The robot's y position with the blue-side origin in meters
+   * @param robotYaw The robot's yaw with the blue-side origin in degrees
+   * @param result The array to copy the bitset to, at least {@link #getWordCount()} long
+   */
+  public void getVisibleTags(
+      int cameraIndex, double robotX, double robotY, double robotYaw, long[] result) {
+    if (visibleTags == null) {
+      for (int word = 0; word < wordCount; word++) {
+        result[word] = 0;
+      }
+      return;
+    }
+    int cell = getCell(robotX, robotY, robotYaw);
+    System.arraycopy(
+        visibleTags, (cell * cameras.size() + cameraIndex) * wordCount, result, 0, wordCount);
+  }
+
+  /**
+   * Writes the ids of the tags visible to a camera from a robot pose.
+   *
+   * @param cameraIndex The index of the camera
+   * @param robotX The robot's x position with the blue-side origin in meters
+   * @param robotY The robot's y position with the blue-side origin in meters
+   * @param robotYaw The robot's yaw with the blue-side origin in degrees
+   * @param result The array to write the ids to, which should fit every tag in the layout
+   * @return The number of ids written
+   */
+  public int getVisibleTagIds(
+      int cameraIndex, double robotX, double robotY, double robotYaw, int[] result) {
+    if (visibleTags == null) {
+      return 0;
+    }
+    int base = (getCell(robotX, robotY, robotYaw) * cameras.size() + cameraIndex) * wordCount;
+    int count = 0;
+    for (int word = 0; word < wordCount; word++) {
+      long bits = visibleTags[base + word];
+      while (bits != 0 && count < result.length) {
+        result[count++] = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Gets the number of longs in each bitset.
+   *
+   * @return The number of words
+   */
+  public int getWordCount() {
+    return wordCount;
+  }
+
+  /**
+   * Saves the grid to a compressed file, along with everything it was built from.
+   *
+   * @param path The file to save to
+   * @throws IOException If the file can't be written
+   * @throws IllegalStateException If the grid hasn't been built
+   */
+  public void save(Path path) throws IOException {
+    if (visibleTags == null) {
+      throw new IllegalStateException("The grid must be built before it is saved");
+    }
+    try (DataOutputStream out =
+        new DataOutputStream(
+            new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(path))))) {
+      out.writeInt(FILE_MAGIC);
+      out.writeInt(FILE_VERSION);
+      writeConfiguration(out);
+      out.writeInt(visibleTags.length);
+      for (long word : visibleTags) {
+        out.writeLong(word);
+      }
+    }
+  }
+
+  /**
+   * Loads a grid saved with {@link #save(Path)}. The file is only used if it was built with the
+   * same cells, tag layout, cameras, and settings as this grid.
+   *
+   * @param path The file to load from
+   * @return True if the grid was loaded, false if the file doesn't exist or doesn't match
+   * @throws IOException If the file exists but can't be read
+   */
+  public boolean load(Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return false;
+    }
+    try (DataInputStream in =
+        new DataInputStream(
+            new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))))) {
+      if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION || !readConfiguration(in)) {
+        return false;
+      }
+      int length = in.readInt();
+      if (length != xCount * yCount * headingCount * cameras.size() * wordCount) {
+        return false;
+      }
+      long[] grid = new long[length];
+      for (int i = 0; i < length; i++) {
+        grid[i] = in.readLong();
+      }
+      visibleTags = grid;
+      return true;
+    }
+  }
+
+  private void computeVisibleTags(
+      long[] grid,
+      int base,
+      double cameraX,
+      double cameraY,
+      double cameraHeading,
+      double halfFovRadians) {
+    double maxBearing = halfFovRadians + fovMarginRadians;
+    for (int i = 0; i < tagLayout.getTagCount(); i++) {
+      int id = tagLayout.getTagId(i);
+      if (tagLayout.isVisibleFrom(
+          id, cameraX, cameraY, cameraHeading, maxBearing, maxDistance, maxViewAngleRadians)) {
+        grid[base + id / Long.SIZE] |= 1L << id;
+      }
+    }
+  }
+
+  private void writeConfiguration(DataOutputStream out) throws IOException {
+    out.writeDouble(cellSize);
+    out.writeInt(headingCount);
+    out.writeInt(xCount);
+    out.writeInt(yCount);
+    out.writeInt(wordCount);
+    out.writeDouble(fovMarginRadians);
+    out.writeDouble(maxDistance);
+    out.writeDouble(maxViewAngleRadians);
+    out.writeInt(tagLayout.getTagCount());
+    for (int i = 0; i < tagLayout.getTagCount(); i++) {
+      int id = tagLayout.getTagId(i);
+      out.writeInt(id);
+      out.writeDouble(tagLayout.getX(id));
+      out.writeDouble(tagLayout.getY(id));
+      out.writeDouble(tagLayout.getYaw(id));
+    }
+    out.writeInt(cameras.size());
+    for (Camera camera : cameras) {
+      out.writeUTF(camera.limelightName);
+      out.writeDouble(camera.forward);
+      out.writeDouble(camera.side);
+      out.writeDouble(camera.yawRadians);
+      out.writeDouble(camera.halfFovRadians);
+    }
+  }
+
+  /** Reads a configuration and checks if it is the same as this grid's. */
+  private boolean readConfiguration(DataInputStream in) throws IOException {
+    if (in.readDouble() != cellSize
+        || in.readInt() != headingCount
+        || in.readInt() != xCount
+        || in.readInt() != yCount
+        || in.readInt() != wordCount
+        || in.readDouble() != fovMarginRadians
+        || in.readDouble() != maxDistance
+        || in.readDouble() != maxViewAngleRadians
+        || in.readInt() != tagLayout.getTagCount()) {
+      return false;
+    }
+    for (int i = 0; i < tagLayout.getTagCount(); i++) {
+      int id = tagLayout.getTagId(i);
+      if (in.readInt() != id
+          || in.readDouble() != tagLayout.getX(id)
+          || in.readDouble() != tagLayout.getY(id)
+          || in.readDouble() != tagLayout.getYaw(id)) {
+        return false;
+      }
+    }
+    if (in.readInt() != cameras.size()) {
+      return false;
+    }
+    for (Camera camera : cameras) {
+      if (!in.readUTF().equals(camera.limelightName)
+          || in.readDouble() != camera.forward
+          || in.readDouble() != camera.side
+          || in.readDouble() != camera.yawRadians
+          || in.readDouble() != camera.halfFovRadians) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static class Camera {
+    private final String limelightName;
+    private final double forward;
+    private final double side;
+    private final double yawRadians;
+    private final double halfFovRadians;
+
+    private Camera(
+        String limelightName,
+        double forward,
+        double side,
+        double yawRadians,
+        double halfFovRadians) {
+      this.limelightName = limelightName;
+      this.forward = forward;
+      this.side = side;
+      this.yawRadians = yawRadians;
+      this.halfFovRadians = halfFovRadians;
+    }
+  }
+}
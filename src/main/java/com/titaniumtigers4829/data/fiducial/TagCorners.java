@@ -0,0 +1,142 @@
+package com.titaniumtigers4829.data.fiducial;
+
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+
+/**
+ * A view over the Limelight's "tcornxy" array, which has the pixel coordinates of every april
+ * tag's four corners, paired with the ids from "rawfiducials". The values are read straight out of
+ * the arrays, so one instance can be reused every frame. Corners are only published when "send
+ * contours" is enabled in the pipeline.
+ *
+ * <p>The corners are grouped four to a tag, [x0, y0, x1, y1, x2, y2, x3, y3], in the same order as
+ * the tags in "rawfiducials". To feed a custom solver, the corners can be undistorted in one pass
+ * with {@link com.titaniumtigers4829.estimation.CameraIntrinsics#undistort(TagCorners, double[],
+ * int)}.
+ */
+public class TagCorners {
+
+  private static final double[] EMPTY = new double[0];
+
+  // The Limelight publishes both arrays for a frame at nearly the same time, and frames are at
+  // least several milliseconds apart, so arrays published further apart are from different frames
+  private static final long MAX_FRAME_SKEW_MICROS = 1000;
+
+  private double[] corners = EMPTY;
+  private double[] rawFiducials = EMPTY;
+  private int tagCount;
+  private boolean hasIds;
+
+  /**
+   * Points the view at new arrays. The arrays are not copied, so they must not be modified while
+   * they are being viewed. If the number of tags in the arrays doesn't match, which happens when
+   * they were read from different frames, the corners can still be used but the ids are unknown.
+   *
+   * @param tcornxy The "tcornxy" array
+   * @param rawFiducials The "rawfiducials" array
+   * @return The number of tags
+   */
+  public int update(double[] tcornxy, double[] rawFiducials) {
+    if (tcornxy == null || tcornxy.length % FiducialConstants.CORNER_DATA_SIZE != 0) {
+      corners = EMPTY;
+      tagCount = 0;
+    } else {
+      corners = tcornxy;
+      tagCount = tcornxy.length / FiducialConstants.CORNER_DATA_SIZE;
+    }
+    this.rawFiducials = rawFiducials == null ? EMPTY : rawFiducials;
+    hasIds = this.rawFiducials.length == tagCount * FiducialConstants.FIDUCIAL_DATA_SIZE;
+    return tagCount;
+  }
+
+  /**
+   * Points the view at new arrays, only pairing the corners with ids if both arrays were published
+   * for the same frame. Two frames in a row can have the same number of tags but different tags,
+   * so checking the lengths alone isn't enough.
+   *
+   * @param tcornxy The "tcornxy" array read atomically with its timestamps
+   * @param rawFiducials The "rawfiducials" array read atomically with its timestamps
+   * @return The number of tags
+   */
+  public int update(TimestampedDoubleArray tcornxy, TimestampedDoubleArray rawFiducials) {
+    int count = update(tcornxy.value, rawFiducials.value);
+    if (Math.abs(tcornxy.serverTime - rawFiducials.serverTime) > MAX_FRAME_SKEW_MICROS) {
+      hasIds = false;
+    }
+    return count;
+  }
+
+  /**
+   * Gets the number of tags.
+   *
+   * @return The number of tags
+   */
+  public int getTagCount() {
+    return tagCount;
+  }
+
+  /**
+   * Gets if the tag ids are known.
+   *
+   * @return True if the ids are known, false if the arrays were from different frames
+   */
+  public boolean hasIds() {
+    return hasIds;
+  }
+
+  /**
+   * Gets the id of a tag.
+   *
+   * @param index The index of the tag, less than {@link #getTagCount()}
+   * @return The id of the tag, or -1 if the ids are unknown
+   */
+  public int getTagId(int index) {
+    return hasIds ? (int) rawFiducials[index * FiducialConstants.FIDUCIAL_DATA_SIZE] : -1;
+  }
+
+  /**
+   * Gets the index of a tag from its id.
+   *
+   * @param tagId The id of the tag
+   * @return The index of the tag, or -1 if it isn't in view or the ids are unknown
+   */
+  public int indexOf(int tagId) {
+    for (int i = 0; i < tagCount; i++) {
+      if (getTagId(i) == tagId) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the x coordinate of a tag's corner.
+   *
+   * @param index The index of the tag, less than {@link #getTagCount()}
+   * @param corner The index of the corner, from 0 to 3
+   * @return The x coordinate in pixels
+   */
+  public double getCornerX(int index, int corner) {
+    return corners[index * FiducialConstants.CORNER_DATA_SIZE + corner * 2];
+  }
+
+  /**
+   * Gets the y coordinate of a tag's corner.
+   *
+   * @param index The index of the tag, less than {@link #getTagCount()}
+   * @param corner The index of the corner, from 0 to 3
+   * @return The y coordinate in pixels
+   */
+  public double getCornerY(int index, int corner) {
+    return corners[index * FiducialConstants.CORNER_DATA_SIZE + corner * 2 + 1];
+  }
+
+  /**
+   * Gets the "tcornxy" array being viewed, for passing every corner to a solver at once. This
+   * should not be modified.
+   *
+   * @return The corners, [x0, y0, x1, y1, ...] for each tag
+   */
+  public double[] getRawCorners() {
+    return corners;
+  }
+}
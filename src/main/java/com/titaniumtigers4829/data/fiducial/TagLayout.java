@@ -0,0 +1,197 @@
+package com.titaniumtigers4829.data.fiducial;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose3d;
+import java.util.List;
+
+/**
+ * A flattened copy of an {@link AprilTagFieldLayout} stored in primitive arrays indexed by tag id.
+ * Looking up a tag in an AprilTagFieldLayout allocates an Optional and walks the tag list, this
+ * does neither, so it is safe to use for every tag on every loop.
+ */
+public class TagLayout {
+
+  private final int[] tagIds;
+  private final boolean[] hasTag;
+  private final double[] x;
+  private final double[] y;
+  private final double[] z;
+  private final double[] yaw;
+  private final double fieldLength;
+  private final double fieldWidth;
+
+  /**
+   * Creates a TagLayout from an AprilTagFieldLayout.
+   *
+   * @param fieldLayout The field layout to copy the tag poses from
+   */
+  public TagLayout(AprilTagFieldLayout fieldLayout) {
+    List<AprilTag> tags = fieldLayout.getTags();
+    int maxId = 0;
+    for (AprilTag tag : tags) {
+      maxId = Math.max(maxId, tag.ID);
+    }
+
+    tagIds = new int[tags.size()];
+    hasTag = new boolean[maxId + 1];
+    x = new double[maxId + 1];
+    y = new double[maxId + 1];
+    z = new double[maxId + 1];
+    yaw = new double[maxId + 1];
+    for (int i = 0; i < tags.size(); i++) {
+      AprilTag tag = tags.get(i);
+      Pose3d pose = tag.pose;
+      tagIds[i] = tag.ID;
+      hasTag[tag.ID] = true;
+      x[tag.ID] = pose.getX();
+      y[tag.ID] = pose.getY();
+      z[tag.ID] = pose.getZ();
+      yaw[tag.ID] = pose.getRotation().getZ();
+    }
+    fieldLength = fieldLayout.getFieldLength();
+    fieldWidth = fieldLayout.getFieldWidth();
+  }
+
+  /**
+   * Gets if a tag with the given id is in the layout.
+   *
+   * @param id The id of the april tag
+   * @return True if the tag is in the layout, false otherwise
+   */
+  public boolean hasTag(int id) {
+    return id >= 0 && id < hasTag.length && hasTag[id];
+  }
+
+  /**
+   * Gets the x position of a tag on the field in meters. Only valid if {@link #hasTag(int)} is
+   * true.
+   *
+   * @param id The id of the april tag
+   * @return The x position in meters
+   */
+  public double getX(int id) {
+    return x[id];
+  }
+
+  /**
+   * Gets the y position of a tag on the field in meters. Only valid if {@link #hasTag(int)} is
+   * true.
+   *
+   * @param id The id of the april tag
+   * @return The y position in meters
+   */
+  public double getY(int id) {
+    return y[id];
+  }
+
+  /**
+   * Gets the height of a tag off the floor in meters. Only valid if {@link #hasTag(int)} is true.
+   *
+   * @param id The id of the april tag
+   * @return The z position in meters
+   */
+  public double getZ(int id) {
+    return z[id];
+  }
+
+  /**
+   * Gets the direction a tag is facing on the field in radians. Only valid if {@link
+   * #hasTag(int)} is true.
+   *
+   * @param id The id of the april tag
+   * @return The yaw in radians
+   */
+  public double getYaw(int id) {
+    return yaw[id];
+  }
+
+  /**
+   * Gets the number of tags in the layout.
+   *
+   * @return The number of tags
+   */
+  public int getTagCount() {
+    return tagIds.length;
+  }
+
+  /**
+   * Gets the id of the tag at the given index. Use this with {@link #getTagCount()} to iterate
+   * over every tag in the layout.
+   *
+   * @param index The index of the tag, from 0 to getTagCount() - 1
+   * @return The id of the tag
+   */
+  public int getTagId(int index) {
+    return tagIds[index];
+  }
+
+  /**
+   * Gets the largest tag id that can be stored in the layout. Arrays indexed by tag id should be
+   * this plus one long.
+   *
+   * @return The largest tag id
+   */
+  public int getMaxTagId() {
+    return hasTag.length - 1;
+  }
+
+  /**
+   * Gets the length of the field in meters.
+   *
+   * @return The field length in meters
+   */
+  public double getFieldLength() {
+    return fieldLength;
+  }
+
+  /**
+   * Gets the width of the field in meters.
+   *
+   * @return The field width in meters
+   */
+  public double getFieldWidth() {
+    return fieldWidth;
+  }
+
+  /**
+   * Gets if a tag could be seen by a camera at a point on the field. The tag has to be close
+   * enough, inside the camera's field of view, and facing the camera closely enough for its
+   * corners to be detected. Nothing that could block the tag is checked.
+   *
+   * @param id The id of the april tag, which must be in the layout
+   * @param cameraX The camera's x position on the field in meters
+   * @param cameraY The camera's y position on the field in meters
+   * @param cameraHeading The direction the camera is facing on the field in radians
+   * @param maxBearing The max angle between the camera's heading and the tag in radians, which is
+   *     half the camera's horizontal fov plus any margin
+   * @param maxDistance The max distance to the tag in meters
+   * @param maxViewAngle The max angle between the tag's normal and the line to the camera in
+   *     radians
+   * @return True if the tag passes every check, false otherwise
+   */
+  public boolean isVisibleFrom(
+      int id,
+      double cameraX,
+      double cameraY,
+      double cameraHeading,
+      double maxBearing,
+      double maxDistance,
+      double maxViewAngle) {
+    double dx = x[id] - cameraX;
+    double dy = y[id] - cameraY;
+    if (dx * dx + dy * dy > maxDistance * maxDistance) {
+      return false;
+    }
+
+    double angleToTag = Math.atan2(dy, dx);
+    if (Math.abs(MathUtil.angleModulus(angleToTag - cameraHeading)) > maxBearing) {
+      return false;
+    }
+
+    // The tag faces the camera if its normal points back along the line to the camera
+    double viewAngle = MathUtil.angleModulus(angleToTag + Math.PI - yaw[id]);
+    return Math.abs(viewAngle) <= maxViewAngle;
+  }
+}
@@ -6,4 +6,16 @@ public class IMUDataConstants {
   private IMUDataConstants() {}
 
   public static final int IMU_DATA_SIZE = 10;
+
+  // Indexes of each value in the "imu" array
+  public static final int ROBOT_YAW = 0;
+  public static final int ROLL = 1;
+  public static final int PITCH = 2;
+  public static final int YAW = 3;
+  public static final int GYRO_X = 4;
+  public static final int GYRO_Y = 5;
+  public static final int GYRO_Z = 6;
+  public static final int ACCEL_X = 7;
+  public static final int ACCEL_Y = 8;
+  public static final int ACCEL_Z = 9;
 }
@@ -17,17 +17,25 @@ public class NetworkTablesEntries {
   public static final String CL = "cl";
   public static final String CROP = "crop";
   public static final String IMU = "imu";
+  public static final String JSON = "json";
   public static final String IMU_ASSIST_ALPHA_SET = "imuassistalpha_set";
   public static final String IMU_MODE_SET = "imumode_set";
   public static final String FIDUCIAL_DOWNSCALE_SET = "fiducial_downscale_set";
   public static final String FIDUCIAL_ID_FILTERS_SET = "fiducial_id_filters_set";
   public static final String FIDUCIAL_OFFSET_SET = "fiducial_offset_set";
+  public static final String HB = "hb";
+  public static final String HW = "hw";
   public static final String PRIORITY_ID = "priorityid";
+  public static final String RAW_DETECTIONS = "rawdetections";
   public static final String RAW_FIDUCIALS = "rawfiducials";
   public static final String ROBOT_ORIENTATION_SET = "robot_orientation_set";
   public static final String TARGETPOSE_CAMERASPACE = "targetpose_cameraspace";
   public static final String TARGETPOSE_ROBOTSPACE = "targetpose_robotspace";
   public static final String THROTTLE_SET = "throttle_set";
+  public static final String T2D = "t2d";
+  public static final String TCCLASS = "tcclass";
+  public static final String TCORNXY = "tcornxy";
+  public static final String TDCLASS = "tdclass";
   public static final String TA = "ta";
   public static final String TID = "tid";
   public static final String TL = "tl";
@@ -0,0 +1,222 @@
+package com.titaniumtigers4829.data.pose;
+
+import com.titaniumtigers4829.data.fiducial.RawFiducial;
+import com.titaniumtigers4829.utils.DataUtils;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+
+/**
+ * A pose estimate that keeps a reference to the raw botpose array and only decodes what is used.
+ * The header values are read straight from the array, and the {@link Pose2d} and {@link
+ * RawFiducial} array are only created the first time they are asked for, then reused. Most loops
+ * only need the pose, timestamp, and tag count, so this skips creating a RawFiducial for every tag
+ * in every frame like {@link PoseEstimate} does.
+ *
+ * <p>The array must not be modified after it is passed in. Arrays read from NetworkTables are never
+ * reused, so this is only a concern for arrays created by the caller. This isn't thread safe, so an
+ * estimate should only be used from one thread.
+ */
+public final class LazyPoseEstimate {
+
+  private static final double[] EMPTY = new double[0];
+
+  private final double[] poseArray;
+  private final long timestampMicroseconds;
+  private final Botpose botpose;
+
+  private Pose2d pose;
+  private RawFiducial[] rawFiducials;
+
+  /**
+   * Creates a lazy pose estimate from a botpose array that has already been read.
+   *
+   * @param tsValue The botpose array and the time it was received in microseconds
+   * @param botpose The botpose type the array was read from
+   */
+  public LazyPoseEstimate(TimestampedDoubleArray tsValue, Botpose botpose) {
+    this(tsValue.value, tsValue.timestamp, botpose);
+  }
+
+  /**
+   * Creates a lazy pose estimate from a botpose array.
+   *
+   * @param poseArray The botpose array, which is not copied
+   * @param timestampMicroseconds The time the array was received in microseconds
+   * @param botpose The botpose type the array was read from
+   */
+  public LazyPoseEstimate(double[] poseArray, long timestampMicroseconds, Botpose botpose) {
+    this.poseArray = poseArray == null ? EMPTY : poseArray;
+    this.timestampMicroseconds = timestampMicroseconds;
+    this.botpose = botpose;
+  }
+
+  /**
+   * Gets the estimated 2D pose of the robot. This is created the first time it is called.
+   *
+   * @return The pose, or an empty pose if the array is too short
+   */
+  public Pose2d getPose() {
+    if (pose == null) {
+      pose = DataUtils.toPose2D(poseArray);
+    }
+    return pose;
+  }
+
+  /**
+   * Gets the x position of the robot without creating a pose.
+   *
+   * @return The x position in meters
+   */
+  public double getX() {
+    return DataUtils.extractArrayEntry(poseArray, 0);
+  }
+
+  /**
+   * Gets the y position of the robot without creating a pose.
+   *
+   * @return The y position in meters
+   */
+  public double getY() {
+    return DataUtils.extractArrayEntry(poseArray, 1);
+  }
+
+  /**
+   * Gets the yaw of the robot without creating a pose.
+   *
+   * @return The yaw in degrees
+   */
+  public double getYawDegrees() {
+    return DataUtils.extractArrayEntry(poseArray, 5);
+  }
+
+  /**
+   * Gets the timestamp of the pose estimate, which is the time it was received minus its latency.
+   *
+   * @return The timestamp in seconds, or 0 if the array is empty
+   */
+  public double getTimestampSeconds() {
+    if (poseArray.length == 0) {
+      return 0;
+    }
+    // Matches DataUtils.unpackBotPoseEstimate
+    return (timestampMicroseconds / 1000000.0) - (getLatency() / 1000.0);
+  }
+
+  /**
+   * Gets the latency of the pose estimate.
+   *
+   * @return The latency in milliseconds
+   */
+  public double getLatency() {
+    return DataUtils.extractArrayEntry(poseArray, 6);
+  }
+
+  /**
+   * Gets the number of april tags used to calculate the pose estimate.
+   *
+   * @return The number of tags
+   */
+  public int getTagCount() {
+    return (int) DataUtils.extractArrayEntry(poseArray, 7);
+  }
+
+  /**
+   * Gets the max distance between april tags used to calculate the pose estimate.
+   *
+   * @return The tag span in meters
+   */
+  public double getTagSpan() {
+    return DataUtils.extractArrayEntry(poseArray, 8);
+  }
+
+  /**
+   * Gets the average distance between the Limelight and the april tags used to calculate the pose
+   * estimate.
+   *
+   * @return The average distance in meters
+   */
+  public double getAvgTagDist() {
+    return DataUtils.extractArrayEntry(poseArray, 9);
+  }
+
+  /**
+   * Gets the average area of the april tags used to calculate the pose estimate.
+   *
+   * @return The average area as a percentage of the image
+   */
+  public double getAvgTagArea() {
+    return DataUtils.extractArrayEntry(poseArray, 10);
+  }
+
+  /**
+   * Gets the fiducials used to calculate the pose estimate. These are created the first time this
+   * is called.
+   *
+   * @return The fiducials, which are null if the array's length doesn't match the tag count
+   */
+  public RawFiducial[] getRawFiducials() {
+    if (rawFiducials == null) {
+      rawFiducials = DataUtils.unpackRawFiducials(poseArray, getTagCount());
+    }
+    return rawFiducials;
+  }
+
+  /**
+   * Gets if the pose estimate is calculated using MegaTag2.
+   *
+   * @return True if using MegaTag2, false if using MegaTag1
+   */
+  public boolean isMegaTag2() {
+    return botpose.isMegaTag2();
+  }
+
+  /**
+   * Gets the botpose type the pose estimate was read from.
+   *
+   * @return The botpose type
+   */
+  public Botpose getBotpose() {
+    return botpose;
+  }
+
+  /**
+   * Gets the raw botpose array. This should not be modified.
+   *
+   * @return The botpose array
+   */
+  public double[] getRawArray() {
+    return poseArray;
+  }
+
+  /**
+   * Checks if the pose estimate is valid, meaning it has data from at least one april tag. Unlike
+   * {@link PoseEstimate#isValidPoseEstimate()}, this doesn't need the fiducials to be created.
+   *
+   * @return True if the pose estimate is valid, false otherwise
+   */
+  public boolean isValidPoseEstimate() {
+    return getTagCount() > 0;
+  }
+
+  /**
+   * Creates a full {@link PoseEstimate} with every value decoded.
+   *
+   * @return The PoseEstimate, or an empty PoseEstimate if the array is empty
+   */
+  public PoseEstimate toPoseEstimate() {
+    if (poseArray.length == 0) {
+      return new PoseEstimate();
+    }
+    return new PoseEstimate(
+        getPose(),
+        getTimestampSeconds(),
+        getLatency(),
+        getTagCount(),
+        getTagSpan(),
+        getAvgTagDist(),
+        getAvgTagArea(),
+        getRawFiducials(),
+        isMegaTag2(),
+        botpose);
+  }
+}
@@ -0,0 +1,47 @@
+package com.titaniumtigers4829.data.results;
+
+/**
+ * One result from the "Classifier" section of the Limelight's JSON results. Instances are owned by
+ * a {@link LimelightResults} and overwritten every time it is parsed into, so values that need to
+ * be kept should be copied out.
+ */
+public class ClassifierResult {
+
+  int classId;
+  String className = "";
+  double confidence;
+
+  void clear() {
+    classId = 0;
+    className = "";
+    confidence = 0;
+  }
+
+  /**
+   * Gets the class index of the result.
+   *
+   * @return The class index
+   */
+  public int getClassId() {
+    return classId;
+  }
+
+  /**
+   * Gets the class name of the result. Names are cached by class index, so this doesn't allocate a
+   * new string every frame.
+   *
+   * @return The class name
+   */
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * Gets the classifier's confidence in the result.
+   *
+   * @return The confidence, from 0 to 1
+   */
+  public double getConfidence() {
+    return confidence;
+  }
+}
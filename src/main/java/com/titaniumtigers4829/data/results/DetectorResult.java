@@ -0,0 +1,134 @@
+package com.titaniumtigers4829.data.results;
+
+/**
+ * One detection from the "Detector" section of the Limelight's JSON results. Instances are owned
+ * by a {@link LimelightResults} and overwritten every time it is parsed into, so values that need
+ * to be kept should be copied out.
+ */
+public class DetectorResult {
+
+  int classId;
+  String className = "";
+  double confidence;
+  double tx;
+  double ty;
+  double txPixels;
+  double tyPixels;
+  double ta;
+  final double[] corners = new double[ResultsConstants.MAX_CORNERS * 2];
+  int cornerCount;
+
+  void clear() {
+    classId = 0;
+    className = "";
+    confidence = 0;
+    tx = 0;
+    ty = 0;
+    txPixels = 0;
+    tyPixels = 0;
+    ta = 0;
+    cornerCount = 0;
+  }
+
+  /**
+   * Gets the class index of the detection.
+   *
+   * @return The class index
+   */
+  public int getClassId() {
+    return classId;
+  }
+
+  /**
+   * Gets the class name of the detection. Names are cached by class index, so this doesn't
+   * allocate a new string every frame.
+   *
+   * @return The class name
+   */
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * Gets the detector's confidence in the detection.
+   *
+   * @return The confidence, from 0 to 1
+   */
+  public double getConfidence() {
+    return confidence;
+  }
+
+  /**
+   * Gets the horizontal offset from the crosshair to the detection.
+   *
+   * @return Horizontal offset angle in degrees
+   */
+  public double getTX() {
+    return tx;
+  }
+
+  /**
+   * Gets the vertical offset from the crosshair to the detection.
+   *
+   * @return Vertical offset angle in degrees
+   */
+  public double getTY() {
+    return ty;
+  }
+
+  /**
+   * Gets the horizontal position of the detection in the image.
+   *
+   * @return The horizontal position in pixels
+   */
+  public double getTXPixels() {
+    return txPixels;
+  }
+
+  /**
+   * Gets the vertical position of the detection in the image.
+   *
+   * @return The vertical position in pixels
+   */
+  public double getTYPixels() {
+    return tyPixels;
+  }
+
+  /**
+   * Gets the detection's area as a percentage of the image.
+   *
+   * @return Target area percentage (0-100%)
+   */
+  public double getTA() {
+    return ta;
+  }
+
+  /**
+   * Gets the number of corners that were parsed. This is 0 if corners weren't requested.
+   *
+   * @return The number of corners, at most {@link ResultsConstants#MAX_CORNERS}
+   */
+  public int getCornerCount() {
+    return cornerCount;
+  }
+
+  /**
+   * Gets the x coordinate of a corner of the bounding box in the image.
+   *
+   * @param index The index of the corner, less than {@link #getCornerCount()}
+   * @return The x coordinate in pixels
+   */
+  public double getCornerX(int index) {
+    return corners[index * 2];
+  }
+
+  /**
+   * Gets the y coordinate of a corner of the bounding box in the image.
+   *
+   * @param index The index of the corner, less than {@link #getCornerCount()}
+   * @return The y coordinate in pixels
+   */
+  public double getCornerY(int index) {
+    return corners[index * 2 + 1];
+  }
+}
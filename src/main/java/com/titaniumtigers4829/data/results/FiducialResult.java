@@ -0,0 +1,134 @@
+package com.titaniumtigers4829.data.results;
+
+/**
+ * One april tag from the "Fiducial" section of the Limelight's JSON results. Instances are owned
+ * by a {@link LimelightResults} and overwritten every time it is parsed into, so values that need
+ * to be kept should be copied out.
+ */
+public class FiducialResult {
+
+  int id;
+  double tx;
+  double ty;
+  double txPixels;
+  double tyPixels;
+  double ta;
+  final double[] corners = new double[ResultsConstants.MAX_CORNERS * 2];
+  int cornerCount;
+  final double[] targetPoseRobotSpace = new double[ResultsConstants.POSE_DATA_SIZE];
+  boolean hasTargetPose;
+
+  void clear() {
+    id = 0;
+    tx = 0;
+    ty = 0;
+    txPixels = 0;
+    tyPixels = 0;
+    ta = 0;
+    cornerCount = 0;
+    hasTargetPose = false;
+  }
+
+  /**
+   * Gets the ID of the april tag.
+   *
+   * @return The ID of the april tag
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Gets the horizontal offset from the crosshair to the tag.
+   *
+   * @return Horizontal offset angle in degrees
+   */
+  public double getTX() {
+    return tx;
+  }
+
+  /**
+   * Gets the vertical offset from the crosshair to the tag.
+   *
+   * @return Vertical offset angle in degrees
+   */
+  public double getTY() {
+    return ty;
+  }
+
+  /**
+   * Gets the horizontal position of the tag in the image.
+   *
+   * @return The horizontal position in pixels
+   */
+  public double getTXPixels() {
+    return txPixels;
+  }
+
+  /**
+   * Gets the vertical position of the tag in the image.
+   *
+   * @return The vertical position in pixels
+   */
+  public double getTYPixels() {
+    return tyPixels;
+  }
+
+  /**
+   * Gets the tag's area as a percentage of the image.
+   *
+   * @return Target area percentage (0-100%)
+   */
+  public double getTA() {
+    return ta;
+  }
+
+  /**
+   * Gets the number of corners that were parsed. This is 0 if corners weren't requested.
+   *
+   * @return The number of corners, at most {@link ResultsConstants#MAX_CORNERS}
+   */
+  public int getCornerCount() {
+    return cornerCount;
+  }
+
+  /**
+   * Gets the x coordinate of a corner in the image.
+   *
+   * @param index The index of the corner, less than {@link #getCornerCount()}
+   * @return The x coordinate in pixels
+   */
+  public double getCornerX(int index) {
+    return corners[index * 2];
+  }
+
+  /**
+   * Gets the y coordinate of a corner in the image.
+   *
+   * @param index The index of the corner, less than {@link #getCornerCount()}
+   * @return The y coordinate in pixels
+   */
+  public double getCornerY(int index) {
+    return corners[index * 2 + 1];
+  }
+
+  /**
+   * Gets if the tag's pose in robot space was included in the results.
+   *
+   * @return True if {@link #getTargetPoseRobotSpace(int)} is valid, false otherwise
+   */
+  public boolean hasTargetPose() {
+    return hasTargetPose;
+  }
+
+  /**
+   * Gets a value of the tag's pose in robot space ("t6t_rs").
+   *
+   * @param index The index of the value, in the order [x, y, z, roll, pitch, yaw], with the
+   *     translation in meters and the rotation in degrees
+   * @return The value
+   */
+  public double getTargetPoseRobotSpace(int index) {
+    return targetPoseRobotSpace[index];
+  }
+}
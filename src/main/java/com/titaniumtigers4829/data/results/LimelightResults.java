@@ -0,0 +1,273 @@
+package com.titaniumtigers4829.data.results;
+
+import java.util.Arrays;
+
+/**
+ * The parts of the Limelight's JSON results that aren't published as double arrays, such as each
+ * tag's corners and the neural detector and classifier results. This is filled by a {@link
+ * ResultsParser}, and is meant to be allocated once and reused every loop. The results it holds
+ * are reused too, so it only allocates when a frame has more results than any frame before it.
+ *
+ * <p>Only the sections that are requested are parsed, and everything else is skipped without being
+ * decoded, so turn off what isn't needed:
+ *
+ * <pre>{@code
+ * LimelightResults results = new LimelightResults();
+ * results.setParseFiducials(false);
+ * results.setParseClassifier(false);
+ *
+ * // Every loop
+ * if (TigerHelpers.getLatestResults("limelight", results)) {
+ *   for (int i = 0; i < results.getDetectorCount(); i++) {
+ *     DetectorResult detection = results.getDetector(i);
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>Results keep the pipeline index they came from, so separate instances can be kept for each
+ * pipeline. This isn't thread safe.
+ */
+public class LimelightResults {
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  private boolean parseFiducials = true;
+  private boolean parseDetector = true;
+  private boolean parseClassifier = true;
+  private boolean parseCorners = true;
+
+  boolean isValid;
+  int pipelineIndex;
+  double latencyPipeline;
+  double latencyCapture;
+  double timestampMilliseconds;
+
+  private FiducialResult[] fiducials = new FiducialResult[INITIAL_CAPACITY];
+  private int fiducialCount;
+  private DetectorResult[] detectors = new DetectorResult[INITIAL_CAPACITY];
+  private int detectorCount;
+  private ClassifierResult[] classifiers = new ClassifierResult[INITIAL_CAPACITY];
+  private int classifierCount;
+
+  /**
+   * Sets if the "Fiducial" section is parsed.
+   *
+   * @param parseFiducials True to parse april tags, defaults to true
+   */
+  public void setParseFiducials(boolean parseFiducials) {
+    this.parseFiducials = parseFiducials;
+  }
+
+  /**
+   * Sets if the "Detector" section is parsed.
+   *
+   * @param parseDetector True to parse neural detector results, defaults to true
+   */
+  public void setParseDetector(boolean parseDetector) {
+    this.parseDetector = parseDetector;
+  }
+
+  /**
+   * Sets if the "Classifier" section is parsed.
+   *
+   * @param parseClassifier True to parse neural classifier results, defaults to true
+   */
+  public void setParseClassifier(boolean parseClassifier) {
+    this.parseClassifier = parseClassifier;
+  }
+
+  /**
+   * Sets if the corners of tags and detections are parsed.
+   *
+   * @param parseCorners True to parse corners, defaults to true
+   */
+  public void setParseCorners(boolean parseCorners) {
+    this.parseCorners = parseCorners;
+  }
+
+  /**
+   * Gets if the "Fiducial" section is parsed.
+   *
+   * @return True if april tags are parsed, false otherwise
+   */
+  public boolean isParsingFiducials() {
+    return parseFiducials;
+  }
+
+  /**
+   * Gets if the "Detector" section is parsed.
+   *
+   * @return True if neural detector results are parsed, false otherwise
+   */
+  public boolean isParsingDetector() {
+    return parseDetector;
+  }
+
+  /**
+   * Gets if the "Classifier" section is parsed.
+   *
+   * @return True if neural classifier results are parsed, false otherwise
+   */
+  public boolean isParsingClassifier() {
+    return parseClassifier;
+  }
+
+  /**
+   * Gets if the corners of tags and detections are parsed.
+   *
+   * @return True if corners are parsed, false otherwise
+   */
+  public boolean isParsingCorners() {
+    return parseCorners;
+  }
+
+  /** Clears every result, leaving the results invalid. */
+  public void clear() {
+    isValid = false;
+    pipelineIndex = 0;
+    latencyPipeline = 0;
+    latencyCapture = 0;
+    timestampMilliseconds = 0;
+    fiducialCount = 0;
+    detectorCount = 0;
+    classifierCount = 0;
+  }
+
+  /**
+   * Gets if the Limelight has a valid target ("v").
+   *
+   * @return True if the results are valid, false otherwise
+   */
+  public boolean isValid() {
+    return isValid;
+  }
+
+  /**
+   * Gets the index of the pipeline that produced the results ("pID").
+   *
+   * @return The pipeline index
+   */
+  public int getPipelineIndex() {
+    return pipelineIndex;
+  }
+
+  /**
+   * Gets the pipeline's processing latency contribution ("tl").
+   *
+   * @return Pipeline latency in milliseconds
+   */
+  public double getLatencyPipeline() {
+    return latencyPipeline;
+  }
+
+  /**
+   * Gets the capture latency ("cl").
+   *
+   * @return Capture latency in milliseconds
+   */
+  public double getLatencyCapture() {
+    return latencyCapture;
+  }
+
+  /**
+   * Gets the Limelight's timestamp of the results ("ts"), which is since the Limelight booted up.
+   *
+   * @return The timestamp in milliseconds
+   */
+  public double getTimestampMilliseconds() {
+    return timestampMilliseconds;
+  }
+
+  /**
+   * Gets the number of april tags.
+   *
+   * @return The number of april tags
+   */
+  public int getFiducialCount() {
+    return fiducialCount;
+  }
+
+  /**
+   * Gets an april tag.
+   *
+   * @param index The index of the tag, less than {@link #getFiducialCount()}
+   * @return The tag, which is reused the next time the results are parsed
+   */
+  public FiducialResult getFiducial(int index) {
+    return fiducials[index];
+  }
+
+  /**
+   * Gets the number of neural detector results.
+   *
+   * @return The number of detections
+   */
+  public int getDetectorCount() {
+    return detectorCount;
+  }
+
+  /**
+   * Gets a neural detector result.
+   *
+   * @param index The index of the detection, less than {@link #getDetectorCount()}
+   * @return The detection, which is reused the next time the results are parsed
+   */
+  public DetectorResult getDetector(int index) {
+    return detectors[index];
+  }
+
+  /**
+   * Gets the number of neural classifier results.
+   *
+   * @return The number of classifier results
+   */
+  public int getClassifierCount() {
+    return classifierCount;
+  }
+
+  /**
+   * Gets a neural classifier result.
+   *
+   * @param index The index of the result, less than {@link #getClassifierCount()}
+   * @return The result, which is reused the next time the results are parsed
+   */
+  public ClassifierResult getClassifier(int index) {
+    return classifiers[index];
+  }
+
+  FiducialResult addFiducial() {
+    if (fiducialCount == fiducials.length) {
+      fiducials = Arrays.copyOf(fiducials, fiducials.length * 2);
+    }
+    if (fiducials[fiducialCount] == null) {
+      fiducials[fiducialCount] = new FiducialResult();
+    }
+    FiducialResult fiducial = fiducials[fiducialCount++];
+    fiducial.clear();
+    return fiducial;
+  }
+
+  DetectorResult addDetector() {
+    if (detectorCount == detectors.length) {
+      detectors = Arrays.copyOf(detectors, detectors.length * 2);
+    }
+    if (detectors[detectorCount] == null) {
+      detectors[detectorCount] = new DetectorResult();
+    }
+    DetectorResult detector = detectors[detectorCount++];
+    detector.clear();
+    return detector;
+  }
+
+  ClassifierResult addClassifier() {
+    if (classifierCount == classifiers.length) {
+      classifiers = Arrays.copyOf(classifiers, classifiers.length * 2);
+    }
+    if (classifiers[classifierCount] == null) {
+      classifiers[classifierCount] = new ClassifierResult();
+    }
+    ClassifierResult classifier = classifiers[classifierCount++];
+    classifier.clear();
+    return classifier;
+  }
+}
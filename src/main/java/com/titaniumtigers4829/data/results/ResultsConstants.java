@@ -0,0 +1,10 @@
+package com.titaniumtigers4829.data.results;
+
+/** JSON results related constants */
+public class ResultsConstants {
+
+  private ResultsConstants() {}
+
+  public static final int MAX_CORNERS = 4;
+  public static final int POSE_DATA_SIZE = 6;
+}
@@ -0,0 +1,484 @@
+package com.titaniumtigers4829.data.results;
+
+/**
+ * A hand-written streaming parser for the Limelight's JSON results. Rather than building a tree of
+ * objects for the whole document like a general JSON library, it walks the string once, copies
+ * only the values a {@link LimelightResults} asks for into its reused results, and skips everything
+ * else without decoding it. Numbers are parsed in place, so nothing is allocated for a frame unless
+ * it has more results than any frame before it, or a class name hasn't been seen before.
+ *
+ * <p>Both the older format, where everything is inside a "Results" object, and the newer format,
+ * where it is at the top level, are supported. Numbers are parsed to within a rounding error of
+ * {@link Double#parseDouble(String)}, which is far below the noise of anything the Limelight
+ * measures.
+ *
+ * <p>This isn't thread safe, so each thread should use its own parser.
+ */
+public class ResultsParser {
+
+  private static final long MAX_MANTISSA = (Long.MAX_VALUE - 9) / 10;
+  // Every power of ten that can be represented exactly as a double
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  private static final int MAX_CACHED_CLASS_ID = 256;
+
+  // Thrown to unwind out of the parser when the JSON is malformed. It is only created once, since
+  // the stack trace is never used.
+  private static final MalformedJsonException MALFORMED = new MalformedJsonException();
+
+  private final String[] detectorClassNames = new String[MAX_CACHED_CLASS_ID];
+  private final String[] classifierClassNames = new String[MAX_CACHED_CLASS_ID];
+
+  private String json;
+  private int length;
+  private int position;
+  private int stringStart;
+  private int stringEnd;
+  private int keyStart;
+  private int keyEnd;
+
+  /**
+   * Parses the Limelight's JSON results into reused results. The results are cleared first, so if
+   * the JSON is empty or malformed they are left empty and invalid.
+   *
+   * @param json The "json" entry's value
+   * @param results The results to fill, which also decide which sections are parsed
+   * @return True if the JSON was parsed, false if it was empty or malformed
+   */
+  public boolean parse(String json, LimelightResults results) {
+    results.clear();
+    if (json == null || json.isEmpty()) {
+      return false;
+    }
+
+    this.json = json;
+    length = json.length();
+    position = 0;
+    try {
+      parseResults(results);
+      return true;
+    } catch (MalformedJsonException e) {
+      results.clear();
+      return false;
+    } finally {
+      // The string can be large, so it shouldn't be kept alive by the parser
+      this.json = null;
+    }
+  }
+
+  private void parseResults(LimelightResults results) {
+    expect('{');
+    if (consume('}')) {
+      return;
+    }
+    do {
+      readKey();
+      if (keyEquals("Results") && peek() == '{') {
+        parseResults(results);
+      } else if (keyEquals("v")) {
+        results.isValid = readNumber() == 1;
+      } else if (keyEquals("pID")) {
+        results.pipelineIndex = (int) readNumber();
+      } else if (keyEquals("tl")) {
+        results.latencyPipeline = readNumber();
+      } else if (keyEquals("cl")) {
+        results.latencyCapture = readNumber();
+      } else if (keyEquals("ts")) {
+        results.timestampMilliseconds = readNumber();
+      } else if (keyEquals("Fiducial") && results.isParsingFiducials()) {
+        parseFiducials(results);
+      } else if (keyEquals("Detector") && results.isParsingDetector()) {
+        parseDetectors(results);
+      } else if (keyEquals("Classifier") && results.isParsingClassifier()) {
+        parseClassifiers(results);
+      } else {
+        skipValue();
+      }
+    } while (consume(','));
+    expect('}');
+  }
+
+  private void parseFiducials(LimelightResults results) {
+    expect('[');
+    if (consume(']')) {
+      return;
+    }
+    do {
+      FiducialResult fiducial = results.addFiducial();
+      expect('{');
+      if (!consume('}')) {
+        do {
+          readKey();
+          if (keyEquals("fID")) {
+            fiducial.id = (int) readNumber();
+          } else if (keyEquals("tx")) {
+            fiducial.tx = readNumber();
+          } else if (keyEquals("ty")) {
+            fiducial.ty = readNumber();
+          } else if (keyEquals("txp")) {
+            fiducial.txPixels = readNumber();
+          } else if (keyEquals("typ")) {
+            fiducial.tyPixels = readNumber();
+          } else if (keyEquals("ta")) {
+            fiducial.ta = readNumber();
+          } else if (keyEquals("pts") && results.isParsingCorners()) {
+            fiducial.cornerCount = readCorners(fiducial.corners);
+          } else if (keyEquals("t6t_rs")) {
+            fiducial.hasTargetPose =
+                readNumbers(fiducial.targetPoseRobotSpace) == ResultsConstants.POSE_DATA_SIZE;
+          } else {
+            skipValue();
+          }
+        } while (consume(','));
+        expect('}');
+      }
+    } while (consume(','));
+    expect(']');
+  }
+
+  private void parseDetectors(LimelightResults results) {
+    expect('[');
+    if (consume(']')) {
+      return;
+    }
+    do {
+      DetectorResult detector = results.addDetector();
+      // "class" comes before "classID", so the name is looked up once the whole object is read
+      int nameStart = -1;
+      int nameEnd = -1;
+      expect('{');
+      if (!consume('}')) {
+        do {
+          readKey();
+          if (keyEquals("class") && peek() == '"') {
+            readString();
+            nameStart = stringStart;
+            nameEnd = stringEnd;
+          } else if (keyEquals("classID")) {
+            detector.classId = (int) readNumber();
+          } else if (keyEquals("conf")) {
+            detector.confidence = readNumber();
+          } else if (keyEquals("tx")) {
+            detector.tx = readNumber();
+          } else if (keyEquals("ty")) {
+            detector.ty = readNumber();
+          } else if (keyEquals("txp")) {
+            detector.txPixels = readNumber();
+          } else if (keyEquals("typ")) {
+            detector.tyPixels = readNumber();
+          } else if (keyEquals("ta")) {
+            detector.ta = readNumber();
+          } else if (keyEquals("pts") && results.isParsingCorners()) {
+            detector.cornerCount = readCorners(detector.corners);
+          } else {
+            skipValue();
+          }
+        } while (consume(','));
+        expect('}');
+      }
+      detector.className = getClassName(detectorClassNames, detector.classId, nameStart, nameEnd);
+    } while (consume(','));
+    expect(']');
+  }
+
+  private void parseClassifiers(LimelightResults results) {
+    expect('[');
+    if (consume(']')) {
+      return;
+    }
+    do {
+      ClassifierResult classifier = results.addClassifier();
+      int nameStart = -1;
+      int nameEnd = -1;
+      expect('{');
+      if (!consume('}')) {
+        do {
+          readKey();
+          if (keyEquals("class") && peek() == '"') {
+            readString();
+            nameStart = stringStart;
+            nameEnd = stringEnd;
+          } else if (keyEquals("classID")) {
+            classifier.classId = (int) readNumber();
+          } else if (keyEquals("conf")) {
+            classifier.confidence = readNumber();
+          } else {
+            skipValue();
+          }
+        } while (consume(','));
+        expect('}');
+      }
+      classifier.className =
+          getClassName(classifierClassNames, classifier.classId, nameStart, nameEnd);
+    } while (consume(','));
+    expect(']');
+  }
+
+  /**
+   * Reads corners into an array of [x0, y0, x1, y1, ...]. Corners can either be arrays of [x, y]
+   * or flattened into one array.
+   */
+  private int readCorners(double[] corners) {
+    expect('[');
+    if (consume(']')) {
+      return 0;
+    }
+    int valueCount = 0;
+    do {
+      if (peek() == '[') {
+        position++;
+        int index = 0;
+        if (!consume(']')) {
+          do {
+            if (index < 2 && valueCount + index < corners.length) {
+              corners[valueCount + index] = readNumber();
+            } else {
+              skipValue();
+            }
+            index++;
+          } while (consume(','));
+          expect(']');
+        }
+        if (index >= 2 && valueCount < corners.length) {
+          valueCount += 2;
+        }
+      } else if (valueCount < corners.length) {
+        corners[valueCount++] = readNumber();
+      } else {
+        skipValue();
+      }
+    } while (consume(','));
+    expect(']');
+    return valueCount / 2;
+  }
+
+  private int readNumbers(double[] result) {
+    expect('[');
+    if (consume(']')) {
+      return 0;
+    }
+    int count = 0;
+    do {
+      if (count < result.length) {
+        result[count++] = readNumber();
+      } else {
+        skipValue();
+      }
+    } while (consume(','));
+    expect(']');
+    return count;
+  }
+
+  private double readNumber() {
+    char c = peek();
+    if (c == 'n' || c == 'f') {
+      // null or false
+      skipLiteral();
+      return 0;
+    } else if (c == 't') {
+      skipLiteral();
+      return 1;
+    }
+
+    boolean isNegative = c == '-';
+    if (isNegative) {
+      position++;
+    }
+
+    long mantissa = 0;
+    int exponent = 0;
+    int digitCount = 0;
+    while (position < length && (c = json.charAt(position)) >= '0' && c <= '9') {
+      if (mantissa < MAX_MANTISSA) {
+        mantissa = mantissa * 10 + (c - '0');
+      } else {
+        exponent++;
+      }
+      digitCount++;
+      position++;
+    }
+    if (position < length && json.charAt(position) == '.') {
+      position++;
+      while (position < length && (c = json.charAt(position)) >= '0' && c <= '9') {
+        if (mantissa < MAX_MANTISSA) {
+          mantissa = mantissa * 10 + (c - '0');
+          exponent--;
+        }
+        digitCount++;
+        position++;
+      }
+    }
+    if (digitCount == 0) {
+      throw MALFORMED;
+    }
+
+    if (position < length && ((c = json.charAt(position)) == 'e' || c == 'E')) {
+      position++;
+      boolean isExponentNegative = false;
+      if (position < length && ((c = json.charAt(position)) == '-' || c == '+')) {
+        isExponentNegative = c == '-';
+        position++;
+      }
+      int explicitExponent = 0;
+      int exponentDigitCount = 0;
+      while (position < length && (c = json.charAt(position)) >= '0' && c <= '9') {
+        if (explicitExponent < 10000) {
+          explicitExponent = explicitExponent * 10 + (c - '0');
+        }
+        exponentDigitCount++;
+        position++;
+      }
+      if (exponentDigitCount == 0) {
+        throw MALFORMED;
+      }
+      exponent += isExponentNegative ? -explicitExponent : explicitExponent;
+    }
+
+    double value = mantissa;
+    if (exponent > 0) {
+      value *= getPowerOfTen(exponent);
+    } else if (exponent < 0) {
+      value /= getPowerOfTen(-exponent);
+    }
+    return isNegative ? -value : value;
+  }
+
+  private void readKey() {
+    readString();
+    keyStart = stringStart;
+    keyEnd = stringEnd;
+    expect(':');
+  }
+
+  /** Finds the bounds of a string without creating it. Escaped characters are left escaped. */
+  private void readString() {
+    expect('"');
+    stringStart = position;
+    while (true) {
+      if (position >= length) {
+        throw MALFORMED;
+      }
+      char c = json.charAt(position);
+      if (c == '"') {
+        break;
+      }
+      position += c == '\\' ? 2 : 1;
+    }
+    stringEnd = position;
+    position++;
+  }
+
+  private void skipValue() {
+    char c = peek();
+    if (c == '"') {
+      readString();
+      return;
+    }
+    if (c != '{' && c != '[') {
+      skipLiteral();
+      return;
+    }
+
+    int depth = 0;
+    do {
+      if (position >= length) {
+        throw MALFORMED;
+      }
+      c = json.charAt(position);
+      if (c == '"') {
+        readString();
+        continue;
+      }
+      if (c == '{' || c == '[') {
+        depth++;
+      } else if (c == '}' || c == ']') {
+        depth--;
+      }
+      position++;
+    } while (depth > 0);
+  }
+
+  /** Skips a number, true, false, or null. */
+  private void skipLiteral() {
+    int start = position;
+    char c;
+    while (position < length
+        && (c = json.charAt(position)) != ','
+        && c != '}'
+        && c != ']'
+        && !isWhitespace(c)) {
+      position++;
+    }
+    if (position == start) {
+      throw MALFORMED;
+    }
+  }
+
+  private boolean keyEquals(String key) {
+    return keyEnd - keyStart == key.length() && json.regionMatches(keyStart, key, 0, key.length());
+  }
+
+  /** Skips whitespace and returns the next character without consuming it. */
+  private char peek() {
+    while (position < length) {
+      char c = json.charAt(position);
+      if (!isWhitespace(c)) {
+        return c;
+      }
+      position++;
+    }
+    throw MALFORMED;
+  }
+
+  private void expect(char expected) {
+    if (peek() != expected) {
+      throw MALFORMED;
+    }
+    position++;
+  }
+
+  private boolean consume(char expected) {
+    if (peek() == expected) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Gets the class name between start and end, reusing the string from the last time the class
+   * was seen if the name hasn't changed.
+   */
+  private String getClassName(String[] cache, int classId, int start, int end) {
+    if (start < 0) {
+      return "";
+    }
+    if (classId < 0 || classId >= cache.length) {
+      return json.substring(start, end);
+    }
+    String cached = cache[classId];
+    if (cached == null
+        || cached.length() != end - start
+        || !json.regionMatches(start, cached, 0, cached.length())) {
+      cached = json.substring(start, end);
+      cache[classId] = cached;
+    }
+    return cached;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+  }
+
+  private static double getPowerOfTen(int exponent) {
+    return exponent < POWERS_OF_TEN.length ? POWERS_OF_TEN[exponent] : Math.pow(10, exponent);
+  }
+
+  private static class MalformedJsonException extends RuntimeException {
+    private MalformedJsonException() {
+      super("Malformed Limelight JSON results", null, false, false);
+    }
+  }
+}
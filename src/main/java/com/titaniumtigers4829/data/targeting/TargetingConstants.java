@@ -0,0 +1,9 @@
+package com.titaniumtigers4829.data.targeting;
+
+/** Targeting related constants */
+public class TargetingConstants {
+
+  private TargetingConstants() {}
+
+  public static final int T2D_DATA_SIZE = 17;
+}
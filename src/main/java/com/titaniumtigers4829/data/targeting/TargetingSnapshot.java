@@ -0,0 +1,253 @@
+package com.titaniumtigers4829.data.targeting;
+
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+
+/**
+ * A reusable, mutable snapshot of every basic targeting value from one frame, decoded from the
+ * Limelight's combined "t2d" array. Reading tv, tx, ty, and the rest separately takes one lookup
+ * each, and the values can come from different frames, but every value in a snapshot comes from
+ * the same frame. Instances are meant to be allocated once and filled every loop with {@link
+ * com.titaniumtigers4829.TigerHelpers#getTargetingSnapshot}.
+ */
+public class TargetingSnapshot {
+
+  private boolean hasTarget;
+  private int targetCount;
+  private double latencyPipeline;
+  private double latencyCapture;
+  private double tx;
+  private double ty;
+  private double txnc;
+  private double tync;
+  private double ta;
+  private int fiducialId;
+  private int detectorClassIndex;
+  private int classifierClassIndex;
+  private double longSidePixels;
+  private double shortSidePixels;
+  private double horizontalExtentPixels;
+  private double verticalExtentPixels;
+  private double skew;
+  private double timestampSeconds;
+
+  /**
+   * Fills the snapshot from a "t2d" value. If the array is too short, the snapshot is cleared and
+   * has no target.
+   *
+   * @param t2d The "t2d" array and the time it was received in microseconds
+   * @return True if the Limelight has a valid target, false otherwise
+   */
+  public boolean update(TimestampedDoubleArray t2d) {
+    double[] data = t2d.value;
+    if (data.length < TargetingConstants.T2D_DATA_SIZE) {
+      clear();
+      return false;
+    }
+
+    hasTarget = data[0] == 1.0;
+    targetCount = (int) data[1];
+    latencyPipeline = data[2];
+    latencyCapture = data[3];
+    tx = data[4];
+    ty = data[5];
+    txnc = data[6];
+    tync = data[7];
+    ta = data[8];
+    fiducialId = (int) data[9];
+    detectorClassIndex = (int) data[10];
+    classifierClassIndex = (int) data[11];
+    longSidePixels = data[12];
+    shortSidePixels = data[13];
+    horizontalExtentPixels = data[14];
+    verticalExtentPixels = data[15];
+    skew = data[16];
+    // Matches DataUtils.unpackBotPoseEstimate
+    timestampSeconds = (t2d.timestamp / 1000000.0) - ((latencyPipeline + latencyCapture) / 1000.0);
+    return hasTarget;
+  }
+
+  /** Clears every value, leaving the snapshot without a target. */
+  public void clear() {
+    hasTarget = false;
+    targetCount = 0;
+    latencyPipeline = 0;
+    latencyCapture = 0;
+    tx = 0;
+    ty = 0;
+    txnc = 0;
+    tync = 0;
+    ta = 0;
+    fiducialId = 0;
+    detectorClassIndex = 0;
+    classifierClassIndex = 0;
+    longSidePixels = 0;
+    shortSidePixels = 0;
+    horizontalExtentPixels = 0;
+    verticalExtentPixels = 0;
+    skew = 0;
+    timestampSeconds = 0;
+  }
+
+  /**
+   * Gets if the Limelight has a valid target (tv).
+   *
+   * @return True if a valid target is present, false otherwise
+   */
+  public boolean hasTarget() {
+    return hasTarget;
+  }
+
+  /**
+   * Gets the number of targets in the frame.
+   *
+   * @return The number of targets
+   */
+  public int getTargetCount() {
+    return targetCount;
+  }
+
+  /**
+   * Gets the pipeline's processing latency contribution (tl).
+   *
+   * @return Pipeline latency in milliseconds
+   */
+  public double getLatencyPipeline() {
+    return latencyPipeline;
+  }
+
+  /**
+   * Gets the capture latency (cl).
+   *
+   * @return Capture latency in milliseconds
+   */
+  public double getLatencyCapture() {
+    return latencyCapture;
+  }
+
+  /**
+   * Gets the horizontal offset from the crosshair to the target (tx).
+   *
+   * @return Horizontal offset angle in degrees
+   */
+  public double getTX() {
+    return tx;
+  }
+
+  /**
+   * Gets the vertical offset from the crosshair to the target (ty).
+   *
+   * @return Vertical offset angle in degrees
+   */
+  public double getTY() {
+    return ty;
+  }
+
+  /**
+   * Gets the horizontal offset from the principal pixel/point to the target (txnc).
+   *
+   * @return Horizontal offset angle in degrees
+   */
+  public double getTXNC() {
+    return txnc;
+  }
+
+  /**
+   * Gets the vertical offset from the principal pixel/point to the target (tync).
+   *
+   * @return Vertical offset angle in degrees
+   */
+  public double getTYNC() {
+    return tync;
+  }
+
+  /**
+   * Gets the target area as a percentage of the image (ta).
+   *
+   * @return Target area percentage (0-100%)
+   */
+  public double getTA() {
+    return ta;
+  }
+
+  /**
+   * Gets the ID of the primary april tag in view (tid).
+   *
+   * @return The ID of the april tag
+   */
+  public int getFiducialID() {
+    return fiducialId;
+  }
+
+  /**
+   * Gets the class index of the primary target from the neural detector.
+   *
+   * @return The class index
+   */
+  public int getDetectorClassIndex() {
+    return detectorClassIndex;
+  }
+
+  /**
+   * Gets the class index from the neural classifier.
+   *
+   * @return The class index
+   */
+  public int getClassifierClassIndex() {
+    return classifierClassIndex;
+  }
+
+  /**
+   * Gets the length of the target's longest side.
+   *
+   * @return The length in pixels
+   */
+  public double getLongSidePixels() {
+    return longSidePixels;
+  }
+
+  /**
+   * Gets the length of the target's shortest side.
+   *
+   * @return The length in pixels
+   */
+  public double getShortSidePixels() {
+    return shortSidePixels;
+  }
+
+  /**
+   * Gets the horizontal extent of the target.
+   *
+   * @return The width in pixels
+   */
+  public double getHorizontalExtentPixels() {
+    return horizontalExtentPixels;
+  }
+
+  /**
+   * Gets the vertical extent of the target.
+   *
+   * @return The height in pixels
+   */
+  public double getVerticalExtentPixels() {
+    return verticalExtentPixels;
+  }
+
+  /**
+   * Gets the skew or rotation of the target.
+   *
+   * @return The skew in degrees
+   */
+  public double getSkew() {
+    return skew;
+  }
+
+  /**
+   * Gets the time the frame was captured, which is when it was received minus the pipeline and
+   * capture latency.
+   *
+   * @return The timestamp in seconds
+   */
+  public double getTimestampSeconds() {
+    return timestampSeconds;
+  }
+}
@@ -0,0 +1,331 @@
+package com.titaniumtigers4829.diagnostics;
+
+import com.titaniumtigers4829.TigerHelpers;
+import com.titaniumtigers4829.data.networktables.NetworkTablesEntries;
+import com.titaniumtigers4829.transport.DoubleArrayHandle;
+import com.titaniumtigers4829.transport.DoubleHandle;
+import com.titaniumtigers4829.transport.LimelightTransport;
+import edu.wpi.first.wpilibj.Timer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Watches each camera's heartbeat ("hb"), which the Limelight increments every frame, to tell if
+ * the camera is still running. Without this, a Limelight that reboots mid-match looks the same as
+ * one that just doesn't see any tags, since the pose estimate falls back to all zeros.
+ *
+ * <p>Each camera is healthy while its heartbeat keeps changing, stale once it hasn't changed for
+ * the stale timeout, and disconnected once it hasn't changed for the disconnect timeout. Listeners
+ * are called whenever a camera changes state, and {@link #isHealthy(String)} or {@link
+ * #getHealthyCameras(String[])} can be used to leave dead cameras out when combining estimates
+ * from multiple cameras. A {@link com.titaniumtigers4829.processing.VisionProcessor} given a
+ * watchdog does this automatically.
+ *
+ * <p>Other topics, such as a botpose entry, can also be watched with {@link #watchTopic(String)},
+ * to find out when each camera last published them. A camera can keep its heartbeat going while a
+ * pipeline stops publishing, for example after switching to a pipeline without 3D enabled, so a
+ * topic can be given a timeout with {@link #watchTopic(String, double)} to make the camera stale
+ * whenever that topic stops being published.
+ *
+ * <p>Each update only reads the heartbeat and the last change time of each watched topic, without
+ * copying any values, so it is cheap enough to run every loop. It should only be updated from one
+ * thread, but the health can be read from any thread.
+ */
+public class CameraWatchdog {
+
+  /** The health of a camera. */
+  public enum Health {
+    /** The heartbeat is changing. */
+    HEALTHY,
+    /**
+     * The heartbeat hasn't changed for longer than the stale timeout, or a watched topic hasn't
+     * been published for longer than its timeout.
+     */
+    STALE,
+    /** The heartbeat hasn't changed for longer than the disconnect timeout. */
+    DISCONNECTED
+  }
+
+  private final List<CameraState> cameras = new ArrayList<>();
+  private final List<BiConsumer<String, Health>> listeners = new ArrayList<>();
+  private final List<String> topics = new ArrayList<>();
+  // Indexed like topics
+  private double[] topicTimeouts = new double[0];
+
+  private double staleTimeout = 0.25;
+  private double disconnectTimeout = 1.0;
+  private double lastUpdateTime = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Registers a camera to be watched. It starts out disconnected until its heartbeat changes. The
+   * camera is read through the transport set in {@link TigerHelpers}, and is resolved again
+   * whenever the transport or its generation is replaced.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   */
+  public void addCamera(String limelightName) {
+    CameraState camera = new CameraState(limelightName);
+    for (int i = 0; i < topics.size(); i++) {
+      camera.addTopic(topics.get(i));
+    }
+    camera.bindTransport(topics);
+    cameras.add(camera);
+  }
+
+  /**
+   * Watches a double array topic on every camera, to track when each camera last published it.
+   * This doesn't affect the cameras' health.
+   *
+   * @param entryName The name of the entry, such as {@link NetworkTablesEntries#BOTPOSE_WPIBLUE}
+   */
+  public void watchTopic(String entryName) {
+    watchTopic(entryName, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Watches a double array topic on every camera, and makes a camera stale whenever it hasn't
+   * published the topic for longer than the timeout. A camera that never published the topic is
+   * stale too. Watching a topic again only changes its timeout.
+   *
+   * @param entryName The name of the entry, such as {@link NetworkTablesEntries#BOTPOSE_WPIBLUE}
+   * @param timeout The timeout in seconds, which should be a few frames long
+   */
+  public void watchTopic(String entryName, double timeout) {
+    int topic = topics.indexOf(entryName);
+    if (topic >= 0) {
+      topicTimeouts[topic] = timeout;
+      return;
+    }
+    topics.add(entryName);
+    topicTimeouts = Arrays.copyOf(topicTimeouts, topics.size());
+    topicTimeouts[topics.size() - 1] = timeout;
+    for (int i = 0; i < cameras.size(); i++) {
+      cameras.get(i).addTopic(entryName);
+      cameras.get(i).bindTopic(topics.size() - 1, entryName);
+    }
+  }
+
+  /**
+   * Sets how long the heartbeat can go without changing before a camera is stale or disconnected.
+   * The stale timeout should be a few frames long.
+   *
+   * @param staleTimeout The stale timeout in seconds, defaults to 0.25
+   * @param disconnectTimeout The disconnect timeout in seconds, defaults to 1
+   */
+  public void setTimeouts(double staleTimeout, double disconnectTimeout) {
+    this.staleTimeout = staleTimeout;
+    this.disconnectTimeout = disconnectTimeout;
+  }
+
+  /**
+   * Adds a listener that is called whenever a camera changes health. Listeners are called from the
+   * thread that calls {@link #update()}.
+   *
+   * @param listener Called with the name of the camera and its new health
+   */
+  public void addListener(BiConsumer<String, Health> listener) {
+    listeners.add(listener);
+  }
+
+  /** Checks every camera's heartbeat and watched topics using the FPGA timestamp. */
+  public void update() {
+    update(Timer.getFPGATimestamp());
+  }
+
+  /**
+   * Checks every camera's heartbeat and watched topics. This should be called every loop.
+   *
+   * @param timestampSeconds The current time in seconds
+   */
+  public void update(double timestampSeconds) {
+    lastUpdateTime = timestampSeconds;
+    for (int i = 0; i < cameras.size(); i++) {
+      CameraState camera = cameras.get(i);
+      camera.bindTransport(topics);
+      double heartbeat = camera.heartbeat.get();
+      if (heartbeat != camera.lastHeartbeat) {
+        // The heartbeat only goes backwards when the Limelight restarts, including back to 0
+        if (heartbeat < camera.lastHeartbeat) {
+          camera.rebootCount++;
+        }
+        camera.lastHeartbeat = heartbeat;
+        camera.lastChangeTime = timestampSeconds;
+      }
+
+      boolean isTopicStale = false;
+      for (int j = 0; j < camera.topicHandles.length; j++) {
+        long topicTimestamp = camera.topicHandles[j].getLastChange();
+        if (topicTimestamp != camera.topicTimestamps[j]) {
+          camera.topicTimestamps[j] = topicTimestamp;
+          camera.topicUpdateTimes[j] = timestampSeconds;
+        }
+        if (timestampSeconds - camera.topicUpdateTimes[j] > topicTimeouts[j]) {
+          isTopicStale = true;
+        }
+      }
+
+      double timeSinceChange = timestampSeconds - camera.lastChangeTime;
+      Health health;
+      if (timeSinceChange > disconnectTimeout) {
+        health = Health.DISCONNECTED;
+      } else if (timeSinceChange > staleTimeout || isTopicStale) {
+        health = Health.STALE;
+      } else {
+        health = Health.HEALTHY;
+      }
+
+      if (health != camera.health) {
+        camera.health = health;
+        camera.transitionCount++;
+        for (int j = 0; j < listeners.size(); j++) {
+          listeners.get(j).accept(camera.limelightName, health);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the health of a camera.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return The camera's health, or disconnected if it isn't being watched
+   */
+  public Health getHealth(String limelightName) {
+    CameraState camera = getCamera(limelightName);
+    return camera == null ? Health.DISCONNECTED : camera.health;
+  }
+
+  /**
+   * Gets if a camera is healthy, so its estimates can be used.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return True if the camera is healthy, false otherwise
+   */
+  public boolean isHealthy(String limelightName) {
+    return getHealth(limelightName) == Health.HEALTHY;
+  }
+
+  /**
+   * Fills an array with the names of every healthy camera, without allocating.
+   *
+   * @param result The array to fill, which should be at least as long as the number of cameras
+   * @return The number of healthy cameras written to the array
+   */
+  public int getHealthyCameras(String[] result) {
+    int count = 0;
+    for (int i = 0; i < cameras.size() && count < result.length; i++) {
+      CameraState camera = cameras.get(i);
+      if (camera.health == Health.HEALTHY) {
+        result[count++] = camera.limelightName;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Gets the number of times a camera's heartbeat went backwards, which happens when the Limelight
+   * restarts.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return The number of reboots
+   */
+  public int getRebootCount(String limelightName) {
+    CameraState camera = getCamera(limelightName);
+    return camera == null ? 0 : camera.rebootCount;
+  }
+
+  /**
+   * Gets the number of times a camera has changed health.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return The number of transitions
+   */
+  public int getTransitionCount(String limelightName) {
+    CameraState camera = getCamera(limelightName);
+    return camera == null ? 0 : camera.transitionCount;
+  }
+
+  /**
+   * Gets how long it has been since a camera published a watched topic, as of the last update.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param entryName The name of the entry passed to {@link #watchTopic(String)}
+   * @return The time in seconds, or infinity if the topic was never published or isn't watched
+   */
+  public double getTimeSinceTopicUpdate(String limelightName, String entryName) {
+    CameraState camera = getCamera(limelightName);
+    int topic = topics.indexOf(entryName);
+    if (camera == null || topic < 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return lastUpdateTime - camera.topicUpdateTimes[topic];
+  }
+
+  private CameraState getCamera(String limelightName) {
+    for (int i = 0; i < cameras.size(); i++) {
+      if (cameras.get(i).limelightName.equals(limelightName)) {
+        return cameras.get(i);
+      }
+    }
+    return null;
+  }
+
+  private static class CameraState {
+    private final String limelightName;
+    // Resolved again whenever the transport in TigerHelpers or its generation is replaced
+    private LimelightTransport transport;
+    private long generation;
+    private DoubleHandle heartbeat;
+    // NetworkTables reads 0 before the Limelight has published anything
+    private double lastHeartbeat = 0;
+    private double lastChangeTime = Double.NEGATIVE_INFINITY;
+    // Read by other threads, such as a VisionProcessor's
+    private volatile Health health = Health.DISCONNECTED;
+    private int rebootCount;
+    private int transitionCount;
+    // Indexed like topics, the timestamps are the transport's and the times are from update()
+    private DoubleArrayHandle[] topicHandles = new DoubleArrayHandle[0];
+    private long[] topicTimestamps = new long[0];
+    private double[] topicUpdateTimes = new double[0];
+
+    private CameraState(String limelightName) {
+      this.limelightName = limelightName;
+    }
+
+    private void addTopic(String entryName) {
+      int count = topicHandles.length + 1;
+      topicHandles = Arrays.copyOf(topicHandles, count);
+      topicTimestamps = Arrays.copyOf(topicTimestamps, count);
+      topicUpdateTimes = Arrays.copyOf(topicUpdateTimes, count);
+      topicUpdateTimes[count - 1] = Double.NEGATIVE_INFINITY;
+    }
+
+    private void bindTransport(List<String> topics) {
+      LimelightTransport currentTransport = TigerHelpers.getTransport();
+      if (currentTransport == transport && currentTransport.getGeneration() == generation) {
+        return;
+      }
+      boolean isRebind = transport != null;
+      transport = currentTransport;
+      generation = currentTransport.getGeneration();
+      heartbeat = transport.getDoubleHandle(limelightName, NetworkTablesEntries.HB);
+      for (int i = 0; i < topics.size(); i++) {
+        bindTopic(i, topics.get(i));
+      }
+      if (isRebind) {
+        // Values from the old transport or instance aren't comparable with the new one's, so a
+        // heartbeat that starts over isn't a reboot and a different timestamp isn't a new value
+        lastHeartbeat = heartbeat.get();
+        for (int i = 0; i < topics.size(); i++) {
+          topicTimestamps[i] = topicHandles[i].getLastChange();
+        }
+      }
+    }
+
+    private void bindTopic(int topic, String entryName) {
+      topicHandles[topic] = transport.getDoubleArrayHandle(limelightName, entryName);
+    }
+  }
+}
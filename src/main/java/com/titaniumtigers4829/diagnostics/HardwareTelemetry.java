@@ -0,0 +1,364 @@
+package com.titaniumtigers4829.diagnostics;
+
+import com.titaniumtigers4829.TigerHelpers;
+import com.titaniumtigers4829.data.networktables.NetworkTablesEntries;
+import com.titaniumtigers4829.transport.DoubleArrayHandle;
+import com.titaniumtigers4829.transport.LimelightTransport;
+import com.titaniumtigers4829.utils.NTUtils;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import edu.wpi.first.wpilibj.Alert;
+import edu.wpi.first.wpilibj.Alert.AlertType;
+import edu.wpi.first.wpilibj.Timer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects each camera's hardware stats from the Limelight's "hw" array, [fps, cpu temp, ram
+ * usage, temp], so vision quality can be compared against how loaded or hot the camera is. A
+ * camera that is thermal throttling or running a pipeline that is too heavy shows up as a drop in
+ * fps well before it starts costing pose estimates.
+ *
+ * <p>Each camera's samples are kept in a fixed size ring buffer of primitives, and the rolling min,
+ * average, and max over the buffer are published through the transport set in {@link TigerHelpers}
+ * under "TigerHelpers/HardwareTelemetry/[camera]" as one [latest, min, average, max] array per
+ * metric. An {@link Alert} is raised while a camera's average fps is below the fps floor.
+ *
+ * <p>A sample is taken every sample period, whether or not the value changed. Once a camera hasn't
+ * published for longer than the stale timeout, which happens when it reboots, browns out, or shuts
+ * down from overheating, it is sampled at 0 fps and a separate stale alert is raised, so a camera
+ * that stops entirely also pulls its average fps below the floor. {@link #periodic()} is cheap
+ * enough to call every loop. This isn't thread safe, so it should only be used from the robot
+ * loop.
+ */
+public class HardwareTelemetry {
+
+  /** The index of the frames per second in a sample. */
+  public static final int FPS = 0;
+
+  /** The index of the CPU temperature in celsius in a sample. */
+  public static final int CPU_TEMP = 1;
+
+  /** The index of the RAM usage in a sample. */
+  public static final int RAM_USAGE = 2;
+
+  /** The index of the camera temperature in celsius in a sample. */
+  public static final int TEMP = 3;
+
+  /** The number of values in each sample. */
+  public static final int METRIC_COUNT = 4;
+
+  private static final String[] METRIC_NAMES = {"fps", "cpuTemp", "ramUsage", "temp"};
+
+  private final int windowSize;
+  private final List<CameraTelemetry> cameras = new ArrayList<>();
+
+  private double samplePeriod = 0.5;
+  private double fpsFloor = 0;
+  private double staleTimeout = 2.0;
+  private double lastSampleTime = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Creates a HardwareTelemetry.
+   *
+   * @param windowSize The number of samples the rolling stats are computed over, so the window is
+   *     this many sample periods long
+   */
+  public HardwareTelemetry(int windowSize) {
+    if (windowSize < 1) {
+      throw new IllegalArgumentException("The window size must be at least 1");
+    }
+    this.windowSize = windowSize;
+  }
+
+  /** Creates a HardwareTelemetry with a 20 sample window, 10 seconds at the default period. */
+  public HardwareTelemetry() {
+    this(20);
+  }
+
+  /**
+   * Registers a camera to collect hardware stats from.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   */
+  public void addCamera(String limelightName) {
+    cameras.add(new CameraTelemetry(limelightName, windowSize, fpsFloor));
+  }
+
+  /**
+   * Sets the min time between samples.
+   *
+   * @param samplePeriod The period in seconds, defaults to 0.5
+   */
+  public void setSamplePeriod(double samplePeriod) {
+    this.samplePeriod = samplePeriod;
+  }
+
+  /**
+   * Sets how long a camera can go without publishing its hardware stats before it is stale. The
+   * Limelight publishes them several times a second, so this should be a few sample periods long.
+   *
+   * @param staleTimeout The timeout in seconds, defaults to 2
+   */
+  public void setStaleTimeout(double staleTimeout) {
+    this.staleTimeout = staleTimeout;
+  }
+
+  /**
+   * Sets the average fps below which a camera's alert is raised.
+   *
+   * @param fpsFloor The fps floor, defaults to 0 which never raises an alert
+   */
+  public void setFpsFloor(double fpsFloor) {
+    this.fpsFloor = fpsFloor;
+    for (int i = 0; i < cameras.size(); i++) {
+      cameras.get(i).setAlertText(fpsFloor);
+    }
+  }
+
+  /** Samples and publishes every camera's stats if the sample period has passed. */
+  public void periodic() {
+    update(Timer.getFPGATimestamp());
+  }
+
+  /**
+   * Samples and publishes every camera's stats if the sample period has passed.
+   *
+   * @param timestampSeconds The current time in seconds
+   */
+  public void update(double timestampSeconds) {
+    if (timestampSeconds - lastSampleTime < samplePeriod) {
+      return;
+    }
+    lastSampleTime = timestampSeconds;
+    for (int i = 0; i < cameras.size(); i++) {
+      CameraTelemetry camera = cameras.get(i);
+      camera.sample(timestampSeconds, staleTimeout);
+      camera.belowFpsFloor =
+          fpsFloor > 0 && camera.sampleCount > 0 && camera.getAverage(FPS) < fpsFloor;
+      camera.fpsAlert.set(camera.belowFpsFloor);
+      camera.publish();
+    }
+  }
+
+  /**
+   * Gets the most recent value of a metric.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param metric The index of the metric, such as {@link #FPS}
+   * @return The value, or 0 if there are no samples
+   */
+  public double getLatest(String limelightName, int metric) {
+    CameraTelemetry camera = getCamera(limelightName);
+    return camera == null ? 0 : camera.getLatest(metric);
+  }
+
+  /**
+   * Gets the min of a metric over the window.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param metric The index of the metric, such as {@link #FPS}
+   * @return The min, or 0 if there are no samples
+   */
+  public double getMin(String limelightName, int metric) {
+    CameraTelemetry camera = getCamera(limelightName);
+    return camera == null ? 0 : camera.getMin(metric);
+  }
+
+  /**
+   * Gets the average of a metric over the window.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param metric The index of the metric, such as {@link #FPS}
+   * @return The average, or 0 if there are no samples
+   */
+  public double getAverage(String limelightName, int metric) {
+    CameraTelemetry camera = getCamera(limelightName);
+    return camera == null ? 0 : camera.getAverage(metric);
+  }
+
+  /**
+   * Gets the max of a metric over the window.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param metric The index of the metric, such as {@link #FPS}
+   * @return The max, or 0 if there are no samples
+   */
+  public double getMax(String limelightName, int metric) {
+    CameraTelemetry camera = getCamera(limelightName);
+    return camera == null ? 0 : camera.getMax(metric);
+  }
+
+  /**
+   * Gets the number of samples in a camera's window.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return The number of samples, up to the window size
+   */
+  public int getSampleCount(String limelightName) {
+    CameraTelemetry camera = getCamera(limelightName);
+    return camera == null ? 0 : camera.sampleCount;
+  }
+
+  /**
+   * Gets if a camera's average fps is below the fps floor.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return True if the camera's alert is raised, false otherwise
+   */
+  public boolean isBelowFpsFloor(String limelightName) {
+    CameraTelemetry camera = getCamera(limelightName);
+    return camera != null && camera.belowFpsFloor;
+  }
+
+  /**
+   * Gets if a camera hasn't published its hardware stats for longer than the stale timeout.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return True if the camera's stale alert is raised, false otherwise
+   */
+  public boolean isStale(String limelightName) {
+    CameraTelemetry camera = getCamera(limelightName);
+    return camera != null && camera.isStale;
+  }
+
+  private CameraTelemetry getCamera(String limelightName) {
+    for (int i = 0; i < cameras.size(); i++) {
+      if (cameras.get(i).limelightName.equals(limelightName)) {
+        return cameras.get(i);
+      }
+    }
+    return null;
+  }
+
+  private static class CameraTelemetry {
+    private final String limelightName;
+    private final Alert fpsAlert;
+    private final Alert staleAlert;
+    private boolean belowFpsFloor;
+    private boolean isStale;
+
+    // Resolved again whenever the transport in TigerHelpers or its generation is replaced
+    private LimelightTransport transport;
+    private long generation;
+    private DoubleArrayHandle hw;
+    private final DoubleArrayHandle[] publishers = new DoubleArrayHandle[METRIC_COUNT];
+
+    // METRIC_COUNT values per sample, the oldest sample is overwritten once the window is full
+    private final double[] samples;
+    private final int windowSize;
+    private int nextSample;
+    private int sampleCount;
+    // The transport's timestamp of the last value, and when it changed in update's time
+    private long lastTimestamp;
+    private double lastChangeTime = Double.NEGATIVE_INFINITY;
+    private final double[] lastValue = new double[METRIC_COUNT];
+
+    // [latest, min, average, max], reused since the transport copies it
+    private final double[] publishBuffer = new double[4];
+
+    private CameraTelemetry(String limelightName, int windowSize, double fpsFloor) {
+      this.limelightName = limelightName;
+      this.windowSize = windowSize;
+      samples = new double[windowSize * METRIC_COUNT];
+      fpsAlert = new Alert("TigerHelpers", "", AlertType.kWarning);
+      staleAlert =
+          new Alert(
+              "TigerHelpers",
+              "Limelight " + NTUtils.sanitizeName(limelightName) + " stopped publishing hw stats",
+              AlertType.kWarning);
+      setAlertText(fpsFloor);
+    }
+
+    private void setAlertText(double fpsFloor) {
+      fpsAlert.setText(
+          "Limelight "
+              + NTUtils.sanitizeName(limelightName)
+              + " is averaging below "
+              + fpsFloor
+              + " fps");
+    }
+
+    private void bindTransport() {
+      LimelightTransport currentTransport = TigerHelpers.getTransport();
+      if (currentTransport == transport && currentTransport.getGeneration() == generation) {
+        return;
+      }
+      transport = currentTransport;
+      generation = currentTransport.getGeneration();
+      // Timestamps from the old transport or instance aren't comparable with the new one's
+      lastTimestamp = 0;
+      hw = transport.getDoubleArrayHandle(limelightName, NetworkTablesEntries.HW);
+      String table = "TigerHelpers/HardwareTelemetry/" + NTUtils.sanitizeName(limelightName);
+      for (int i = 0; i < METRIC_COUNT; i++) {
+        publishers[i] = transport.getDoubleArrayHandle(table, METRIC_NAMES[i]);
+      }
+    }
+
+    private void sample(double timestampSeconds, double staleTimeout) {
+      bindTransport();
+      TimestampedDoubleArray value = hw.getAtomic();
+      if (value.timestamp != lastTimestamp && value.value.length >= METRIC_COUNT) {
+        lastTimestamp = value.timestamp;
+        lastChangeTime = timestampSeconds;
+        System.arraycopy(value.value, 0, lastValue, 0, METRIC_COUNT);
+      }
+
+      // Every period is sampled so the stats are evenly weighted over time, and a camera that
+      // stopped publishing counts as 0 fps instead of freezing at its last value
+      int base = nextSample * METRIC_COUNT;
+      System.arraycopy(lastValue, 0, samples, base, METRIC_COUNT);
+      isStale = timestampSeconds - lastChangeTime > staleTimeout;
+      if (isStale) {
+        samples[base + FPS] = 0;
+      }
+      staleAlert.set(isStale);
+      nextSample = (nextSample + 1) % windowSize;
+      if (sampleCount < windowSize) {
+        sampleCount++;
+      }
+    }
+
+    private double getLatest(int metric) {
+      if (sampleCount == 0) {
+        return 0;
+      }
+      int latest = (nextSample + windowSize - 1) % windowSize;
+      return samples[latest * METRIC_COUNT + metric];
+    }
+
+    // Samples fill the buffer from the start, so the first sampleCount samples are always valid
+    private double getMin(int metric) {
+      double min = sampleCount == 0 ? 0 : Double.POSITIVE_INFINITY;
+      for (int i = 0; i < sampleCount; i++) {
+        min = Math.min(min, samples[i * METRIC_COUNT + metric]);
+      }
+      return min;
+    }
+
+    private double getAverage(int metric) {
+      double sum = 0;
+      for (int i = 0; i < sampleCount; i++) {
+        sum += samples[i * METRIC_COUNT + metric];
+      }
+      return sampleCount == 0 ? 0 : sum / sampleCount;
+    }
+
+    private double getMax(int metric) {
+      double max = sampleCount == 0 ? 0 : Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < sampleCount; i++) {
+        max = Math.max(max, samples[i * METRIC_COUNT + metric]);
+      }
+      return max;
+    }
+
+    private void publish() {
+      for (int metric = 0; metric < METRIC_COUNT; metric++) {
+        publishBuffer[0] = getLatest(metric);
+        publishBuffer[1] = getMin(metric);
+        publishBuffer[2] = getAverage(metric);
+        publishBuffer[3] = getMax(metric);
+        publishers[metric].set(publishBuffer);
+      }
+    }
+  }
+}
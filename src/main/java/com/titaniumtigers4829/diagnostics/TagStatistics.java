@@ -0,0 +1,498 @@
+package com.titaniumtigers4829.diagnostics;
+
+import com.titaniumtigers4829.TigerHelpers;
+import com.titaniumtigers4829.data.fiducial.FiducialConstants;
+import com.titaniumtigers4829.data.fiducial.RawFiducial;
+import com.titaniumtigers4829.data.fiducial.TagLayout;
+import com.titaniumtigers4829.transport.DoubleArrayHandle;
+import com.titaniumtigers4829.transport.LimelightTransport;
+import com.titaniumtigers4829.utils.NTUtils;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Timer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps running statistics of every camera's observations of every april tag, to find out at
+ * runtime if a tag's observations are biased, for example from a tag mounted in the wrong place on
+ * the field or a camera pose that is slightly off.
+ *
+ * <p>Each observation is compared against what the camera should have seen from the robot's pose
+ * and the tag's pose in the field layout. The mean and variance of the distance and bearing
+ * residuals are kept with Welford's algorithm, along with the ambiguity distribution and the
+ * fraction of frames each tag was detected in. Everything is stored in primitive arrays indexed by
+ * tag id, so each observation is O(1) and nothing is allocated. The robot's pose should come from
+ * odometry or a well converged pose estimator, not from the same frame. The measured bearing is
+ * built from both txnc and tync and rotated by the camera's roll and pitch, so a tilted camera
+ * doesn't show a bearing bias for tags away from the center of the image.
+ *
+ * <p>The statistics are published through the transport set in {@link TigerHelpers} under
+ * "TigerHelpers/TagStatistics/[camera]" by {@link #periodic()}, at most once per publish period,
+ * as arrays indexed by tag id. This isn't thread safe, so it should only be used from the robot
+ * loop.
+ */
+public class TagStatistics {
+
+  /** The number of buckets in each tag's ambiguity histogram, each covering 0.1 of ambiguity. */
+  public static final int AMBIGUITY_BUCKETS = 10;
+
+  private static final String[] STAT_NAMES = {
+    "observationCount",
+    "detectionRate",
+    "distanceResidualMean",
+    "distanceResidualStdDev",
+    "bearingResidualMean",
+    "bearingResidualStdDev",
+    "ambiguityMean"
+  };
+
+  private final TagLayout tagLayout;
+  private final int slotCount;
+  private final List<CameraStatistics> cameras = new ArrayList<>();
+
+  private double publishPeriod = 1.0;
+  private double lastPublishTime = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Creates a TagStatistics.
+   *
+   * @param fieldLayout The layout of the april tags on the field
+   */
+  public TagStatistics(AprilTagFieldLayout fieldLayout) {
+    this(new TagLayout(fieldLayout));
+  }
+
+  /**
+   * Creates a TagStatistics. Use this if you are sharing a TagLayout between multiple helpers.
+   *
+   * @param tagLayout The layout of the april tags on the field
+   */
+  public TagStatistics(TagLayout tagLayout) {
+    this.tagLayout = tagLayout;
+    this.slotCount = tagLayout.getMaxTagId() + 1;
+  }
+
+  /**
+   * Registers a camera to keep statistics for. The pose should be the same values passed to {@link
+   * TigerHelpers#setCameraPoseRobotSpace}.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param forward Forward offset in meters
+   * @param side Side offset in meters
+   * @param up Up offset in meters
+   * @param roll Roll angle in degrees
+   * @param pitch Pitch angle in degrees
+   * @param yaw Yaw angle in degrees
+   */
+  public void addCamera(
+      String limelightName,
+      double forward,
+      double side,
+      double up,
+      double roll,
+      double pitch,
+      double yaw) {
+    cameras.add(
+        new CameraStatistics(
+            limelightName,
+            forward,
+            side,
+            up,
+            Units.degreesToRadians(roll),
+            Units.degreesToRadians(pitch),
+            Units.degreesToRadians(yaw),
+            slotCount));
+  }
+
+  /**
+   * Registers a camera with no roll or pitch to keep statistics for.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param forward Forward offset in meters
+   * @param side Side offset in meters
+   * @param up Up offset in meters
+   * @param yaw Yaw angle in degrees
+   */
+  public void addCamera(String limelightName, double forward, double side, double up, double yaw) {
+    addCamera(limelightName, forward, side, up, 0, 0, yaw);
+  }
+
+  /**
+   * Sets the min time between publishes to NetworkTables.
+   *
+   * @param publishPeriod The period in seconds, defaults to 1
+   */
+  public void setPublishPeriod(double publishPeriod) {
+    this.publishPeriod = publishPeriod;
+  }
+
+  /**
+   * Adds a frame of observations from a camera.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param rawFiducials The raw fiducials from the frame
+   * @param robotPose The robot's pose when the frame was captured, with the blue-side origin
+   */
+  public void update(String limelightName, RawFiducial[] rawFiducials, Pose2d robotPose) {
+    CameraStatistics camera = getCamera(limelightName);
+    startFrame(camera, robotPose.getX(), robotPose.getY(), robotPose.getRotation().getRadians());
+    for (RawFiducial rawFiducial : rawFiducials) {
+      addObservation(
+          camera,
+          rawFiducial.id(),
+          rawFiducial.txnc(),
+          rawFiducial.tync(),
+          rawFiducial.distToCamera(),
+          rawFiducial.ambiguity());
+    }
+  }
+
+  /**
+   * Adds a frame of observations from a flattened raw fiducial array, such as the "rawfiducials"
+   * entry or the fiducials at the end of a botpose entry. This avoids creating {@link RawFiducial}
+   * objects entirely.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param rawFiducialArray The flattened raw fiducial data
+   * @param offset The index of the first fiducial's id in the array, 0 for "rawfiducials" and 11
+   *     for a botpose entry
+   * @param robotX The robot's x position with the blue-side origin in meters
+   * @param robotY The robot's y position with the blue-side origin in meters
+   * @param robotYaw The robot's yaw with the blue-side origin in degrees
+   */
+  public void update(
+      String limelightName,
+      double[] rawFiducialArray,
+      int offset,
+      double robotX,
+      double robotY,
+      double robotYaw) {
+    CameraStatistics camera = getCamera(limelightName);
+    startFrame(camera, robotX, robotY, Units.degreesToRadians(robotYaw));
+    for (int baseIndex = offset;
+        baseIndex + FiducialConstants.FIDUCIAL_DATA_SIZE <= rawFiducialArray.length;
+        baseIndex += FiducialConstants.FIDUCIAL_DATA_SIZE) {
+      addObservation(
+          camera,
+          (int) rawFiducialArray[baseIndex],
+          rawFiducialArray[baseIndex + 1],
+          rawFiducialArray[baseIndex + 2],
+          rawFiducialArray[baseIndex + 4],
+          rawFiducialArray[baseIndex + 6]);
+    }
+  }
+
+  /** Publishes the statistics to NetworkTables if the publish period has passed. */
+  public void periodic() {
+    double now = Timer.getFPGATimestamp();
+    if (now - lastPublishTime < publishPeriod) {
+      return;
+    }
+    lastPublishTime = now;
+    publish();
+  }
+
+  /** Publishes the statistics to NetworkTables immediately. */
+  public void publish() {
+    for (int i = 0; i < cameras.size(); i++) {
+      cameras.get(i).publish();
+    }
+  }
+
+  /**
+   * Gets the number of times a camera has seen a tag.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param id The id of the tag
+   * @return The number of observations
+   */
+  public long getObservationCount(String limelightName, int id) {
+    return isValidId(id) ? getCamera(limelightName).observationCounts[id] : 0;
+  }
+
+  /**
+   * Gets the fraction of a camera's frames that a tag was seen in.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param id The id of the tag
+   * @return The detection rate, from 0 to 1
+   */
+  public double getDetectionRate(String limelightName, int id) {
+    CameraStatistics camera = getCamera(limelightName);
+    return camera.getDetectionRate(id);
+  }
+
+  /**
+   * Gets the mean difference between the measured and expected distance from a camera to a tag.
+   * This should be close to 0, a consistent offset means the tag or camera is in the wrong place.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param id The id of the tag
+   * @return The mean distance residual in meters
+   */
+  public double getDistanceResidualMean(String limelightName, int id) {
+    return isValidId(id) ? getCamera(limelightName).distanceMeans[id] : 0;
+  }
+
+  /**
+   * Gets the standard deviation of the difference between the measured and expected distance from
+   * a camera to a tag.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param id The id of the tag
+   * @return The standard deviation in meters
+   */
+  public double getDistanceResidualStdDev(String limelightName, int id) {
+    CameraStatistics camera = getCamera(limelightName);
+    return isValidId(id) ? stdDev(camera.distanceM2s[id], camera.observationCounts[id]) : 0;
+  }
+
+  /**
+   * Gets the mean difference between the measured and expected horizontal angle from a camera to a
+   * tag. A consistent offset across every tag usually means the camera's yaw is wrong.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param id The id of the tag
+   * @return The mean bearing residual in degrees, positive if the tag appears further right
+   */
+  public double getBearingResidualMean(String limelightName, int id) {
+    return isValidId(id) ? getCamera(limelightName).bearingMeans[id] : 0;
+  }
+
+  /**
+   * Gets the standard deviation of the difference between the measured and expected horizontal
+   * angle from a camera to a tag.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param id The id of the tag
+   * @return The standard deviation in degrees
+   */
+  public double getBearingResidualStdDev(String limelightName, int id) {
+    CameraStatistics camera = getCamera(limelightName);
+    return isValidId(id) ? stdDev(camera.bearingM2s[id], camera.observationCounts[id]) : 0;
+  }
+
+  /**
+   * Gets the mean ambiguity of a camera's observations of a tag.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param id The id of the tag
+   * @return The mean ambiguity, from 0 to 1
+   */
+  public double getAmbiguityMean(String limelightName, int id) {
+    return isValidId(id) ? getCamera(limelightName).ambiguityMeans[id] : 0;
+  }
+
+  /**
+   * Gets the number of a camera's observations of a tag that fell into an ambiguity bucket.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param id The id of the tag
+   * @param bucket The bucket, from 0 to {@link #AMBIGUITY_BUCKETS} - 1. Bucket n covers an
+   *     ambiguity of n / 10 to (n + 1) / 10.
+   * @return The number of observations in the bucket, or 0 if the id or bucket is out of range
+   */
+  public long getAmbiguityCount(String limelightName, int id, int bucket) {
+    if (!isValidId(id) || bucket < 0 || bucket >= AMBIGUITY_BUCKETS) {
+      return 0;
+    }
+    return getCamera(limelightName).ambiguityHistograms[id * AMBIGUITY_BUCKETS + bucket];
+  }
+
+  /** Clears the statistics of every camera. */
+  public void reset() {
+    for (int i = 0; i < cameras.size(); i++) {
+      cameras.get(i).reset();
+    }
+  }
+
+  private void startFrame(
+      CameraStatistics camera, double robotX, double robotY, double robotHeading) {
+    double cos = Math.cos(robotHeading);
+    double sin = Math.sin(robotHeading);
+    camera.fieldX = robotX + camera.forward * cos - camera.side * sin;
+    camera.fieldY = robotY + camera.forward * sin + camera.side * cos;
+    camera.fieldHeading = robotHeading + camera.yawRadians;
+    camera.frameCount++;
+  }
+
+  private void addObservation(
+      CameraStatistics camera,
+      int id,
+      double txnc,
+      double tync,
+      double distToCamera,
+      double ambiguity) {
+    if (!tagLayout.hasTag(id)) {
+      return;
+    }
+
+    double dx = tagLayout.getX(id) - camera.fieldX;
+    double dy = tagLayout.getY(id) - camera.fieldY;
+    double dz = tagLayout.getZ(id) - camera.up;
+    double expectedDistance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+    // txnc is positive to the right, which is a clockwise bearing
+    double expectedTxnc =
+        -Units.radiansToDegrees(MathUtil.angleModulus(Math.atan2(dy, dx) - camera.fieldHeading));
+    // The horizontal bearing of the direction to the tag once the camera's roll and pitch are
+    // removed, the same as SingleTagEstimator, so it is comparable with the expected bearing
+    double rayY = -Math.tan(Units.degreesToRadians(txnc));
+    double rayZ = Math.tan(Units.degreesToRadians(tync));
+    double rolledY = rayY * camera.rollCos - rayZ * camera.rollSin;
+    double rolledZ = rayY * camera.rollSin + rayZ * camera.rollCos;
+    double pitchedX = camera.pitchCos - rolledZ * camera.pitchSin;
+    double measuredTxnc = -Units.radiansToDegrees(Math.atan2(rolledY, pitchedX));
+
+    long count = ++camera.observationCounts[id];
+    // Welford's algorithm
+    double distanceResidual = distToCamera - expectedDistance;
+    double distanceDelta = distanceResidual - camera.distanceMeans[id];
+    camera.distanceMeans[id] += distanceDelta / count;
+    camera.distanceM2s[id] += distanceDelta * (distanceResidual - camera.distanceMeans[id]);
+
+    double bearingResidual = measuredTxnc - expectedTxnc;
+    double bearingDelta = bearingResidual - camera.bearingMeans[id];
+    camera.bearingMeans[id] += bearingDelta / count;
+    camera.bearingM2s[id] += bearingDelta * (bearingResidual - camera.bearingMeans[id]);
+
+    camera.ambiguityMeans[id] += (ambiguity - camera.ambiguityMeans[id]) / count;
+    int bucket = (int) MathUtil.clamp(ambiguity * AMBIGUITY_BUCKETS, 0, AMBIGUITY_BUCKETS - 1);
+    camera.ambiguityHistograms[id * AMBIGUITY_BUCKETS + bucket]++;
+  }
+
+  private CameraStatistics getCamera(String limelightName) {
+    for (int i = 0; i < cameras.size(); i++) {
+      if (cameras.get(i).limelightName.equals(limelightName)) {
+        return cameras.get(i);
+      }
+    }
+    throw new IllegalArgumentException("Camera " + limelightName + " was never added");
+  }
+
+  private boolean isValidId(int id) {
+    return id >= 0 && id < slotCount;
+  }
+
+  private static double stdDev(double m2, long count) {
+    return count < 2 ? 0 : Math.sqrt(m2 / (count - 1));
+  }
+
+  private static class CameraStatistics {
+    private final String limelightName;
+    private final double forward;
+    private final double side;
+    private final double up;
+    private final double rollSin;
+    private final double rollCos;
+    private final double pitchSin;
+    private final double pitchCos;
+    private final double yawRadians;
+
+    private final long[] observationCounts;
+    private final double[] distanceMeans;
+    private final double[] distanceM2s;
+    private final double[] bearingMeans;
+    private final double[] bearingM2s;
+    private final double[] ambiguityMeans;
+    private final long[] ambiguityHistograms;
+    private long frameCount;
+
+    // The camera's pose on the field for the current frame
+    private double fieldX;
+    private double fieldY;
+    private double fieldHeading;
+
+    // Resolved again whenever the transport in TigerHelpers or its generation is replaced
+    private LimelightTransport transport;
+    private long generation;
+    private final DoubleArrayHandle[] publishers = new DoubleArrayHandle[STAT_NAMES.length];
+    // Reused since the transport copies it
+    private final double[] publishBuffer;
+
+    private CameraStatistics(
+        String limelightName,
+        double forward,
+        double side,
+        double up,
+        double rollRadians,
+        double pitchRadians,
+        double yawRadians,
+        int slotCount) {
+      this.limelightName = limelightName;
+      this.forward = forward;
+      this.side = side;
+      this.up = up;
+      rollSin = Math.sin(rollRadians);
+      rollCos = Math.cos(rollRadians);
+      pitchSin = Math.sin(pitchRadians);
+      pitchCos = Math.cos(pitchRadians);
+      this.yawRadians = yawRadians;
+      publishBuffer = new double[slotCount];
+      observationCounts = new long[slotCount];
+      distanceMeans = new double[slotCount];
+      distanceM2s = new double[slotCount];
+      bearingMeans = new double[slotCount];
+      bearingM2s = new double[slotCount];
+      ambiguityMeans = new double[slotCount];
+      ambiguityHistograms = new long[slotCount * AMBIGUITY_BUCKETS];
+    }
+
+    private double getDetectionRate(int id) {
+      if (id < 0 || id >= observationCounts.length || frameCount == 0) {
+        return 0;
+      }
+      return (double) observationCounts[id] / frameCount;
+    }
+
+    private void bindTransport() {
+      LimelightTransport currentTransport = TigerHelpers.getTransport();
+      if (currentTransport == transport && currentTransport.getGeneration() == generation) {
+        return;
+      }
+      transport = currentTransport;
+      generation = currentTransport.getGeneration();
+      String table = "TigerHelpers/TagStatistics/" + NTUtils.sanitizeName(limelightName);
+      for (int i = 0; i < STAT_NAMES.length; i++) {
+        publishers[i] = transport.getDoubleArrayHandle(table, STAT_NAMES[i]);
+      }
+    }
+
+    private void publish() {
+      bindTransport();
+      int slotCount = observationCounts.length;
+      for (int stat = 0; stat < publishers.length; stat++) {
+        for (int id = 0; id < slotCount; id++) {
+          publishBuffer[id] =
+              switch (stat) {
+                case 0 -> observationCounts[id];
+                case 1 -> getDetectionRate(id);
+                case 2 -> distanceMeans[id];
+                case 3 -> stdDev(distanceM2s[id], observationCounts[id]);
+                case 4 -> bearingMeans[id];
+                case 5 -> stdDev(bearingM2s[id], observationCounts[id]);
+                default -> ambiguityMeans[id];
+              };
+        }
+        publishers[stat].set(publishBuffer);
+      }
+    }
+
+    private void reset() {
+      for (int id = 0; id < observationCounts.length; id++) {
+        observationCounts[id] = 0;
+        distanceMeans[id] = 0;
+        distanceM2s[id] = 0;
+        bearingMeans[id] = 0;
+        bearingM2s[id] = 0;
+        ambiguityMeans[id] = 0;
+      }
+      for (int i = 0; i < ambiguityHistograms.length; i++) {
+        ambiguityHistograms[i] = 0;
+      }
+      frameCount = 0;
+    }
+  }
+}
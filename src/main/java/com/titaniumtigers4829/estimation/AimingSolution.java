@@ -0,0 +1,248 @@
+package com.titaniumtigers4829.estimation;
+
+import edu.wpi.first.math.util.Units;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * The geometry needed to aim at the currently tracked april tag, decoded straight from the
+ * "targetpose_robotspace" and "botpose_targetspace" arrays into primitives. Unlike {@link
+ * com.titaniumtigers4829.TigerHelpers#getTargetPose3d_RobotSpace} and {@link
+ * com.titaniumtigers4829.TigerHelpers#getBotPose3d_TargetSpace}, no poses are created, so one
+ * solution can be reused and updated at a high rate, for example at 200Hz from a Notifier.
+ *
+ * <p>After the geometry is updated, {@link #compensate(double, double, double, double)} moves the
+ * target forward to account for latency and leads it by the robot's velocity over the
+ * projectile's time of flight, for shooting on the move. Robot space is +X forward and +Y left,
+ * like the rest of TigerHelpers.
+ *
+ * <pre>{@code
+ * AimingSolution solution = new AimingSolution();
+ * solution.setTimeOfFlight(distance -> 0.2 + 0.08 * distance);
+ *
+ * // In the Notifier
+ * if (camera.getAimingSolution(solution)) {
+ *   double age = Timer.getFPGATimestamp() - camera.getLatencyModel().getCaptureTimestampSeconds();
+ *   solution.compensate(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond,
+ *       speeds.omegaRadiansPerSecond, age);
+ *   turret.setAngle(solution.getAimAngle());
+ * }
+ * }</pre>
+ *
+ * <p>This isn't thread safe, so each thread should use its own solution.
+ */
+public class AimingSolution {
+
+  private static final int LEAD_ITERATIONS = 4;
+
+  private DoubleUnaryOperator timeOfFlight = distance -> 0;
+
+  private boolean isValid;
+  private double targetX;
+  private double targetY;
+  private double targetZ;
+  private double horizontalDistance;
+  private double distance;
+  private double bearingRadians;
+  private double elevationRadians;
+  private double skewRadians;
+
+  private double aimX;
+  private double aimY;
+  private double aimTimeOfFlight;
+
+  /**
+   * Sets how long the projectile takes to reach the target. This is only used by {@link
+   * #compensate(double, double, double, double)}.
+   *
+   * @param timeOfFlight Takes the horizontal distance to the target in meters and returns the time
+   *     of flight in seconds. Create this once, not every loop.
+   */
+  public void setTimeOfFlight(DoubleUnaryOperator timeOfFlight) {
+    this.timeOfFlight = timeOfFlight;
+  }
+
+  /**
+   * Sets a constant horizontal projectile speed, so the time of flight is the distance divided by
+   * the speed.
+   *
+   * @param projectileSpeed The horizontal speed of the projectile in meters per second
+   */
+  public void setProjectileSpeed(double projectileSpeed) {
+    this.timeOfFlight = distance -> distance / projectileSpeed;
+  }
+
+  /**
+   * Updates the geometry from the targetspace arrays. The lead compensated aim is reset to aim
+   * straight at the target.
+   *
+   * @param targetPoseRobotSpace The "targetpose_robotspace" array, [x, y, z, roll, pitch, yaw]
+   * @param botPoseTargetSpace The "botpose_targetspace" array, [x, y, z, roll, pitch, yaw], or an
+   *     empty array if the skew isn't needed
+   * @return True if a target is being tracked, false otherwise
+   */
+  public boolean update(double[] targetPoseRobotSpace, double[] botPoseTargetSpace) {
+    // The Limelight publishes all zeros when it doesn't have a target
+    if (targetPoseRobotSpace.length < 6
+        || (targetPoseRobotSpace[0] == 0
+            && targetPoseRobotSpace[1] == 0
+            && targetPoseRobotSpace[2] == 0)) {
+      invalidate();
+      return false;
+    }
+
+    targetX = targetPoseRobotSpace[0];
+    targetY = targetPoseRobotSpace[1];
+    targetZ = targetPoseRobotSpace[2];
+    horizontalDistance = Math.hypot(targetX, targetY);
+    distance = Math.hypot(horizontalDistance, targetZ);
+    bearingRadians = Math.atan2(targetY, targetX);
+    elevationRadians = Math.atan2(targetZ, horizontalDistance);
+
+    // In target space x is to the right of the tag and z is out of its face
+    skewRadians =
+        botPoseTargetSpace.length >= 6
+            ? Math.atan2(botPoseTargetSpace[0], Math.abs(botPoseTargetSpace[2]))
+            : 0;
+
+    aimX = targetX;
+    aimY = targetY;
+    aimTimeOfFlight = timeOfFlight.applyAsDouble(horizontalDistance);
+    isValid = true;
+    return true;
+  }
+
+  /**
+   * Compensates the aim for latency and the robot's motion. The target is first moved to where it
+   * is relative to the robot now, rather than when the frame was captured, then the aim point is
+   * moved against the robot's velocity by the projectile's time of flight, since the projectile
+   * keeps the robot's velocity. The time of flight depends on the distance to the aim point, so
+   * this is iterated a few times to converge.
+   *
+   * @param vx The robot's forward velocity in meters per second
+   * @param vy The robot's leftward velocity in meters per second
+   * @param omega The robot's counterclockwise angular velocity in radians per second
+   * @param latencySeconds The time since the frame was captured, in seconds
+   */
+  public void compensate(double vx, double vy, double omega, double latencySeconds) {
+    if (!isValid) {
+      return;
+    }
+
+    // Moves the target into the robot's current frame
+    double movedX = targetX - vx * latencySeconds;
+    double movedY = targetY - vy * latencySeconds;
+    double rotation = -omega * latencySeconds;
+    double cos = Math.cos(rotation);
+    double sin = Math.sin(rotation);
+    double currentX = movedX * cos - movedY * sin;
+    double currentY = movedX * sin + movedY * cos;
+
+    aimX = currentX;
+    aimY = currentY;
+    for (int i = 0; i < LEAD_ITERATIONS; i++) {
+      aimTimeOfFlight = timeOfFlight.applyAsDouble(Math.hypot(aimX, aimY));
+      aimX = currentX - vx * aimTimeOfFlight;
+      aimY = currentY - vy * aimTimeOfFlight;
+    }
+  }
+
+  /**
+   * Gets if a target is being tracked.
+   *
+   * @return True if the solution is valid, false otherwise
+   */
+  public boolean isValid() {
+    return isValid;
+  }
+
+  /**
+   * Gets the straight line distance from the robot to the target.
+   *
+   * @return The distance in meters
+   */
+  public double getDistance() {
+    return distance;
+  }
+
+  /**
+   * Gets the distance from the robot to the target along the floor.
+   *
+   * @return The horizontal distance in meters
+   */
+  public double getHorizontalDistance() {
+    return horizontalDistance;
+  }
+
+  /**
+   * Gets the angle from the robot's forward direction to the target.
+   *
+   * @return The bearing in degrees, counterclockwise positive
+   */
+  public double getBearing() {
+    return Units.radiansToDegrees(bearingRadians);
+  }
+
+  /**
+   * Gets the angle from the floor up to the target, as seen from the robot's origin.
+   *
+   * @return The elevation in degrees
+   */
+  public double getElevation() {
+    return Units.radiansToDegrees(elevationRadians);
+  }
+
+  /**
+   * Gets the angle between the tag's face and the line from the tag to the robot. This is 0 when
+   * the robot is directly in front of the tag.
+   *
+   * @return The skew in degrees, positive when the robot is to the right of the tag as seen when
+   *     facing it
+   */
+  public double getSkew() {
+    return Units.radiansToDegrees(skewRadians);
+  }
+
+  /**
+   * Gets the angle the robot should aim at, after {@link #compensate(double, double, double,
+   * double)}. Before compensating this is the same as the bearing.
+   *
+   * @return The aim angle in degrees, counterclockwise positive from the robot's forward direction
+   */
+  public double getAimAngle() {
+    return Units.radiansToDegrees(Math.atan2(aimY, aimX));
+  }
+
+  /**
+   * Gets the horizontal distance to the aim point. This is the distance to use for shooter lookup
+   * tables when shooting on the move.
+   *
+   * @return The distance in meters
+   */
+  public double getAimDistance() {
+    return Math.hypot(aimX, aimY);
+  }
+
+  /**
+   * Gets the projectile's time of flight to the aim point.
+   *
+   * @return The time of flight in seconds
+   */
+  public double getTimeOfFlight() {
+    return aimTimeOfFlight;
+  }
+
+  private void invalidate() {
+    isValid = false;
+    targetX = 0;
+    targetY = 0;
+    targetZ = 0;
+    horizontalDistance = 0;
+    distance = 0;
+    bearingRadians = 0;
+    elevationRadians = 0;
+    skewRadians = 0;
+    aimX = 0;
+    aimY = 0;
+    aimTimeOfFlight = 0;
+  }
+}
@@ -0,0 +1,182 @@
+package com.titaniumtigers4829.estimation;
+
+import com.titaniumtigers4829.data.fiducial.FiducialConstants;
+import com.titaniumtigers4829.data.fiducial.TagCorners;
+
+/**
+ * A camera's intrinsics from calibration: the focal lengths and principal point in pixels, and the
+ * Brown-Conrady distortion coefficients (k1, k2, p1, p2, k3), in the same order as OpenCV and the
+ * Limelight's calibration results.
+ *
+ * <p>{@link #undistort(double[], int, double[], int, int)} turns pixel coordinates into normalized
+ * image coordinates, where a point (x, y) is the direction (x, y, 1) from the camera with the lens
+ * distortion removed. These are what a least squares solver should work in, since the result no
+ * longer depends on the camera, so corners from several cameras can be written into one buffer and
+ * solved together without creating any objects.
+ */
+public class CameraIntrinsics {
+
+  // Enough for the fixed point iteration to converge for any lens a Limelight ships with
+  private static final int UNDISTORT_ITERATIONS = 10;
+
+  private final double fx;
+  private final double fy;
+  private final double cx;
+  private final double cy;
+  private final double k1;
+  private final double k2;
+  private final double p1;
+  private final double p2;
+  private final double k3;
+
+  /**
+   * Creates CameraIntrinsics.
+   *
+   * @param fx The horizontal focal length in pixels
+   * @param fy The vertical focal length in pixels
+   * @param cx The horizontal principal point in pixels
+   * @param cy The vertical principal point in pixels
+   * @param k1 The first radial distortion coefficient
+   * @param k2 The second radial distortion coefficient
+   * @param p1 The first tangential distortion coefficient
+   * @param p2 The second tangential distortion coefficient
+   * @param k3 The third radial distortion coefficient
+   */
+  public CameraIntrinsics(
+      double fx,
+      double fy,
+      double cx,
+      double cy,
+      double k1,
+      double k2,
+      double p1,
+      double p2,
+      double k3) {
+    this.fx = fx;
+    this.fy = fy;
+    this.cx = cx;
+    this.cy = cy;
+    this.k1 = k1;
+    this.k2 = k2;
+    this.p1 = p1;
+    this.p2 = p2;
+    this.k3 = k3;
+  }
+
+  /**
+   * Creates CameraIntrinsics for a camera without distortion.
+   *
+   * @param fx The horizontal focal length in pixels
+   * @param fy The vertical focal length in pixels
+   * @param cx The horizontal principal point in pixels
+   * @param cy The vertical principal point in pixels
+   */
+  public CameraIntrinsics(double fx, double fy, double cx, double cy) {
+    this(fx, fy, cx, cy, 0, 0, 0, 0, 0);
+  }
+
+  /**
+   * Undistorts and normalizes points. The input and result can be the same array to undistort in
+   * place.
+   *
+   * @param pixels The points in pixels, [x0, y0, x1, y1, ...]
+   * @param pixelOffset The index of the first point's x in pixels
+   * @param result The array to write the normalized points to
+   * @param resultOffset The index to write the first point's x to in result
+   * @param pointCount The number of points
+   */
+  public void undistort(
+      double[] pixels, int pixelOffset, double[] result, int resultOffset, int pointCount) {
+    boolean hasDistortion = k1 != 0 || k2 != 0 || p1 != 0 || p2 != 0 || k3 != 0;
+    for (int i = 0; i < pointCount; i++) {
+      double distortedX = (pixels[pixelOffset + i * 2] - cx) / fx;
+      double distortedY = (pixels[pixelOffset + i * 2 + 1] - cy) / fy;
+      double x = distortedX;
+      double y = distortedY;
+      if (hasDistortion) {
+        // Inverts the distortion with a fixed point iteration, the same way OpenCV does
+        for (int j = 0; j < UNDISTORT_ITERATIONS; j++) {
+          double r2 = x * x + y * y;
+          double inverseRadial = 1.0 / (1.0 + ((k3 * r2 + k2) * r2 + k1) * r2);
+          double deltaX = 2 * p1 * x * y + p2 * (r2 + 2 * x * x);
+          double deltaY = p1 * (r2 + 2 * y * y) + 2 * p2 * x * y;
+          x = (distortedX - deltaX) * inverseRadial;
+          y = (distortedY - deltaY) * inverseRadial;
+        }
+      }
+      result[resultOffset + i * 2] = x;
+      result[resultOffset + i * 2 + 1] = y;
+    }
+  }
+
+  /**
+   * Undistorts and normalizes every corner of every tag, in the same order as {@link
+   * TagCorners#getRawCorners()}.
+   *
+   * @param corners The tag corners from this camera
+   * @param result The array to write the normalized corners to, which needs room for 8 values per
+   *     tag after the offset
+   * @param resultOffset The index to write the first corner's x to in result
+   * @return The number of values written, so the next camera's corners can be written after them
+   */
+  public int undistort(TagCorners corners, double[] result, int resultOffset) {
+    int pointCount = corners.getTagCount() * FiducialConstants.CORNER_DATA_SIZE / 2;
+    undistort(corners.getRawCorners(), 0, result, resultOffset, pointCount);
+    return pointCount * 2;
+  }
+
+  /**
+   * Distorts a normalized point and writes its pixel coordinates, the inverse of {@link
+   * #undistort(double[], int, double[], int, int)}. This is useful for computing reprojection
+   * errors.
+   *
+   * @param x The normalized x coordinate
+   * @param y The normalized y coordinate
+   * @param result The array to write the pixel coordinates to
+   * @param resultOffset The index to write the x coordinate to in result
+   */
+  public void project(double x, double y, double[] result, int resultOffset) {
+    double r2 = x * x + y * y;
+    double radial = 1.0 + ((k3 * r2 + k2) * r2 + k1) * r2;
+    double distortedX = x * radial + 2 * p1 * x * y + p2 * (r2 + 2 * x * x);
+    double distortedY = y * radial + p1 * (r2 + 2 * y * y) + 2 * p2 * x * y;
+    result[resultOffset] = distortedX * fx + cx;
+    result[resultOffset + 1] = distortedY * fy + cy;
+  }
+
+  /**
+   * Gets the horizontal focal length.
+   *
+   * @return The focal length in pixels
+   */
+  public double getFx() {
+    return fx;
+  }
+
+  /**
+   * Gets the vertical focal length.
+   *
+   * @return The focal length in pixels
+   */
+  public double getFy() {
+    return fy;
+  }
+
+  /**
+   * Gets the horizontal principal point.
+   *
+   * @return The principal point in pixels
+   */
+  public double getCx() {
+    return cx;
+  }
+
+  /**
+   * Gets the vertical principal point.
+   *
+   * @return The principal point in pixels
+   */
+  public double getCy() {
+    return cy;
+  }
+}
@@ -0,0 +1,466 @@
+package com.titaniumtigers4829.estimation;
+
+import com.titaniumtigers4829.TigerHelpers;
+import com.titaniumtigers4829.data.fiducial.FiducialConstants;
+import com.titaniumtigers4829.data.fiducial.RawFiducial;
+import com.titaniumtigers4829.data.fiducial.TagLayout;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.util.Units;
+
+/**
+ * Solves for a camera's pose relative to the robot from april tag observations taken while the
+ * robot's pose is known, for example with the robot placed at a measured spot, or from a
+ * high-confidence multi-camera estimate during practice. This replaces measuring each camera by
+ * hand, where any error shows up as pose bias.
+ *
+ * <p>Every observation gives the tag's position relative to the camera, from its txnc, tync, and
+ * distance, and relative to the robot, from the robot's pose and the field layout. The camera pose
+ * is the rigid transform that best maps the first set of points onto the second in the least
+ * squares sense, which is solved in closed form with Horn's quaternion method. Only running sums
+ * are kept, so adding a frame is O(tags) without allocating, and {@link #solve()} is O(1) no matter
+ * how many frames have been added. One calibrator should be created per camera.
+ *
+ * <p>The solved pose uses the same conventions as the rest of TigerHelpers: forward is +X, side is
+ * +Y to the left, up is +Z, yaw is counterclockwise, and pitch is positive when the camera is
+ * tilted up. The observations need to be spread across the image and at different distances for
+ * the solution to be well conditioned.
+ */
+public class ExtrinsicCalibrator {
+
+  private final TagLayout tagLayout;
+
+  private double maxAmbiguity = 0.2;
+  private double maxDistance = 5.0;
+  private int minObservations = 50;
+
+  // Running sums of the tag positions in camera space and robot space
+  private long observationCount;
+  private final double[] cameraSum = new double[3];
+  private final double[] robotSum = new double[3];
+  // Sum of camera[a] * robot[b], stored at a * 3 + b
+  private final double[] crossSum = new double[9];
+  private double cameraSquaredSum;
+  private double robotSquaredSum;
+
+  // Reused by solve()
+  private final double[] horn = new double[16];
+  private final double[] squared = new double[16];
+  private final double[] quaternion = new double[4];
+  private final double[] rotation = new double[9];
+
+  private boolean isSolved;
+  private double forward;
+  private double side;
+  private double up;
+  private double roll;
+  private double pitch;
+  private double yaw;
+  private double rmsError;
+
+  /**
+   * Creates an ExtrinsicCalibrator.
+   *
+   * @param fieldLayout The layout of the april tags on the field
+   */
+  public ExtrinsicCalibrator(AprilTagFieldLayout fieldLayout) {
+    this(new TagLayout(fieldLayout));
+  }
+
+  /**
+   * Creates an ExtrinsicCalibrator. Use this if you are sharing a TagLayout between multiple
+   * helpers.
+   *
+   * @param tagLayout The layout of the april tags on the field
+   */
+  public ExtrinsicCalibrator(TagLayout tagLayout) {
+    this.tagLayout = tagLayout;
+  }
+
+  /**
+   * Sets the max ambiguity an observation can have to be used.
+   *
+   * @param maxAmbiguity The max ambiguity, from 0 to 1, defaults to 0.2
+   */
+  public void setMaxAmbiguity(double maxAmbiguity) {
+    this.maxAmbiguity = maxAmbiguity;
+  }
+
+  /**
+   * Sets the max distance from the camera an observation can be to be used. Distant tags are
+   * noisier.
+   *
+   * @param maxDistance The max distance in meters, defaults to 5
+   */
+  public void setMaxDistance(double maxDistance) {
+    this.maxDistance = maxDistance;
+  }
+
+  /**
+   * Sets the number of observations needed before the camera pose can be solved for.
+   *
+   * @param minObservations The number of observations, defaults to 50
+   */
+  public void setMinObservations(int minObservations) {
+    this.minObservations = minObservations;
+  }
+
+  /**
+   * Adds a frame of observations taken at a known robot pose.
+   *
+   * @param rawFiducials The raw fiducials from the frame
+   * @param robotPose The robot's pose when the frame was captured, with the blue-side origin
+   */
+  public void addFrame(RawFiducial[] rawFiducials, Pose2d robotPose) {
+    double heading = robotPose.getRotation().getRadians();
+    double cos = Math.cos(heading);
+    double sin = Math.sin(heading);
+    for (RawFiducial rawFiducial : rawFiducials) {
+      addObservation(
+          rawFiducial.id(),
+          rawFiducial.txnc(),
+          rawFiducial.tync(),
+          rawFiducial.distToCamera(),
+          rawFiducial.ambiguity(),
+          robotPose.getX(),
+          robotPose.getY(),
+          cos,
+          sin);
+    }
+  }
+
+  /**
+   * Adds a frame of observations taken at a known robot pose from a flattened raw fiducial array,
+   * such as the "rawfiducials" entry or the fiducials at the end of a botpose entry.
+   *
+   * @param rawFiducialArray The flattened raw fiducial data
+   * @param offset The index of the first fiducial's id in the array, 0 for "rawfiducials" and 11
+   *     for a botpose entry
+   * @param robotX The robot's x position with the blue-side origin in meters
+   * @param robotY The robot's y position with the blue-side origin in meters
+   * @param robotYaw The robot's yaw with the blue-side origin in degrees
+   */
+  public void addFrame(
+      double[] rawFiducialArray, int offset, double robotX, double robotY, double robotYaw) {
+    double heading = Units.degreesToRadians(robotYaw);
+    double cos = Math.cos(heading);
+    double sin = Math.sin(heading);
+    for (int baseIndex = offset;
+        baseIndex + FiducialConstants.FIDUCIAL_DATA_SIZE <= rawFiducialArray.length;
+        baseIndex += FiducialConstants.FIDUCIAL_DATA_SIZE) {
+      addObservation(
+          (int) rawFiducialArray[baseIndex],
+          rawFiducialArray[baseIndex + 1],
+          rawFiducialArray[baseIndex + 2],
+          rawFiducialArray[baseIndex + 4],
+          rawFiducialArray[baseIndex + 6],
+          robotX,
+          robotY,
+          cos,
+          sin);
+    }
+  }
+
+  /**
+   * Solves for the camera pose from every observation added so far. This can be called as often as
+   * needed, for example every few seconds during practice.
+   *
+   * @return True if the camera pose was solved, false if there aren't enough observations yet
+   */
+  public boolean solve() {
+    if (observationCount < Math.max(minObservations, 3)) {
+      return false;
+    }
+
+    // Centers the sums on the means of each set of points
+    double n = observationCount;
+    double[] cameraMean = {cameraSum[0] / n, cameraSum[1] / n, cameraSum[2] / n};
+    double[] robotMean = {robotSum[0] / n, robotSum[1] / n, robotSum[2] / n};
+    double sxx = crossSum[0] - n * cameraMean[0] * robotMean[0];
+    double sxy = crossSum[1] - n * cameraMean[0] * robotMean[1];
+    double sxz = crossSum[2] - n * cameraMean[0] * robotMean[2];
+    double syx = crossSum[3] - n * cameraMean[1] * robotMean[0];
+    double syy = crossSum[4] - n * cameraMean[1] * robotMean[1];
+    double syz = crossSum[5] - n * cameraMean[1] * robotMean[2];
+    double szx = crossSum[6] - n * cameraMean[2] * robotMean[0];
+    double szy = crossSum[7] - n * cameraMean[2] * robotMean[1];
+    double szz = crossSum[8] - n * cameraMean[2] * robotMean[2];
+
+    // The rotation is the eigenvector of Horn's matrix with the largest eigenvalue
+    setRow(horn, 0, sxx + syy + szz, syz - szy, szx - sxz, sxy - syx);
+    setRow(horn, 1, syz - szy, sxx - syy - szz, sxy + syx, szx + sxz);
+    setRow(horn, 2, szx - sxz, sxy + syx, -sxx + syy - szz, syz + szy);
+    setRow(horn, 3, sxy - syx, szx + sxz, syz + szy, -sxx - syy + szz);
+    if (!findLargestEigenvector()) {
+      return false;
+    }
+    toRotationMatrix();
+
+    double[] r = rotation;
+    forward = robotMean[0] - (r[0] * cameraMean[0] + r[1] * cameraMean[1] + r[2] * cameraMean[2]);
+    side = robotMean[1] - (r[3] * cameraMean[0] + r[4] * cameraMean[1] + r[5] * cameraMean[2]);
+    up = robotMean[2] - (r[6] * cameraMean[0] + r[7] * cameraMean[1] + r[8] * cameraMean[2]);
+    yaw = Units.radiansToDegrees(Math.atan2(r[3], r[0]));
+    // A positive rotation about +Y tilts the camera down, the opposite of the Limelight's pitch
+    pitch = Units.radiansToDegrees(Math.asin(Math.max(-1, Math.min(1, r[6]))));
+    roll = Units.radiansToDegrees(Math.atan2(r[7], r[8]));
+
+    // The squared error is the spread of both sets of points minus twice the fitted correlation
+    double fitted = r[0] * sxx + r[1] * syx + r[2] * szx;
+    fitted += r[3] * sxy + r[4] * syy + r[5] * szy;
+    fitted += r[6] * sxz + r[7] * syz + r[8] * szz;
+    double cameraSpread = cameraSquaredSum - n * dot(cameraMean, cameraMean);
+    double robotSpread = robotSquaredSum - n * dot(robotMean, robotMean);
+    rmsError = Math.sqrt(Math.max(cameraSpread + robotSpread - 2 * fitted, 0) / n);
+    isSolved = true;
+    return true;
+  }
+
+  /**
+   * Sends the solved camera pose to a Limelight with {@link
+   * TigerHelpers#setCameraPoseRobotSpace}.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @return True if the pose was sent, false if it hasn't been solved yet
+   */
+  public boolean apply(String limelightName) {
+    if (!isSolved) {
+      return false;
+    }
+    TigerHelpers.setCameraPoseRobotSpace(limelightName, forward, side, up, roll, pitch, yaw);
+    return true;
+  }
+
+  /**
+   * Gets if the camera pose has been solved.
+   *
+   * @return True if {@link #solve()} has succeeded, false otherwise
+   */
+  public boolean isSolved() {
+    return isSolved;
+  }
+
+  /**
+   * Gets the number of observations that have been added.
+   *
+   * @return The number of observations
+   */
+  public long getObservationCount() {
+    return observationCount;
+  }
+
+  /**
+   * Gets the root mean square distance between where the solved camera pose puts each observed tag
+   * and where the tag actually is. If this is high, the robot poses weren't accurate or the
+   * observations are noisy.
+   *
+   * @return The RMS error in meters
+   */
+  public double getRmsError() {
+    return rmsError;
+  }
+
+  /**
+   * Gets the solved forward offset.
+   *
+   * @return Forward offset in meters
+   */
+  public double getForward() {
+    return forward;
+  }
+
+  /**
+   * Gets the solved side offset.
+   *
+   * @return Side offset in meters
+   */
+  public double getSide() {
+    return side;
+  }
+
+  /**
+   * Gets the solved up offset.
+   *
+   * @return Up offset in meters
+   */
+  public double getUp() {
+    return up;
+  }
+
+  /**
+   * Gets the solved roll angle.
+   *
+   * @return Roll angle in degrees
+   */
+  public double getRoll() {
+    return roll;
+  }
+
+  /**
+   * Gets the solved pitch angle.
+   *
+   * @return Pitch angle in degrees
+   */
+  public double getPitch() {
+    return pitch;
+  }
+
+  /**
+   * Gets the solved yaw angle.
+   *
+   * @return Yaw angle in degrees
+   */
+  public double getYaw() {
+    return yaw;
+  }
+
+  /** Removes every observation and the solved pose. */
+  public void reset() {
+    observationCount = 0;
+    for (int i = 0; i < 3; i++) {
+      cameraSum[i] = 0;
+      robotSum[i] = 0;
+    }
+    for (int i = 0; i < 9; i++) {
+      crossSum[i] = 0;
+    }
+    cameraSquaredSum = 0;
+    robotSquaredSum = 0;
+    isSolved = false;
+    rmsError = 0;
+  }
+
+  private void addObservation(
+      int id,
+      double txnc,
+      double tync,
+      double distToCamera,
+      double ambiguity,
+      double robotX,
+      double robotY,
+      double cos,
+      double sin) {
+    if (!tagLayout.hasTag(id)
+        || ambiguity > maxAmbiguity
+        || distToCamera <= 0
+        || distToCamera > maxDistance) {
+      return;
+    }
+
+    // txnc is positive to the right and tync is positive up
+    double directionY = -Math.tan(Units.degreesToRadians(txnc));
+    double directionZ = Math.tan(Units.degreesToRadians(tync));
+    double scale = distToCamera / Math.sqrt(1 + directionY * directionY + directionZ * directionZ);
+    double cameraX = scale;
+    double cameraY = directionY * scale;
+    double cameraZ = directionZ * scale;
+
+    double dx = tagLayout.getX(id) - robotX;
+    double dy = tagLayout.getY(id) - robotY;
+    double robotPointX = dx * cos + dy * sin;
+    double robotPointY = -dx * sin + dy * cos;
+    double robotPointZ = tagLayout.getZ(id);
+
+    observationCount++;
+    cameraSum[0] += cameraX;
+    cameraSum[1] += cameraY;
+    cameraSum[2] += cameraZ;
+    robotSum[0] += robotPointX;
+    robotSum[1] += robotPointY;
+    robotSum[2] += robotPointZ;
+    crossSum[0] += cameraX * robotPointX;
+    crossSum[1] += cameraX * robotPointY;
+    crossSum[2] += cameraX * robotPointZ;
+    crossSum[3] += cameraY * robotPointX;
+    crossSum[4] += cameraY * robotPointY;
+    crossSum[5] += cameraY * robotPointZ;
+    crossSum[6] += cameraZ * robotPointX;
+    crossSum[7] += cameraZ * robotPointY;
+    crossSum[8] += cameraZ * robotPointZ;
+    cameraSquaredSum += cameraX * cameraX + cameraY * cameraY + cameraZ * cameraZ;
+    robotSquaredSum +=
+        robotPointX * robotPointX + robotPointY * robotPointY + robotPointZ * robotPointZ;
+  }
+
+  /**
+   * Finds the eigenvector of the symmetric matrix in horn with the largest eigenvalue, and stores
+   * it in quaternion. The matrix is shifted so every eigenvalue is positive, then repeatedly
+   * squared, which leaves every column pointing along the largest eigenvector.
+   */
+  private boolean findLargestEigenvector() {
+    double shift = 0;
+    for (double value : horn) {
+      shift += Math.abs(value);
+    }
+    if (shift == 0) {
+      return false;
+    }
+    for (int i = 0; i < 4; i++) {
+      horn[i * 4 + i] += shift;
+    }
+
+    for (int iteration = 0; iteration < 16; iteration++) {
+      double norm = 0;
+      for (int row = 0; row < 4; row++) {
+        for (int column = 0; column < 4; column++) {
+          double value = 0;
+          for (int k = 0; k < 4; k++) {
+            value += horn[row * 4 + k] * horn[k * 4 + column];
+          }
+          squared[row * 4 + column] = value;
+          norm = Math.max(norm, Math.abs(value));
+        }
+      }
+      // Rescaled so the values don't overflow
+      for (int i = 0; i < 16; i++) {
+        horn[i] = squared[i] / norm;
+      }
+    }
+
+    // Every column is now a multiple of the eigenvector, so the largest is the most accurate
+    int bestColumn = 0;
+    double bestNorm = 0;
+    for (int column = 0; column < 4; column++) {
+      double columnNorm = 0;
+      for (int row = 0; row < 4; row++) {
+        columnNorm += horn[row * 4 + column] * horn[row * 4 + column];
+      }
+      if (columnNorm > bestNorm) {
+        bestNorm = columnNorm;
+        bestColumn = column;
+      }
+    }
+    double length = Math.sqrt(bestNorm);
+    for (int row = 0; row < 4; row++) {
+      quaternion[row] = horn[row * 4 + bestColumn] / length;
+    }
+    return true;
+  }
+
+  private void toRotationMatrix() {
+    double w = quaternion[0];
+    double x = quaternion[1];
+    double y = quaternion[2];
+    double z = quaternion[3];
+    rotation[0] = 1 - 2 * (y * y + z * z);
+    rotation[1] = 2 * (x * y - w * z);
+    rotation[2] = 2 * (x * z + w * y);
+    rotation[3] = 2 * (x * y + w * z);
+    rotation[4] = 1 - 2 * (x * x + z * z);
+    rotation[5] = 2 * (y * z - w * x);
+    rotation[6] = 2 * (x * z - w * y);
+    rotation[7] = 2 * (y * z + w * x);
+    rotation[8] = 1 - 2 * (x * x + y * y);
+  }
+
+  private static void setRow(double[] matrix, int row, double a, double b, double c, double d) {
+    matrix[row * 4] = a;
+    matrix[row * 4 + 1] = b;
+    matrix[row * 4 + 2] = c;
+    matrix[row * 4 + 3] = d;
+  }
+
+  private static double dot(double[] a, double[] b) {
+    return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+  }
+}
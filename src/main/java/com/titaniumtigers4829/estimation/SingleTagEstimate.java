@@ -0,0 +1,110 @@
+package com.titaniumtigers4829.estimation;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * A reusable, mutable robot pose estimate calculated from a single april tag by {@link
+ * SingleTagEstimator}. Instances are meant to be allocated once and filled every loop, so none of
+ * the getters allocate except {@link #toPose2d()}.
+ */
+public class SingleTagEstimate {
+
+  private int tagId;
+  private double x;
+  private double y;
+  private double headingRadians;
+  private double distance;
+  private double ambiguity;
+  private boolean isValid;
+
+  /**
+   * Gets the id of the april tag the estimate was calculated from.
+   *
+   * @return The april tag id
+   */
+  public int getTagId() {
+    return tagId;
+  }
+
+  /**
+   * Gets the estimated x position of the robot on the field in meters.
+   *
+   * @return The x position in meters
+   */
+  public double getX() {
+    return x;
+  }
+
+  /**
+   * Gets the estimated y position of the robot on the field in meters.
+   *
+   * @return The y position in meters
+   */
+  public double getY() {
+    return y;
+  }
+
+  /**
+   * Gets the heading of the robot used for the estimate in radians. This is the gyro yaw passed to
+   * the estimator, not something solved for.
+   *
+   * @return The heading in radians
+   */
+  public double getHeadingRadians() {
+    return headingRadians;
+  }
+
+  /**
+   * Gets the horizontal distance from the camera to the april tag in meters.
+   *
+   * @return The horizontal distance in meters
+   */
+  public double getDistance() {
+    return distance;
+  }
+
+  /**
+   * Gets the ambiguity of the april tag the estimate was calculated from.
+   *
+   * @return The ambiguity, from 0 to 1
+   */
+  public double getAmbiguity() {
+    return ambiguity;
+  }
+
+  /**
+   * Gets if the estimate holds valid data. This is false if the tag isn't in the field layout.
+   *
+   * @return True if the estimate is valid, false otherwise
+   */
+  public boolean isValid() {
+    return isValid;
+  }
+
+  /**
+   * Converts the estimate to a Pose2d. Unlike the other getters this allocates, so avoid calling it
+   * for estimates you are going to throw away.
+   *
+   * @return The estimated Pose2d of the robot
+   */
+  public Pose2d toPose2d() {
+    return new Pose2d(x, y, new Rotation2d(headingRadians));
+  }
+
+  void set(
+      int tagId, double x, double y, double headingRadians, double distance, double ambiguity) {
+    this.tagId = tagId;
+    this.x = x;
+    this.y = y;
+    this.headingRadians = headingRadians;
+    this.distance = distance;
+    this.ambiguity = ambiguity;
+    this.isValid = true;
+  }
+
+  void invalidate(int tagId) {
+    this.tagId = tagId;
+    this.isValid = false;
+  }
+}
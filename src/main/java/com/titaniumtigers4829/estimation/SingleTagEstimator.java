@@ -0,0 +1,190 @@
+package com.titaniumtigers4829.estimation;
+
+import com.titaniumtigers4829.data.fiducial.FiducialConstants;
+import com.titaniumtigers4829.data.fiducial.RawFiducial;
+import com.titaniumtigers4829.data.fiducial.TagLayout;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.util.Units;
+
+/**
+ * Estimates the robot's pose from a single april tag using only trigonometry. This resolves the
+ * ambiguity MegaTag1 has with a single tag by taking the robot's heading from the gyro, so all that
+ * has to be solved for is the robot's translation. It is much cheaper than a full PnP solve and
+ * doesn't allocate, so it can be run for every visible tag on every camera every loop.
+ *
+ * <p>One estimator should be created per camera, as it holds that camera's pose relative to the
+ * robot. The direction to the tag is built from both tx and ty and rotated by the camera's roll and
+ * pitch before its bearing is taken, so tilted cameras don't skew the bearing, and the tag's height
+ * is used to get the distance along the floor.
+ */
+public class SingleTagEstimator {
+
+  private final TagLayout tagLayout;
+
+  private double cameraForward;
+  private double cameraSide;
+  private double cameraUp;
+  private double cameraYawRadians;
+  // Only the sines and cosines of the pitch and roll are needed to rotate the direction to the tag
+  private double pitchSin;
+  private double pitchCos = 1;
+  private double rollSin;
+  private double rollCos = 1;
+
+  /**
+   * Creates a SingleTagEstimator for a camera mounted at the center of the robot.
+   *
+   * @param fieldLayout The layout of the april tags on the field
+   */
+  public SingleTagEstimator(AprilTagFieldLayout fieldLayout) {
+    this(new TagLayout(fieldLayout));
+  }
+
+  /**
+   * Creates a SingleTagEstimator for a camera mounted at the center of the robot. Use this if you
+   * are creating multiple estimators so they can share one TagLayout.
+   *
+   * @param tagLayout The layout of the april tags on the field
+   */
+  public SingleTagEstimator(TagLayout tagLayout) {
+    this.tagLayout = tagLayout;
+  }
+
+  /**
+   * Sets the camera pose relative to the robot. This should be the same values passed to {@link
+   * com.titaniumtigers4829.TigerHelpers#setCameraPoseRobotSpace}.
+   *
+   * @param forward Forward offset in meters
+   * @param side Side offset in meters
+   * @param up Up offset in meters
+   * @param roll Roll angle in degrees
+   * @param pitch Pitch angle in degrees
+   * @param yaw Yaw angle in degrees
+   */
+  public void setCameraPoseRobotSpace(
+      double forward, double side, double up, double roll, double pitch, double yaw) {
+    cameraForward = forward;
+    cameraSide = side;
+    cameraUp = up;
+    cameraYawRadians = Units.degreesToRadians(yaw);
+    pitchSin = Math.sin(Units.degreesToRadians(pitch));
+    pitchCos = Math.cos(Units.degreesToRadians(pitch));
+    rollSin = Math.sin(Units.degreesToRadians(roll));
+    rollCos = Math.cos(Units.degreesToRadians(roll));
+  }
+
+  /**
+   * Estimates the robot's pose from a single raw fiducial.
+   *
+   * @param rawFiducial The raw fiducial to estimate from
+   * @param robotYaw The robot's yaw from the gyro in degrees, in the same frame as the field layout
+   * @param result The estimate to fill, this is reused to avoid allocating
+   * @return True if the estimate is valid, false if the tag isn't in the field layout
+   */
+  public boolean estimate(RawFiducial rawFiducial, double robotYaw, SingleTagEstimate result) {
+    return estimate(
+        rawFiducial.id(),
+        rawFiducial.txnc(),
+        rawFiducial.tync(),
+        rawFiducial.distToCamera(),
+        rawFiducial.ambiguity(),
+        robotYaw,
+        result);
+  }
+
+  /**
+   * Estimates the robot's pose from every raw fiducial in an array. Fiducials whose tag isn't in
+   * the field layout are skipped.
+   *
+   * @param rawFiducials The raw fiducials to estimate from
+   * @param robotYaw The robot's yaw from the gyro in degrees, in the same frame as the field layout
+   * @param results The estimates to fill, only as many fiducials as fit will be used
+   * @return The number of valid estimates written to the start of results
+   */
+  public int estimateAll(RawFiducial[] rawFiducials, double robotYaw, SingleTagEstimate[] results) {
+    int count = 0;
+    for (int i = 0; i < rawFiducials.length && count < results.length; i++) {
+      if (estimate(rawFiducials[i], robotYaw, results[count])) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Estimates the robot's pose from every fiducial in a flattened raw fiducial array, such as the
+   * "rawfiducials" entry or the fiducials at the end of a botpose entry. This avoids creating
+   * {@link RawFiducial} objects entirely. Fiducials whose tag isn't in the field layout are
+   * skipped.
+   *
+   * @param rawFiducialArray The flattened raw fiducial data
+   * @param offset The index of the first fiducial's id in the array, 0 for "rawfiducials" and 11
+   *     for a botpose entry
+   * @param robotYaw The robot's yaw from the gyro in degrees, in the same frame as the field layout
+   * @param results The estimates to fill, only as many fiducials as fit will be used
+   * @return The number of valid estimates written to the start of results
+   */
+  public int estimateAll(
+      double[] rawFiducialArray, int offset, double robotYaw, SingleTagEstimate[] results) {
+    int count = 0;
+    for (int baseIndex = offset;
+        baseIndex + FiducialConstants.FIDUCIAL_DATA_SIZE <= rawFiducialArray.length
+            && count < results.length;
+        baseIndex += FiducialConstants.FIDUCIAL_DATA_SIZE) {
+      if (estimate(
+          (int) rawFiducialArray[baseIndex],
+          rawFiducialArray[baseIndex + 1],
+          rawFiducialArray[baseIndex + 2],
+          rawFiducialArray[baseIndex + 4],
+          rawFiducialArray[baseIndex + 6],
+          robotYaw,
+          results[count])) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private boolean estimate(
+      int id,
+      double txnc,
+      double tync,
+      double distToCamera,
+      double ambiguity,
+      double robotYaw,
+      SingleTagEstimate result) {
+    if (!tagLayout.hasTag(id)) {
+      result.invalidate(id);
+      return false;
+    }
+
+    // The camera reports the straight line distance, so the height difference between the camera
+    // and tag is removed to get the distance along the floor
+    double heightDifference = tagLayout.getZ(id) - cameraUp;
+    double horizontalDistance =
+        Math.sqrt(Math.max(distToCamera * distToCamera - heightDifference * heightDifference, 0));
+
+    // The direction to the tag in the camera's frame, x forward, y left, and z up. txnc is positive
+    // to the right and tync is positive up
+    double rayX = 1;
+    double rayY = -Math.tan(Units.degreesToRadians(txnc));
+    double rayZ = Math.tan(Units.degreesToRadians(tync));
+    // Rotates by the roll around the forward axis, then by the pitch, which is positive up
+    double rolledY = rayY * rollCos - rayZ * rollSin;
+    double rolledZ = rayY * rollSin + rayZ * rollCos;
+    double pitchedX = rayX * pitchCos - rolledZ * pitchSin;
+    double bearing = cameraYawRadians + Math.atan2(rolledY, pitchedX);
+    double tagRobotX = cameraForward + horizontalDistance * Math.cos(bearing);
+    double tagRobotY = cameraSide + horizontalDistance * Math.sin(bearing);
+
+    // Rotates the robot relative tag position into the field frame, then works back from the tag
+    double heading = Units.degreesToRadians(robotYaw);
+    double cos = Math.cos(heading);
+    double sin = Math.sin(heading);
+    double robotX = tagLayout.getX(id) - (tagRobotX * cos - tagRobotY * sin);
+    double robotY = tagLayout.getY(id) - (tagRobotX * sin + tagRobotY * cos);
+
+    result.set(id, robotX, robotY, heading, horizontalDistance, ambiguity);
+    return true;
+  }
+}
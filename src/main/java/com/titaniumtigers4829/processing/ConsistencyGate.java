@@ -0,0 +1,275 @@
+package com.titaniumtigers4829.processing;
+
+import com.titaniumtigers4829.data.pose.PoseEstimate;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.util.Units;
+
+/**
+ * Rejects vision estimates that disagree with odometry. Bad frames that teleport the pose are
+ * caught by comparing each estimate against the odometry pose at the time the frame was captured,
+ * taken from an {@link OdometryHistory}. Estimates are rejected if the translation or rotation
+ * difference is larger than a threshold that grows with the average tag distance, since far away
+ * tags are noisier. This should be checked before an estimate is passed to a pose estimator:
+ *
+ * <pre>{@code
+ * odometryHistory.addPose(Timer.getFPGATimestamp(), poseEstimator.getEstimatedPosition());
+ * PoseEstimate estimate = TigerHelpers.getBotPoseEstimate("limelight", Botpose.BLUE_MEGATAG2);
+ * if (consistencyGate.test(estimate)) {
+ *   poseEstimator.addVisionMeasurement(estimate.pose(), estimate.timestampSeconds());
+ * }
+ * }</pre>
+ *
+ * <p>If odometry itself is wrong, for example before the robot has seen a tag, every estimate will
+ * be rejected. To recover, {@link #setMaxConsecutiveRejections(int)} can be used to accept an
+ * estimate after enough frames in a row have been rejected. This isn't thread safe, so it should
+ * only be used from the robot loop.
+ */
+public class ConsistencyGate {
+
+  private final OdometryHistory odometryHistory;
+  private final double[] odometryPose = new double[3];
+
+  private double translationTolerance = 0.5;
+  private double translationTolerancePerMeter = 0.25;
+  private double rotationToleranceRadians = Units.degreesToRadians(10);
+  private double rotationTolerancePerMeterRadians = Units.degreesToRadians(5);
+  private boolean acceptWithoutHistory = true;
+  private int maxConsecutiveRejections = Integer.MAX_VALUE;
+
+  private double lastTranslationResidual;
+  private double lastRotationResidualRadians;
+  private int consecutiveRejections;
+  private long acceptedCount;
+  private long translationRejectedCount;
+  private long rotationRejectedCount;
+  private long noHistoryRejectedCount;
+  private long forcedAcceptCount;
+
+  /**
+   * Creates a ConsistencyGate.
+   *
+   * @param odometryHistory The odometry history to compare estimates against
+   */
+  public ConsistencyGate(OdometryHistory odometryHistory) {
+    this.odometryHistory = odometryHistory;
+  }
+
+  /**
+   * Sets the max distance between an estimate and odometry. The threshold is the tolerance plus the
+   * tolerance per meter times the estimate's average tag distance.
+   *
+   * @param tolerance The tolerance in meters, defaults to 0.5
+   * @param tolerancePerMeter The extra tolerance per meter of tag distance, defaults to 0.25
+   */
+  public void setTranslationTolerance(double tolerance, double tolerancePerMeter) {
+    translationTolerance = tolerance;
+    translationTolerancePerMeter = tolerancePerMeter;
+  }
+
+  /**
+   * Sets the max heading difference between an estimate and odometry. The threshold is the
+   * tolerance plus the tolerance per meter times the estimate's average tag distance.
+   *
+   * @param tolerance The tolerance in degrees, defaults to 10
+   * @param tolerancePerMeter The extra tolerance in degrees per meter of tag distance, defaults to
+   *     5
+   */
+  public void setRotationTolerance(double tolerance, double tolerancePerMeter) {
+    rotationToleranceRadians = Units.degreesToRadians(tolerance);
+    rotationTolerancePerMeterRadians = Units.degreesToRadians(tolerancePerMeter);
+  }
+
+  /**
+   * Sets if estimates older than the odometry history should be accepted. This also applies before
+   * any odometry has been added.
+   *
+   * @param acceptWithoutHistory True to accept the estimates, false to reject them, defaults to
+   *     true
+   */
+  public void setAcceptWithoutHistory(boolean acceptWithoutHistory) {
+    this.acceptWithoutHistory = acceptWithoutHistory;
+  }
+
+  /**
+   * Sets how many estimates in a row can be rejected before the next one is accepted anyway. This
+   * lets vision correct odometry that has drifted or was reset to the wrong pose.
+   *
+   * @param maxConsecutiveRejections The number of estimates, defaults to no limit
+   */
+  public void setMaxConsecutiveRejections(int maxConsecutiveRejections) {
+    this.maxConsecutiveRejections = maxConsecutiveRejections;
+  }
+
+  /**
+   * Checks if a pose estimate agrees with odometry. Empty estimates are always rejected, but aren't
+   * counted.
+   *
+   * @param poseEstimate The pose estimate to check
+   * @return True if the estimate should be used, false if it should be rejected
+   */
+  public boolean test(PoseEstimate poseEstimate) {
+    if (poseEstimate.tagCount() == 0) {
+      return false;
+    }
+    return test(
+        poseEstimate.timestampSeconds(),
+        poseEstimate.pose().getX(),
+        poseEstimate.pose().getY(),
+        poseEstimate.pose().getRotation().getRadians(),
+        poseEstimate.avgTagDist());
+  }
+
+  /**
+   * Checks if a vision estimate from a {@link VisionProcessor} agrees with odometry.
+   *
+   * @param estimate The estimate to check
+   * @return True if the estimate should be used, false if it should be rejected
+   */
+  public boolean test(VisionEstimate estimate) {
+    return test(
+        estimate.getTimestampSeconds(),
+        estimate.getX(),
+        estimate.getY(),
+        estimate.getHeadingRadians(),
+        estimate.getAvgTagDist());
+  }
+
+  /**
+   * Checks if a vision pose agrees with odometry.
+   *
+   * @param timestampSeconds The time the frame was captured
+   * @param x The estimated x position in meters
+   * @param y The estimated y position in meters
+   * @param headingRadians The estimated heading in radians
+   * @param avgTagDist The average distance to the tags used, in meters
+   * @return True if the estimate should be used, false if it should be rejected
+   */
+  public boolean test(
+      double timestampSeconds, double x, double y, double headingRadians, double avgTagDist) {
+    if (!odometryHistory.getPoseAt(timestampSeconds, odometryPose)) {
+      lastTranslationResidual = 0;
+      lastRotationResidualRadians = 0;
+      if (acceptWithoutHistory) {
+        return accept();
+      }
+      noHistoryRejectedCount++;
+      return reject();
+    }
+
+    double dx = x - odometryPose[0];
+    double dy = y - odometryPose[1];
+    lastTranslationResidual = Math.sqrt(dx * dx + dy * dy);
+    lastRotationResidualRadians = Math.abs(MathUtil.angleModulus(headingRadians - odometryPose[2]));
+
+    if (lastTranslationResidual
+        > translationTolerance + translationTolerancePerMeter * avgTagDist) {
+      translationRejectedCount++;
+      return reject();
+    }
+    if (lastRotationResidualRadians
+        > rotationToleranceRadians + rotationTolerancePerMeterRadians * avgTagDist) {
+      rotationRejectedCount++;
+      return reject();
+    }
+    return accept();
+  }
+
+  /**
+   * Gets the distance between the last checked estimate and odometry.
+   *
+   * @return The translation residual in meters
+   */
+  public double getLastTranslationResidual() {
+    return lastTranslationResidual;
+  }
+
+  /**
+   * Gets the heading difference between the last checked estimate and odometry.
+   *
+   * @return The rotation residual in degrees
+   */
+  public double getLastRotationResidual() {
+    return Units.radiansToDegrees(lastRotationResidualRadians);
+  }
+
+  /**
+   * Gets the number of estimates that were accepted, including ones accepted after too many
+   * rejections.
+   *
+   * @return The number of accepted estimates
+   */
+  public long getAcceptedCount() {
+    return acceptedCount;
+  }
+
+  /**
+   * Gets the number of estimates rejected because their position was too far from odometry.
+   *
+   * @return The number of rejected estimates
+   */
+  public long getTranslationRejectedCount() {
+    return translationRejectedCount;
+  }
+
+  /**
+   * Gets the number of estimates rejected because their heading was too far from odometry.
+   *
+   * @return The number of rejected estimates
+   */
+  public long getRotationRejectedCount() {
+    return rotationRejectedCount;
+  }
+
+  /**
+   * Gets the number of estimates rejected because they were older than the odometry history.
+   *
+   * @return The number of rejected estimates
+   */
+  public long getNoHistoryRejectedCount() {
+    return noHistoryRejectedCount;
+  }
+
+  /**
+   * Gets the number of estimates rejected for any reason.
+   *
+   * @return The number of rejected estimates
+   */
+  public long getRejectedCount() {
+    return translationRejectedCount + rotationRejectedCount + noHistoryRejectedCount;
+  }
+
+  /**
+   * Gets the number of estimates that failed the check but were accepted because too many
+   * estimates in a row had been rejected. These are also counted by the rejection count for the
+   * check they failed.
+   *
+   * @return The number of forced accepts
+   */
+  public long getForcedAcceptCount() {
+    return forcedAcceptCount;
+  }
+
+  /** Resets all of the counters to 0. */
+  public void resetCounts() {
+    acceptedCount = 0;
+    translationRejectedCount = 0;
+    rotationRejectedCount = 0;
+    noHistoryRejectedCount = 0;
+    forcedAcceptCount = 0;
+  }
+
+  private boolean accept() {
+    consecutiveRejections = 0;
+    acceptedCount++;
+    return true;
+  }
+
+  private boolean reject() {
+    consecutiveRejections++;
+    if (consecutiveRejections > maxConsecutiveRejections) {
+      forcedAcceptCount++;
+      return accept();
+    }
+    return false;
+  }
+}
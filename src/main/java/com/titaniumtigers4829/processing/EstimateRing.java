@@ -0,0 +1,78 @@
+package com.titaniumtigers4829.processing;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free single-producer, single-consumer ring of preallocated {@link VisionEstimate} slots.
+ * The producer fills a claimed slot in place then publishes it, and the consumer copies published
+ * slots out, so no estimates are allocated after construction. Only one thread may produce and
+ * only one thread may consume.
+ */
+class EstimateRing {
+
+  private final VisionEstimate[] slots;
+  private final int mask;
+
+  // The index of the next slot to write, only written by the producer
+  private final AtomicLong head = new AtomicLong();
+  // The index of the next slot to read, only written by the consumer
+  private final AtomicLong tail = new AtomicLong();
+
+  /**
+   * Creates an EstimateRing.
+   *
+   * @param capacity The number of slots, rounded up to a power of two
+   */
+  EstimateRing(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    slots = new VisionEstimate[size];
+    for (int i = 0; i < size; i++) {
+      slots[i] = new VisionEstimate();
+    }
+    mask = size - 1;
+  }
+
+  /**
+   * Gets the next slot for the producer to fill. The slot isn't visible to the consumer until
+   * {@link #publish()} is called.
+   *
+   * @return The slot to fill, or null if the ring is full
+   */
+  VisionEstimate claim() {
+    long currentHead = head.getPlain();
+    if (currentHead - tail.getAcquire() == slots.length) {
+      return null;
+    }
+    return slots[(int) (currentHead & mask)];
+  }
+
+  /** Makes the last claimed slot visible to the consumer. */
+  void publish() {
+    head.setRelease(head.getPlain() + 1);
+  }
+
+  /**
+   * Copies the oldest published estimate out of the ring, freeing its slot.
+   *
+   * @param estimate The estimate to copy into
+   * @return True if an estimate was copied, false if the ring is empty
+   */
+  boolean poll(VisionEstimate estimate) {
+    long currentTail = tail.getPlain();
+    if (currentTail == head.getAcquire()) {
+      return false;
+    }
+    estimate.copyFrom(slots[(int) (currentTail & mask)]);
+    tail.setRelease(currentTail + 1);
+    return true;
+  }
+
+  /**
+   * Gets the number of slots in the ring.
+   *
+   * @return The capacity
+   */
+  int capacity() {
+    return slots.length;
+  }
+}
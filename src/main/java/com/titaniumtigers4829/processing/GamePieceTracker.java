@@ -0,0 +1,448 @@
+package com.titaniumtigers4829.processing;
+
+import com.titaniumtigers4829.data.detection.RawDetections;
+import edu.wpi.first.wpilibj.Timer;
+import java.util.Arrays;
+
+/**
+ * Follows game pieces from the neural detector across frames, so the intake can keep targeting the
+ * same piece instead of jumping between whichever detection comes first. Each frame, detections
+ * are matched to the existing tracks by nearest neighbor in (txnc, tync), using each track's
+ * predicted position. The closest pair is matched first, and pairs farther apart than the max
+ * association distance or with different classes are never matched. Unmatched detections start
+ * new tracks, and tracks that go unmatched for too many frames, or haven't been detected for
+ * longer than the max track age, are dropped. NetworkTables doesn't send a value again if it
+ * hasn't changed, so once every piece leaves view no new frames may arrive at all, and the age is
+ * what drops their tracks.
+ *
+ * <pre>{@code
+ * RawDetections detections = new RawDetections();
+ * GamePieceTracker tracker = new GamePieceTracker();
+ *
+ * // Every loop
+ * TigerHelpers.getRawDetections("limelight", detections);
+ * tracker.update(detections);
+ * int best = tracker.getBestTrack();
+ * if (best >= 0) {
+ *   intake.aimAt(tracker.getTX(best));
+ * }
+ * }</pre>
+ *
+ * <p>Tracks are stored in flat arrays that are allocated once, so nothing is created per frame.
+ * Track indices change as tracks are added and dropped, so use {@link #getTrackId(int)} and {@link
+ * #indexOf(int)} to follow a specific piece. This isn't thread safe, so it should only be used from
+ * one thread.
+ */
+public class GamePieceTracker {
+
+  private static final double VELOCITY_SMOOTHING = 0.5;
+
+  private final int maxTracks;
+  private final int[] trackIds;
+  private final int[] classIds;
+  private final int[] hitCounts;
+  private final int[] missedCounts;
+  private final double[] tx;
+  private final double[] ty;
+  private final double[] ta;
+  private final double[] txVelocity;
+  private final double[] tyVelocity;
+  private final double[] lastSeenTimestamps;
+  private int trackCount;
+  private int nextTrackId = 1;
+
+  // Scratch space for matching, so nothing is allocated per frame
+  private final double[] predictedTX;
+  private final double[] predictedTY;
+  private final boolean[] isTrackMatched;
+  private boolean[] isDetectionMatched = new boolean[16];
+
+  private double maxAssociationDistance = 5;
+  private int maxMissedFrames = 5;
+  private double maxTrackAge = 0.5;
+  private int minHits = 3;
+  private int classFilter = -1;
+  private double lastTimestampSeconds = Double.NaN;
+
+  /**
+   * Creates a GamePieceTracker.
+   *
+   * @param maxTracks The max number of game pieces that can be tracked at once
+   */
+  public GamePieceTracker(int maxTracks) {
+    this.maxTracks = maxTracks;
+    trackIds = new int[maxTracks];
+    classIds = new int[maxTracks];
+    hitCounts = new int[maxTracks];
+    missedCounts = new int[maxTracks];
+    tx = new double[maxTracks];
+    ty = new double[maxTracks];
+    ta = new double[maxTracks];
+    txVelocity = new double[maxTracks];
+    tyVelocity = new double[maxTracks];
+    lastSeenTimestamps = new double[maxTracks];
+    predictedTX = new double[maxTracks];
+    predictedTY = new double[maxTracks];
+    isTrackMatched = new boolean[maxTracks];
+  }
+
+  /** Creates a GamePieceTracker that can track up to 8 game pieces at once. */
+  public GamePieceTracker() {
+    this(8);
+  }
+
+  /**
+   * Sets how far a detection can be from a track's predicted position and still be matched to it.
+   *
+   * @param maxAssociationDistance The max distance in degrees, defaults to 5
+   */
+  public void setMaxAssociationDistance(double maxAssociationDistance) {
+    this.maxAssociationDistance = maxAssociationDistance;
+  }
+
+  /**
+   * Sets how many frames in a row a track can go without a detection before it is dropped.
+   *
+   * @param maxMissedFrames The max number of missed frames, defaults to 5
+   */
+  public void setMaxMissedFrames(int maxMissedFrames) {
+    this.maxMissedFrames = maxMissedFrames;
+  }
+
+  /**
+   * Sets how long a track can go without a detection before it is dropped, even if no new frames
+   * have arrived.
+   *
+   * @param maxTrackAge The max time in seconds, defaults to 0.5
+   */
+  public void setMaxTrackAge(double maxTrackAge) {
+    this.maxTrackAge = maxTrackAge;
+  }
+
+  /**
+   * Sets how many frames a track has to be detected in before it is confirmed. This keeps single
+   * frame false positives from being targeted.
+   *
+   * @param minHits The number of frames, defaults to 3
+   */
+  public void setMinHits(int minHits) {
+    this.minHits = minHits;
+  }
+
+  /**
+   * Sets the only class that is tracked.
+   *
+   * @param classId The class index to track, or -1 to track every class, defaults to -1
+   */
+  public void setClassFilter(int classId) {
+    this.classFilter = classId;
+  }
+
+  /**
+   * Matches a frame of detections to the tracks, and drops tracks older than the max track age. If
+   * the detections are from the same frame as the last update, only old tracks are dropped. This
+   * should be called every loop, even when the detections haven't changed.
+   *
+   * @param detections The detections from the frame, read through NetworkTables
+   * @return True if the detections were from a new frame, false otherwise
+   */
+  public boolean update(RawDetections detections) {
+    return update(detections, Timer.getFPGATimestamp());
+  }
+
+  /**
+   * Matches a frame of detections to the tracks, and drops tracks older than the max track age. If
+   * the detections are from the same frame as the last update, only old tracks are dropped.
+   *
+   * @param detections The detections from the frame
+   * @param nowSeconds The current time in seconds, on the same clock as the detections' timestamp
+   * @return True if the detections were from a new frame, false otherwise
+   */
+  public boolean update(RawDetections detections, double nowSeconds) {
+    double timestampSeconds = detections.getTimestampSeconds();
+    boolean isNewFrame = timestampSeconds != lastTimestampSeconds;
+    if (isNewFrame) {
+      lastTimestampSeconds = timestampSeconds;
+      matchFrame(detections, timestampSeconds);
+    }
+
+    for (int i = trackCount - 1; i >= 0; i--) {
+      if (nowSeconds - lastSeenTimestamps[i] > maxTrackAge) {
+        removeTrack(i);
+      }
+    }
+    return isNewFrame;
+  }
+
+  private void matchFrame(RawDetections detections, double timestampSeconds) {
+    int detectionCount = detections.getCount();
+    if (isDetectionMatched.length < detectionCount) {
+      isDetectionMatched = new boolean[Math.max(detectionCount, isDetectionMatched.length * 2)];
+    }
+    Arrays.fill(isDetectionMatched, 0, detectionCount, false);
+    for (int i = 0; i < trackCount; i++) {
+      double dt = timestampSeconds - lastSeenTimestamps[i];
+      predictedTX[i] = tx[i] + txVelocity[i] * dt;
+      predictedTY[i] = ty[i] + tyVelocity[i] * dt;
+      isTrackMatched[i] = false;
+    }
+
+    // Matches the closest remaining pair until no pairs are close enough
+    double maxDistanceSquared = maxAssociationDistance * maxAssociationDistance;
+    while (true) {
+      int bestTrack = -1;
+      int bestDetection = -1;
+      double bestDistanceSquared = maxDistanceSquared;
+      for (int i = 0; i < trackCount; i++) {
+        if (isTrackMatched[i]) {
+          continue;
+        }
+        for (int j = 0; j < detectionCount; j++) {
+          if (isDetectionMatched[j] || detections.getClassId(j) != classIds[i]) {
+            continue;
+          }
+          double dx = detections.getTXNC(j) - predictedTX[i];
+          double dy = detections.getTYNC(j) - predictedTY[i];
+          double distanceSquared = dx * dx + dy * dy;
+          if (distanceSquared <= bestDistanceSquared) {
+            bestDistanceSquared = distanceSquared;
+            bestTrack = i;
+            bestDetection = j;
+          }
+        }
+      }
+      if (bestTrack < 0) {
+        break;
+      }
+      isTrackMatched[bestTrack] = true;
+      isDetectionMatched[bestDetection] = true;
+      updateTrack(bestTrack, detections, bestDetection, timestampSeconds);
+    }
+
+    // Goes backwards so the track swapped into a dropped track's place has already been checked
+    for (int i = trackCount - 1; i >= 0; i--) {
+      if (!isTrackMatched[i] && ++missedCounts[i] > maxMissedFrames) {
+        removeTrack(i);
+      }
+    }
+
+    for (int j = 0; j < detectionCount && trackCount < maxTracks; j++) {
+      int classId = detections.getClassId(j);
+      if (!isDetectionMatched[j] && (classFilter < 0 || classId == classFilter)) {
+        addTrack(detections, j, timestampSeconds);
+      }
+    }
+  }
+
+  /**
+   * Gets the confirmed track with the largest area, which is usually the closest game piece.
+   *
+   * @return The index of the track, or -1 if there are no confirmed tracks
+   */
+  public int getBestTrack() {
+    int bestTrack = -1;
+    for (int i = 0; i < trackCount; i++) {
+      if (isConfirmed(i) && (bestTrack < 0 || ta[i] > ta[bestTrack])) {
+        bestTrack = i;
+      }
+    }
+    return bestTrack;
+  }
+
+  /**
+   * Gets the index of a track from its id.
+   *
+   * @param trackId The id of the track
+   * @return The index of the track, or -1 if it has been dropped
+   */
+  public int indexOf(int trackId) {
+    for (int i = 0; i < trackCount; i++) {
+      if (trackIds[i] == trackId) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the number of tracks, including unconfirmed ones.
+   *
+   * @return The number of tracks
+   */
+  public int getTrackCount() {
+    return trackCount;
+  }
+
+  /**
+   * Gets the id of a track, which stays the same for as long as the track exists.
+   *
+   * @param index The index of the track, less than {@link #getTrackCount()}
+   * @return The id of the track
+   */
+  public int getTrackId(int index) {
+    return trackIds[index];
+  }
+
+  /**
+   * Gets the class index of a track.
+   *
+   * @param index The index of the track, less than {@link #getTrackCount()}
+   * @return The class index
+   */
+  public int getClassId(int index) {
+    return classIds[index];
+  }
+
+  /**
+   * Gets if a track has been detected in enough frames to be targeted.
+   *
+   * @param index The index of the track, less than {@link #getTrackCount()}
+   * @return True if the track is confirmed, false otherwise
+   */
+  public boolean isConfirmed(int index) {
+    return hitCounts[index] >= minHits;
+  }
+
+  /**
+   * Gets the horizontal offset of a track from the principal pixel when it was last detected.
+   *
+   * @param index The index of the track, less than {@link #getTrackCount()}
+   * @return Horizontal offset angle in degrees
+   */
+  public double getTX(int index) {
+    return tx[index];
+  }
+
+  /**
+   * Gets the vertical offset of a track from the principal pixel when it was last detected.
+   *
+   * @param index The index of the track, less than {@link #getTrackCount()}
+   * @return Vertical offset angle in degrees
+   */
+  public double getTY(int index) {
+    return ty[index];
+  }
+
+  /**
+   * Gets the area of a track when it was last detected.
+   *
+   * @param index The index of the track, less than {@link #getTrackCount()}
+   * @return Target area percentage (0-100%)
+   */
+  public double getTA(int index) {
+    return ta[index];
+  }
+
+  /**
+   * Gets how fast a track is moving horizontally across the image.
+   *
+   * @param index The index of the track, less than {@link #getTrackCount()}
+   * @return The velocity in degrees per second
+   */
+  public double getTXVelocity(int index) {
+    return txVelocity[index];
+  }
+
+  /**
+   * Gets how fast a track is moving vertically across the image.
+   *
+   * @param index The index of the track, less than {@link #getTrackCount()}
+   * @return The velocity in degrees per second
+   */
+  public double getTYVelocity(int index) {
+    return tyVelocity[index];
+  }
+
+  /**
+   * Gets where a track is predicted to be horizontally, from its last position and velocity.
+   *
+   * @param index The index of the track, less than {@link #getTrackCount()}
+   * @param timestampSeconds The time to predict at in seconds
+   * @return Horizontal offset angle in degrees
+   */
+  public double getPredictedTX(int index, double timestampSeconds) {
+    return tx[index] + txVelocity[index] * (timestampSeconds - lastSeenTimestamps[index]);
+  }
+
+  /**
+   * Gets where a track is predicted to be vertically, from its last position and velocity.
+   *
+   * @param index The index of the track, less than {@link #getTrackCount()}
+   * @param timestampSeconds The time to predict at in seconds
+   * @return Vertical offset angle in degrees
+   */
+  public double getPredictedTY(int index, double timestampSeconds) {
+    return ty[index] + tyVelocity[index] * (timestampSeconds - lastSeenTimestamps[index]);
+  }
+
+  /**
+   * Gets how many frames a track has been detected in.
+   *
+   * @param index The index of the track, less than {@link #getTrackCount()}
+   * @return The number of frames
+   */
+  public int getHitCount(int index) {
+    return hitCounts[index];
+  }
+
+  /**
+   * Gets how many frames in a row a track has gone without being detected.
+   *
+   * @param index The index of the track, less than {@link #getTrackCount()}
+   * @return The number of frames
+   */
+  public int getMissedCount(int index) {
+    return missedCounts[index];
+  }
+
+  /** Drops every track. */
+  public void reset() {
+    trackCount = 0;
+    lastTimestampSeconds = Double.NaN;
+  }
+
+  private void updateTrack(
+      int index, RawDetections detections, int detection, double timestampSeconds) {
+    double newTX = detections.getTXNC(detection);
+    double newTY = detections.getTYNC(detection);
+    double dt = timestampSeconds - lastSeenTimestamps[index];
+    if (dt > 0) {
+      txVelocity[index] += VELOCITY_SMOOTHING * ((newTX - tx[index]) / dt - txVelocity[index]);
+      tyVelocity[index] += VELOCITY_SMOOTHING * ((newTY - ty[index]) / dt - tyVelocity[index]);
+    }
+    tx[index] = newTX;
+    ty[index] = newTY;
+    ta[index] = detections.getTA(detection);
+    lastSeenTimestamps[index] = timestampSeconds;
+    hitCounts[index]++;
+    missedCounts[index] = 0;
+  }
+
+  private void addTrack(RawDetections detections, int detection, double timestampSeconds) {
+    int index = trackCount++;
+    trackIds[index] = nextTrackId++;
+    classIds[index] = detections.getClassId(detection);
+    tx[index] = detections.getTXNC(detection);
+    ty[index] = detections.getTYNC(detection);
+    ta[index] = detections.getTA(detection);
+    txVelocity[index] = 0;
+    tyVelocity[index] = 0;
+    lastSeenTimestamps[index] = timestampSeconds;
+    hitCounts[index] = 1;
+    missedCounts[index] = 0;
+  }
+
+  private void removeTrack(int index) {
+    int last = --trackCount;
+    trackIds[index] = trackIds[last];
+    classIds[index] = classIds[last];
+    hitCounts[index] = hitCounts[last];
+    missedCounts[index] = missedCounts[last];
+    tx[index] = tx[last];
+    ty[index] = ty[last];
+    ta[index] = ta[last];
+    txVelocity[index] = txVelocity[last];
+    tyVelocity[index] = tyVelocity[last];
+    lastSeenTimestamps[index] = lastSeenTimestamps[last];
+  }
+}
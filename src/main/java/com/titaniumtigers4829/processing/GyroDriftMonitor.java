@@ -0,0 +1,114 @@
+package com.titaniumtigers4829.processing;
+
+import com.titaniumtigers4829.data.imu.IMUDataConstants;
+
+/**
+ * Detects drift between a Limelight 4's internal IMU and the robot's external gyro by comparing
+ * their yaw rates. Both gyros should measure the same rotation, so the difference between their
+ * rates is the bias of one of them. The bias is smoothed over time, and the difference is
+ * integrated into the number of degrees the two headings have drifted apart.
+ *
+ * <p>This is useful for deciding when to reseed the internal IMU, or for noticing that the external
+ * gyro has started drifting. Both rates must use the same sign convention, so negate one of them if
+ * they don't. This isn't thread safe, so it should only be used from the robot loop.
+ */
+public class GyroDriftMonitor {
+
+  private double smoothing = 0.02;
+  private double maxBias = 0.5;
+  private double maxDrift = 2;
+
+  private double bias;
+  private double drift;
+  private double lastSampleTimestamp = Double.NaN;
+  private long sampleCount;
+
+  /**
+   * Sets how much each sample moves the smoothed bias.
+   *
+   * @param smoothing The smoothing, from 0 to 1, defaults to 0.02
+   */
+  public void setSmoothing(double smoothing) {
+    this.smoothing = smoothing;
+  }
+
+  /**
+   * Sets when the gyros are considered to be drifting.
+   *
+   * @param maxBias The max smoothed difference between the yaw rates in degrees per second,
+   *     defaults to 0.5
+   * @param maxDrift The max number of degrees the headings can drift apart, defaults to 2
+   */
+  public void setThresholds(double maxBias, double maxDrift) {
+    this.maxBias = maxBias;
+    this.maxDrift = maxDrift;
+  }
+
+  /**
+   * Updates the monitor with one pair of yaw rates.
+   *
+   * @param limelightYawRate The internal IMU's yaw rate in degrees per second
+   * @param externalYawRate The external gyro's yaw rate in degrees per second
+   * @param dt The time since the last update in seconds
+   */
+  public void update(double limelightYawRate, double externalYawRate, double dt) {
+    double difference = limelightYawRate - externalYawRate;
+    bias = sampleCount == 0 ? difference : bias + smoothing * (difference - bias);
+    drift += difference * dt;
+    sampleCount++;
+  }
+
+  /**
+   * Updates the monitor with every new sample in an {@link IMUStream}, comparing each one against
+   * the external gyro's current yaw rate. {@link IMUStream#update()} should be called first.
+   *
+   * @param imuStream The internal IMU's samples
+   * @param externalYawRate The external gyro's yaw rate in degrees per second
+   */
+  public void update(IMUStream imuStream, double externalYawRate) {
+    int count = imuStream.getSampleCount();
+    for (int i = count - imuStream.getNewSampleCount(); i < count; i++) {
+      double timestamp = imuStream.getTimestampSeconds(i);
+      // The first sample has nothing to integrate from
+      double dt = Double.isNaN(lastSampleTimestamp) ? 0 : timestamp - lastSampleTimestamp;
+      lastSampleTimestamp = timestamp;
+      update(imuStream.get(i, IMUDataConstants.GYRO_Z), externalYawRate, Math.max(dt, 0));
+    }
+  }
+
+  /**
+   * Gets the smoothed difference between the yaw rates.
+   *
+   * @return The bias in degrees per second, positive if the internal IMU reads higher
+   */
+  public double getBias() {
+    return bias;
+  }
+
+  /**
+   * Gets the number of degrees the two headings have drifted apart since the monitor was created
+   * or reset.
+   *
+   * @return The drift in degrees, positive if the internal IMU has turned further
+   */
+  public double getDrift() {
+    return drift;
+  }
+
+  /**
+   * Gets if the bias or drift is past its threshold.
+   *
+   * @return True if the gyros are drifting, false otherwise
+   */
+  public boolean isDrifting() {
+    return Math.abs(bias) > maxBias || Math.abs(drift) > maxDrift;
+  }
+
+  /** Resets the bias and drift, for example after the internal IMU is reseeded. */
+  public void reset() {
+    bias = 0;
+    drift = 0;
+    lastSampleTimestamp = Double.NaN;
+    sampleCount = 0;
+  }
+}
@@ -0,0 +1,250 @@
+package com.titaniumtigers4829.processing;
+
+import com.titaniumtigers4829.TigerHelpers;
+import com.titaniumtigers4829.data.imu.IMUData;
+import com.titaniumtigers4829.data.imu.IMUData.IMUMode;
+import com.titaniumtigers4829.data.imu.IMUDataConstants;
+import com.titaniumtigers4829.data.networktables.NetworkTablesEntries;
+import com.titaniumtigers4829.transport.DoubleArrayQueue;
+import com.titaniumtigers4829.transport.DoubleHandle;
+import com.titaniumtigers4829.transport.LimelightTransport;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+
+/**
+ * Streams every IMU sample a Limelight publishes, instead of only the latest one like {@link
+ * com.titaniumtigers4829.TigerHelpers#getIMUData}. Each call to {@link #update()} drains every
+ * sample published since the last call into a ring of primitive arrays, so no {@link IMUData} is
+ * created per sample. The IMU mode is cached and only read again when it changes. Values are read
+ * through the transport set in {@link TigerHelpers}, and the stream subscribes again whenever the
+ * transport or its generation is replaced.
+ *
+ * <p>Samples are indexed from the oldest one still stored, and values are read with the indexes in
+ * {@link IMUDataConstants}:
+ *
+ * <pre>{@code
+ * imuStream.update();
+ * for (int i = imuStream.getSampleCount() - imuStream.getNewSampleCount();
+ *     i < imuStream.getSampleCount();
+ *     i++) {
+ *   double yawRate = imuStream.get(i, IMUDataConstants.GYRO_Z);
+ * }
+ * }</pre>
+ *
+ * <p>This isn't thread safe, so it should only be used from one thread, normally the robot loop.
+ */
+public class IMUStream implements AutoCloseable {
+
+  private final String limelightName;
+  private final double[] timestamps;
+  private final double[] values;
+  private final int mask;
+
+  // The index of the next sample to write, and the number of samples stored
+  private int head;
+  private int size;
+  private int newSampleCount;
+  private long droppedCount;
+
+  // Resolved again whenever the transport in TigerHelpers or its generation is replaced
+  private LimelightTransport transport;
+  private long generation;
+  private DoubleArrayQueue imuQueue;
+  private DoubleHandle imuModeSet;
+  private int imuModeListener;
+
+  private IMUMode imuMode = IMUMode.EXTERNAL_IMU;
+  // Set by the transport's listener, which may run on another thread
+  private volatile boolean hasIMUModeChanged = true;
+
+  /**
+   * Creates an IMUStream.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param capacity The number of samples to keep, rounded up to a power of two. This should be at
+   *     least the number of samples published each robot loop, or samples will be dropped.
+   */
+  public IMUStream(String limelightName, int capacity) {
+    this.limelightName = limelightName;
+    int length = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    timestamps = new double[length];
+    values = new double[length * IMUDataConstants.IMU_DATA_SIZE];
+    mask = length - 1;
+    bindTransport();
+  }
+
+  /**
+   * Creates an IMUStream that keeps 64 samples.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   */
+  public IMUStream(String limelightName) {
+    this(limelightName, 64);
+  }
+
+  /**
+   * Drains every sample published since the last update into the ring. Samples that don't have
+   * every IMU value are skipped.
+   *
+   * @return The number of new samples
+   */
+  public int update() {
+    bindTransport();
+    newSampleCount = 0;
+    for (TimestampedDoubleArray sample : imuQueue.readQueue()) {
+      if (sample.value.length < IMUDataConstants.IMU_DATA_SIZE) {
+        continue;
+      }
+      timestamps[head] = sample.timestamp / 1000000.0;
+      System.arraycopy(
+          sample.value,
+          0,
+          values,
+          head * IMUDataConstants.IMU_DATA_SIZE,
+          IMUDataConstants.IMU_DATA_SIZE);
+      head = (head + 1) & mask;
+      if (size == timestamps.length) {
+        droppedCount++;
+      } else {
+        size++;
+      }
+      newSampleCount++;
+    }
+    newSampleCount = Math.min(newSampleCount, size);
+    return newSampleCount;
+  }
+
+  /**
+   * Gets the number of samples stored.
+   *
+   * @return The number of samples
+   */
+  public int getSampleCount() {
+    return size;
+  }
+
+  /**
+   * Gets the number of samples added by the last {@link #update()}. These are the newest samples.
+   *
+   * @return The number of new samples
+   */
+  public int getNewSampleCount() {
+    return newSampleCount;
+  }
+
+  /**
+   * Gets the number of samples that were overwritten before they could be read, because more
+   * samples were published in one update than the ring can hold.
+   *
+   * @return The number of dropped samples
+   */
+  public long getDroppedCount() {
+    return droppedCount;
+  }
+
+  /**
+   * Gets the time a sample was received.
+   *
+   * @param index The index of the sample, 0 is the oldest
+   * @return The timestamp in seconds
+   */
+  public double getTimestampSeconds(int index) {
+    return timestamps[indexOf(index)];
+  }
+
+  /**
+   * Gets a value from a sample.
+   *
+   * @param index The index of the sample, 0 is the oldest
+   * @param field The index of the value, such as {@link IMUDataConstants#GYRO_Z}
+   * @return The value
+   */
+  public double get(int index, int field) {
+    return values[indexOf(index) * IMUDataConstants.IMU_DATA_SIZE + field];
+  }
+
+  /**
+   * Gets a value from the newest sample.
+   *
+   * @param field The index of the value, such as {@link IMUDataConstants#GYRO_Z}
+   * @return The value, or 0 if there are no samples
+   */
+  public double getLatest(int field) {
+    return size == 0 ? 0 : get(size - 1, field);
+  }
+
+  /**
+   * Gets the IMU mode the Limelight is set to. This is cached, and only read again when it changes.
+   *
+   * @return The IMU mode
+   */
+  public IMUMode getIMUMode() {
+    bindTransport();
+    if (hasIMUModeChanged) {
+      hasIMUModeChanged = false;
+      IMUMode mode = IMUMode.fromValue((int) imuModeSet.get());
+      imuMode = mode != null ? mode : IMUMode.EXTERNAL_IMU;
+    }
+    return imuMode;
+  }
+
+  /**
+   * Creates an {@link IMUData} from a sample. This allocates, so it shouldn't be used for every
+   * sample.
+   *
+   * @param index The index of the sample, 0 is the oldest
+   * @return The IMUData for the sample
+   */
+  public IMUData toIMUData(int index) {
+    int base = indexOf(index) * IMUDataConstants.IMU_DATA_SIZE;
+    return new IMUData(
+        values[base],
+        values[base + 1],
+        values[base + 2],
+        values[base + 3],
+        values[base + 4],
+        values[base + 5],
+        values[base + 6],
+        values[base + 7],
+        values[base + 8],
+        values[base + 9],
+        getIMUMode());
+  }
+
+  /** Removes every stored sample. */
+  public void clear() {
+    head = 0;
+    size = 0;
+    newSampleCount = 0;
+  }
+
+  /** Closes the IMU queue and removes the IMU mode listener. */
+  @Override
+  public void close() {
+    imuQueue.close();
+    transport.removeListener(imuModeListener);
+  }
+
+  private void bindTransport() {
+    LimelightTransport currentTransport = TigerHelpers.getTransport();
+    if (currentTransport == transport && currentTransport.getGeneration() == generation) {
+      return;
+    }
+    if (transport != null) {
+      close();
+    }
+    transport = currentTransport;
+    generation = currentTransport.getGeneration();
+    imuQueue = transport.subscribeQueue(limelightName, NetworkTablesEntries.IMU, timestamps.length);
+    imuModeSet = transport.getDoubleHandle(limelightName, NetworkTablesEntries.IMU_MODE_SET);
+    imuModeListener =
+        transport.listen(
+            limelightName, NetworkTablesEntries.IMU_MODE_SET, () -> hasIMUModeChanged = true);
+    // The mode on the new transport or instance hasn't been read yet
+    hasIMUModeChanged = true;
+  }
+
+  // Converts an index from the oldest sample into an array index
+  private int indexOf(int index) {
+    return (head - size + index) & mask;
+  }
+}
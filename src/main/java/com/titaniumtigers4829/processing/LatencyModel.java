@@ -0,0 +1,223 @@
+package com.titaniumtigers4829.processing;
+
+import com.titaniumtigers4829.data.pose.PoseEstimateConstants;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import java.util.OptionalLong;
+
+/**
+ * Works out when a camera frame was actually captured, in the same time base as {@link
+ * edu.wpi.first.wpilibj.Timer#getFPGATimestamp()}, and keeps a running estimate of how regularly a
+ * camera's frames arrive. Create one per camera.
+ *
+ * <p>A frame's age when the robot reads it is made up of the capture latency ("cl"), the pipeline
+ * latency ("tl"), and the time it takes the value to get from the Limelight to the robot over
+ * NetworkTables. NetworkTables stamps each value with the time the Limelight published it,
+ * converted into the reader's local time with the server time offset, so subtracting the latency
+ * from that timestamp gives the capture time with the transit time already left out. On the robot
+ * the local time is FPGA time. Any error in the timestamp turns directly into pose error when the
+ * robot is moving fast, so this matters most when shooting on the move.
+ *
+ * <p>The time a value was received isn't kept, so the transit time can't be measured from the
+ * values themselves. The local timestamp and the server time only differ by the server time
+ * offset, and on the roboRIO, which is the server, the offset is 0 and they are the same. Instead,
+ * the jitter is measured from the interval between frames, the same cadence as the heartbeat
+ * ("hb"). Frames that are delayed or bunched up on the way, and a dropping frame rate, both show up
+ * as interval jitter.
+ *
+ * <p>If the server time offset isn't known yet, the timestamps may not be in local time yet, which
+ * {@link #isTimeSynced()} reports.
+ */
+public class LatencyModel {
+
+  private double smoothing;
+
+  private long lastTimestamp;
+  private boolean isTimeSynced;
+  private double captureTimestampSeconds;
+  private double latencySeconds;
+  private double frameIntervalSeconds;
+  private double averageFrameIntervalSeconds;
+  private double frameIntervalVariance;
+  private double maxFrameIntervalSeconds;
+  private boolean hasFrameInterval;
+  private long sampleCount;
+
+  /**
+   * Creates a LatencyModel.
+   *
+   * @param smoothing How much each new frame moves the frame interval average and jitter, from 0 to
+   *     1. Higher values react faster but are noisier.
+   */
+  public LatencyModel(double smoothing) {
+    this.smoothing = smoothing;
+  }
+
+  /** Creates a LatencyModel with a smoothing of 0.05. */
+  public LatencyModel() {
+    this(0.05);
+  }
+
+  /**
+   * Sets how much each new frame moves the frame interval average and jitter.
+   *
+   * @param smoothing The smoothing, from 0 to 1
+   */
+  public void setSmoothing(double smoothing) {
+    this.smoothing = smoothing;
+  }
+
+  /**
+   * Updates the model from a botpose value. The botpose latency field is the pipeline and capture
+   * latency added together.
+   *
+   * @param botposeValue The botpose array and the time it was published
+   * @param serverTimeOffset The offset from {@link
+   *     edu.wpi.first.networktables.NetworkTableInstance#getServerTimeOffset()}
+   * @return True if the value was a new frame, false if it was empty or already seen
+   */
+  public boolean update(TimestampedDoubleArray botposeValue, OptionalLong serverTimeOffset) {
+    if (botposeValue.value.length < PoseEstimateConstants.POSE_ESTIMATE_DATA_SIZE) {
+      return false;
+    }
+    return update(botposeValue.timestamp, botposeValue.value[6], 0, serverTimeOffset);
+  }
+
+  /**
+   * Updates the model from the time a value was published, and the pipeline and capture latencies
+   * read alongside it. Use this for values that don't carry their own latency, such as "tx" and
+   * "ty".
+   *
+   * @param timestamp The time the value was published in local time, in microseconds, which is the
+   *     timestamp NetworkTables gives the value
+   * @param pipelineLatency The pipeline latency ("tl") in milliseconds
+   * @param captureLatency The capture latency ("cl") in milliseconds
+   * @param serverTimeOffset The offset from {@link
+   *     edu.wpi.first.networktables.NetworkTableInstance#getServerTimeOffset()}
+   * @return True if the value was a new frame, false if it was empty or already seen
+   */
+  public boolean update(
+      long timestamp,
+      double pipelineLatency,
+      double captureLatency,
+      OptionalLong serverTimeOffset) {
+    if (timestamp == 0 || timestamp == lastTimestamp) {
+      return false;
+    }
+    if (lastTimestamp != 0) {
+      frameIntervalSeconds = (timestamp - lastTimestamp) / 1000000.0;
+      updateFrameIntervalStatistics();
+    }
+    lastTimestamp = timestamp;
+
+    isTimeSynced = serverTimeOffset.isPresent();
+    latencySeconds = (pipelineLatency + captureLatency) / 1000.0;
+    captureTimestampSeconds = timestamp / 1000000.0 - latencySeconds;
+    sampleCount++;
+    return true;
+  }
+
+  /**
+   * Gets the time the last frame was captured, in the same time base as {@link
+   * edu.wpi.first.wpilibj.Timer#getFPGATimestamp()}. Pass this to addVisionMeasurement.
+   *
+   * @return The capture timestamp in seconds
+   */
+  public double getCaptureTimestampSeconds() {
+    return captureTimestampSeconds;
+  }
+
+  /**
+   * Gets the time from when the last frame was captured to when it was published, which is the
+   * capture and pipeline latency.
+   *
+   * @return The latency in seconds
+   */
+  public double getLatencySeconds() {
+    return latencySeconds;
+  }
+
+  /**
+   * Gets the time between the last two frames.
+   *
+   * @return The frame interval in seconds, or 0 if there haven't been two frames yet
+   */
+  public double getFrameIntervalSeconds() {
+    return frameIntervalSeconds;
+  }
+
+  /**
+   * Gets the running average of the time between frames.
+   *
+   * @return The average frame interval in seconds
+   */
+  public double getAverageFrameIntervalSeconds() {
+    return averageFrameIntervalSeconds;
+  }
+
+  /**
+   * Gets the running standard deviation of the time between frames. This is how much the frames'
+   * timing varies from frame to frame.
+   *
+   * @return The frame jitter in seconds
+   */
+  public double getFrameJitterSeconds() {
+    return Math.sqrt(frameIntervalVariance);
+  }
+
+  /**
+   * Gets the longest time between frames seen since the model was created or reset.
+   *
+   * @return The max frame interval in seconds
+   */
+  public double getMaxFrameIntervalSeconds() {
+    return maxFrameIntervalSeconds;
+  }
+
+  /**
+   * Gets if the server time offset was known for the last frame. If not, its timestamp may not have
+   * been converted into local time.
+   *
+   * @return True if the last frame was time synced, false otherwise
+   */
+  public boolean isTimeSynced() {
+    return isTimeSynced;
+  }
+
+  /**
+   * Gets the number of frames the model has been updated with.
+   *
+   * @return The number of frames
+   */
+  public long getSampleCount() {
+    return sampleCount;
+  }
+
+  /** Resets the model, for example after the camera reconnects. */
+  public void reset() {
+    lastTimestamp = 0;
+    isTimeSynced = false;
+    captureTimestampSeconds = 0;
+    latencySeconds = 0;
+    frameIntervalSeconds = 0;
+    averageFrameIntervalSeconds = 0;
+    frameIntervalVariance = 0;
+    maxFrameIntervalSeconds = 0;
+    hasFrameInterval = false;
+    sampleCount = 0;
+  }
+
+  private void updateFrameIntervalStatistics() {
+    maxFrameIntervalSeconds = Math.max(maxFrameIntervalSeconds, frameIntervalSeconds);
+    if (!hasFrameInterval) {
+      hasFrameInterval = true;
+      averageFrameIntervalSeconds = frameIntervalSeconds;
+      frameIntervalVariance = 0;
+      return;
+    }
+    // Exponentially weighted mean and variance
+    double difference = frameIntervalSeconds - averageFrameIntervalSeconds;
+    double increment = smoothing * difference;
+    averageFrameIntervalSeconds += increment;
+    frameIntervalVariance = (1 - smoothing) * (frameIntervalVariance + difference * increment);
+  }
+}
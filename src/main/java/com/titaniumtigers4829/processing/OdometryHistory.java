@@ -0,0 +1,139 @@
+package com.titaniumtigers4829.processing;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * A ring of recent odometry poses, stored in primitive arrays so adding a pose never allocates. It
+ * is used to look up where odometry thought the robot was when a camera frame was captured, by
+ * interpolating between the poses on either side of the frame's timestamp.
+ *
+ * <p>Poses should be added every robot loop, with increasing timestamps. This isn't thread safe, so
+ * it should only be used from the robot loop.
+ */
+public class OdometryHistory {
+
+  private final double[] timestamps;
+  private final double[] xs;
+  private final double[] ys;
+  private final double[] headings;
+  private final int mask;
+
+  // The index of the next pose to write, and the number of poses stored
+  private int head;
+  private int size;
+
+  /**
+   * Creates an OdometryHistory.
+   *
+   * @param capacity The number of poses to keep, rounded up to a power of two. At 50Hz, 64 poses
+   *     is a little over a second of history.
+   */
+  public OdometryHistory(int capacity) {
+    int length = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    timestamps = new double[length];
+    xs = new double[length];
+    ys = new double[length];
+    headings = new double[length];
+    mask = length - 1;
+  }
+
+  /** Creates an OdometryHistory that keeps 64 poses. */
+  public OdometryHistory() {
+    this(64);
+  }
+
+  /**
+   * Adds an odometry pose. Poses with a timestamp at or before the newest pose are ignored.
+   *
+   * @param timestampSeconds The time of the pose, in the same time base as the vision timestamps
+   * @param x The robot's x position in meters
+   * @param y The robot's y position in meters
+   * @param headingRadians The robot's heading in radians
+   */
+  public void addPose(double timestampSeconds, double x, double y, double headingRadians) {
+    if (size > 0 && timestampSeconds <= timestamps[(head - 1) & mask]) {
+      return;
+    }
+    timestamps[head] = timestampSeconds;
+    xs[head] = x;
+    ys[head] = y;
+    headings[head] = headingRadians;
+    head = (head + 1) & mask;
+    size = Math.min(size + 1, timestamps.length);
+  }
+
+  /**
+   * Adds an odometry pose. Poses with a timestamp at or before the newest pose are ignored.
+   *
+   * @param timestampSeconds The time of the pose, in the same time base as the vision timestamps
+   * @param pose The robot's pose
+   */
+  public void addPose(double timestampSeconds, Pose2d pose) {
+    addPose(timestampSeconds, pose.getX(), pose.getY(), pose.getRotation().getRadians());
+  }
+
+  /**
+   * Gets the odometry pose at a time, interpolating between the stored poses. Times after the
+   * newest pose use the newest pose.
+   *
+   * @param timestampSeconds The time to get the pose at
+   * @param result Filled with [x, y, heading in radians], must have a length of at least 3
+   * @return True if the pose was found, false if the time is older than the oldest stored pose
+   */
+  public boolean getPoseAt(double timestampSeconds, double[] result) {
+    if (size == 0 || timestampSeconds < timestamps[indexOf(0)]) {
+      return false;
+    }
+
+    int newest = indexOf(size - 1);
+    if (timestampSeconds >= timestamps[newest]) {
+      result[0] = xs[newest];
+      result[1] = ys[newest];
+      result[2] = headings[newest];
+      return true;
+    }
+
+    // Finds the first pose after the time, there is always one since the time is before the newest
+    int low = 0;
+    int high = size - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (timestamps[indexOf(middle)] <= timestampSeconds) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    int after = indexOf(low);
+    int before = indexOf(low - 1);
+    double t = (timestampSeconds - timestamps[before]) / (timestamps[after] - timestamps[before]);
+    result[0] = xs[before] + (xs[after] - xs[before]) * t;
+    result[1] = ys[before] + (ys[after] - ys[before]) * t;
+    result[2] =
+        MathUtil.angleModulus(
+            headings[before] + MathUtil.angleModulus(headings[after] - headings[before]) * t);
+    return true;
+  }
+
+  /**
+   * Gets the number of poses stored.
+   *
+   * @return The number of poses
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /** Removes every pose. This should be called whenever odometry is reset. */
+  public void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  // Converts an index from the oldest pose into an array index
+  private int indexOf(int index) {
+    return (head - size + index) & mask;
+  }
+}
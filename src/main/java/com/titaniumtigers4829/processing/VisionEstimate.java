@@ -0,0 +1,206 @@
+package com.titaniumtigers4829.processing;
+
+import com.titaniumtigers4829.data.pose.Botpose;
+import com.titaniumtigers4829.data.pose.PoseEstimate;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * A reusable, mutable vision pose estimate produced by {@link VisionProcessor}. This holds the same
+ * data as a {@link PoseEstimate} without the raw fiducials, plus the standard deviations to pass to
+ * a pose estimator, all as primitives so it can be filled without allocating.
+ */
+public class VisionEstimate {
+
+  private String limelightName = "";
+  private Botpose botpose = Botpose.BLUE_MEGATAG1;
+  private double x;
+  private double y;
+  private double headingRadians;
+  private double timestampSeconds;
+  private double latency;
+  private int tagCount;
+  private double tagSpan;
+  private double avgTagDist;
+  private double avgTagArea;
+  private double xyStdDev;
+  private double thetaStdDev;
+
+  /**
+   * Gets the name of the Limelight the estimate came from.
+   *
+   * @return The name of the Limelight
+   */
+  public String getLimelightName() {
+    return limelightName;
+  }
+
+  /**
+   * Gets the botpose data type used to calculate the estimate.
+   *
+   * @return The botpose type
+   */
+  public Botpose getBotpose() {
+    return botpose;
+  }
+
+  /**
+   * Gets the estimated x position of the robot in meters.
+   *
+   * @return The x position in meters
+   */
+  public double getX() {
+    return x;
+  }
+
+  /**
+   * Gets the estimated y position of the robot in meters.
+   *
+   * @return The y position in meters
+   */
+  public double getY() {
+    return y;
+  }
+
+  /**
+   * Gets the estimated heading of the robot in radians.
+   *
+   * @return The heading in radians
+   */
+  public double getHeadingRadians() {
+    return headingRadians;
+  }
+
+  /**
+   * Gets the timestamp of the estimate in seconds, adjusted for latency.
+   *
+   * @return The timestamp in seconds
+   */
+  public double getTimestampSeconds() {
+    return timestampSeconds;
+  }
+
+  /**
+   * Gets the latency of the estimate in milliseconds.
+   *
+   * @return The latency in milliseconds
+   */
+  public double getLatency() {
+    return latency;
+  }
+
+  /**
+   * Gets the number of april tags used to calculate the estimate.
+   *
+   * @return The number of tags
+   */
+  public int getTagCount() {
+    return tagCount;
+  }
+
+  /**
+   * Gets the max distance, in meters, between april tags used to calculate the estimate.
+   *
+   * @return The tag span in meters
+   */
+  public double getTagSpan() {
+    return tagSpan;
+  }
+
+  /**
+   * Gets the average distance, in meters, between the Limelight and the april tags.
+   *
+   * @return The average tag distance in meters
+   */
+  public double getAvgTagDist() {
+    return avgTagDist;
+  }
+
+  /**
+   * Gets the average area of the april tags used to calculate the estimate.
+   *
+   * @return The average tag area
+   */
+  public double getAvgTagArea() {
+    return avgTagArea;
+  }
+
+  /**
+   * Gets the standard deviation of the x and y position in meters.
+   *
+   * @return The translation standard deviation in meters
+   */
+  public double getXyStdDev() {
+    return xyStdDev;
+  }
+
+  /**
+   * Gets the standard deviation of the heading in radians. This is very large for MegaTag2, as its
+   * heading comes from the gyro.
+   *
+   * @return The heading standard deviation in radians
+   */
+  public double getThetaStdDev() {
+    return thetaStdDev;
+  }
+
+  /**
+   * Converts the estimate to a Pose2d. Unlike the other getters this allocates.
+   *
+   * @return The estimated Pose2d of the robot
+   */
+  public Pose2d toPose2d() {
+    return new Pose2d(x, y, new Rotation2d(headingRadians));
+  }
+
+  /**
+   * Copies another estimate into this one.
+   *
+   * @param other The estimate to copy
+   */
+  public void copyFrom(VisionEstimate other) {
+    limelightName = other.limelightName;
+    botpose = other.botpose;
+    x = other.x;
+    y = other.y;
+    headingRadians = other.headingRadians;
+    timestampSeconds = other.timestampSeconds;
+    latency = other.latency;
+    tagCount = other.tagCount;
+    tagSpan = other.tagSpan;
+    avgTagDist = other.avgTagDist;
+    avgTagArea = other.avgTagArea;
+    xyStdDev = other.xyStdDev;
+    thetaStdDev = other.thetaStdDev;
+  }
+
+  void set(
+      String limelightName,
+      Botpose botpose,
+      double x,
+      double y,
+      double headingRadians,
+      double timestampSeconds,
+      double latency,
+      int tagCount,
+      double tagSpan,
+      double avgTagDist,
+      double avgTagArea) {
+    this.limelightName = limelightName;
+    this.botpose = botpose;
+    this.x = x;
+    this.y = y;
+    this.headingRadians = headingRadians;
+    this.timestampSeconds = timestampSeconds;
+    this.latency = latency;
+    this.tagCount = tagCount;
+    this.tagSpan = tagSpan;
+    this.avgTagDist = avgTagDist;
+    this.avgTagArea = avgTagArea;
+  }
+
+  void setStdDevs(double xyStdDev, double thetaStdDev) {
+    this.xyStdDev = xyStdDev;
+    this.thetaStdDev = thetaStdDev;
+  }
+}
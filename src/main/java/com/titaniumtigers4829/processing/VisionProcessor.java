@@ -0,0 +1,355 @@
+package com.titaniumtigers4829.processing;
+
+import com.titaniumtigers4829.TigerHelpers;
+import com.titaniumtigers4829.data.fiducial.FiducialConstants;
+import com.titaniumtigers4829.data.pose.Botpose;
+import com.titaniumtigers4829.data.pose.PoseEstimateConstants;
+import com.titaniumtigers4829.diagnostics.CameraWatchdog;
+import com.titaniumtigers4829.transport.DoubleArrayQueue;
+import com.titaniumtigers4829.transport.LimelightTransport;
+import com.titaniumtigers4829.utils.DataUtils;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decodes, filters, and calculates standard deviations for botpose estimates on a dedicated
+ * thread, so the robot loop only has to drain the finished estimates. This is opt-in, and can be
+ * used alongside the static {@link com.titaniumtigers4829.TigerHelpers} methods.
+ *
+ * <p>The processing thread is woken by the transport set in {@link
+ * com.titaniumtigers4829.TigerHelpers} whenever a registered camera publishes a new botpose, and it
+ * reads every value published since it last ran, so no frames are missed. Accepted
+ * estimates are handed to the robot loop through a lock-free ring of preallocated estimates, which
+ * should be drained every loop with {@link #poll(VisionEstimate)}:
+ *
+ * <pre>{@code
+ * VisionEstimate estimate = new VisionEstimate();
+ * while (visionProcessor.poll(estimate)) {
+ *   double xyStdDev = estimate.getXyStdDev();
+ *   poseEstimator.addVisionMeasurement(
+ *       estimate.toPose2d(),
+ *       estimate.getTimestampSeconds(),
+ *       VecBuilder.fill(xyStdDev, xyStdDev, estimate.getThetaStdDev()));
+ * }
+ * }</pre>
+ *
+ * <p>Cameras and settings must be configured before {@link #start()} is called.
+ */
+public class VisionProcessor {
+
+  private static final double MEGATAG2_THETA_STD_DEV = 9999999;
+  // How long the thread sleeps if it isn't woken by a new value
+  private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final List<Camera> cameras = new ArrayList<>();
+  private final EstimateRing ring;
+  private final AtomicLong processedCount = new AtomicLong();
+  private final AtomicLong rejectedCount = new AtomicLong();
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  private double maxAmbiguity = 0.7;
+  private double maxAvgTagDist = Double.POSITIVE_INFINITY;
+  private int minTagCount = 1;
+  private double xyStdDevCoefficient = 0.02;
+  private double thetaStdDevCoefficient = 0.04;
+  // Set from the caller's thread and read on the processing thread
+  private volatile CameraWatchdog watchdog;
+
+  private volatile boolean isRunning;
+  private Thread thread;
+  // The transport the queues were subscribed through, so they are closed with the same one
+  private LimelightTransport transport;
+  private long generation;
+
+  /**
+   * Creates a VisionProcessor.
+   *
+   * @param capacity The number of estimates that can be waiting for the robot loop, rounded up to a
+   *     power of two. Estimates are dropped if the robot loop falls this far behind.
+   */
+  public VisionProcessor(int capacity) {
+    ring = new EstimateRing(capacity);
+  }
+
+  /** Creates a VisionProcessor that can hold 32 estimates for the robot loop. */
+  public VisionProcessor() {
+    this(32);
+  }
+
+  /**
+   * Registers a camera to be processed.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param botpose The type of botpose to process
+   */
+  public void addCamera(String limelightName, Botpose botpose) {
+    if (isRunning) {
+      throw new IllegalStateException("Cameras must be added before the processor is started");
+    }
+    cameras.add(new Camera(limelightName, botpose));
+  }
+
+  /**
+   * Sets the max ambiguity a tag can have for a single tag estimate to be accepted.
+   *
+   * @param maxAmbiguity The max ambiguity, from 0 to 1, defaults to 0.7
+   */
+  public void setMaxAmbiguity(double maxAmbiguity) {
+    this.maxAmbiguity = maxAmbiguity;
+  }
+
+  /**
+   * Sets the max average tag distance for an estimate to be accepted.
+   *
+   * @param maxAvgTagDist The max distance in meters, defaults to no limit
+   */
+  public void setMaxAvgTagDist(double maxAvgTagDist) {
+    this.maxAvgTagDist = maxAvgTagDist;
+  }
+
+  /**
+   * Sets the min number of tags for an estimate to be accepted.
+   *
+   * @param minTagCount The min number of tags, defaults to 1
+   */
+  public void setMinTagCount(int minTagCount) {
+    this.minTagCount = minTagCount;
+  }
+
+  /**
+   * Sets the coefficients used to calculate the standard deviations. Each standard deviation is its
+   * coefficient times the average tag distance squared, divided by the number of tags.
+   *
+   * @param xyStdDevCoefficient The translation coefficient, defaults to 0.02
+   * @param thetaStdDevCoefficient The heading coefficient, defaults to 0.04. This is ignored for
+   *     MegaTag2, as its heading comes from the gyro.
+   */
+  public void setStdDevCoefficients(double xyStdDevCoefficient, double thetaStdDevCoefficient) {
+    this.xyStdDevCoefficient = xyStdDevCoefficient;
+    this.thetaStdDevCoefficient = thetaStdDevCoefficient;
+  }
+
+  /**
+   * Sets a watchdog whose unhealthy cameras are left out. Values from those cameras are still read,
+   * but are thrown away without being counted.
+   *
+   * @param watchdog The watchdog, which must be updated separately, or null to use every camera
+   */
+  public void setWatchdog(CameraWatchdog watchdog) {
+    this.watchdog = watchdog;
+  }
+
+  /**
+   * Starts the processing thread. This subscribes to every registered camera's botpose through the
+   * transport set in {@link TigerHelpers}, and subscribes again if the transport or its generation
+   * is replaced while running.
+   *
+   * @throws IllegalStateException If the processor is already running
+   */
+  public void start() {
+    if (isRunning) {
+      throw new IllegalStateException("VisionProcessor is already running");
+    }
+    isRunning = true;
+    thread = new Thread(this::run, "TigerHelpers VisionProcessor");
+    thread.setDaemon(true);
+
+    bindTransport();
+    thread.start();
+  }
+
+  /** Stops the processing thread and closes the queues. Estimates still in the ring stay. */
+  public void stop() {
+    if (!isRunning) {
+      return;
+    }
+    isRunning = false;
+    LockSupport.unpark(thread);
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    unbindTransport();
+    transport = null;
+  }
+
+  /**
+   * Copies the oldest processed estimate into the given estimate. This should only be called from
+   * one thread, normally the robot loop.
+   *
+   * @param estimate The estimate to fill, this is reused to avoid allocating
+   * @return True if an estimate was copied, false if there are no more estimates
+   */
+  public boolean poll(VisionEstimate estimate) {
+    return ring.poll(estimate);
+  }
+
+  /**
+   * Gets if the processing thread is running.
+   *
+   * @return True if the processor is running, false otherwise
+   */
+  public boolean isRunning() {
+    return isRunning;
+  }
+
+  /**
+   * Gets the number of estimates that have been decoded.
+   *
+   * @return The number of processed estimates
+   */
+  public long getProcessedCount() {
+    return processedCount.get();
+  }
+
+  /**
+   * Gets the number of estimates that were rejected by the filters.
+   *
+   * @return The number of rejected estimates
+   */
+  public long getRejectedCount() {
+    return rejectedCount.get();
+  }
+
+  /**
+   * Gets the number of accepted estimates that were dropped because the robot loop wasn't draining
+   * them fast enough.
+   *
+   * @return The number of dropped estimates
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  private void run() {
+    while (isRunning) {
+      bindTransport();
+      OptionalLong serverTimeOffset = transport.getServerTimeOffset();
+      for (int i = 0; i < cameras.size(); i++) {
+        Camera camera = cameras.get(i);
+        TimestampedDoubleArray[] values = camera.queue.readQueue();
+        CameraWatchdog currentWatchdog = watchdog;
+        if (currentWatchdog != null && !currentWatchdog.isHealthy(camera.limelightName)) {
+          continue;
+        }
+        for (TimestampedDoubleArray value : values) {
+          if (camera.latencyModel.update(value, serverTimeOffset)) {
+            process(camera, value.value);
+          }
+        }
+      }
+      // Woken early by the listener when a new value arrives
+      LockSupport.parkNanos(this, MAX_WAIT_NANOS);
+    }
+  }
+
+  // Subscribes every camera through the transport in TigerHelpers. This runs on the processing
+  // thread once started, so the queues follow the transport when it or its generation is replaced
+  private void bindTransport() {
+    LimelightTransport currentTransport = TigerHelpers.getTransport();
+    if (currentTransport == transport && currentTransport.getGeneration() == generation) {
+      return;
+    }
+    unbindTransport();
+    transport = currentTransport;
+    generation = currentTransport.getGeneration();
+    for (Camera camera : cameras) {
+      // Times from the old transport or instance aren't comparable with the new one's
+      camera.latencyModel.reset();
+      camera.queue =
+          transport.subscribeQueue(
+              camera.limelightName, camera.botpose.getEntryName(), ring.capacity());
+      camera.listenerHandle =
+          transport.listen(
+              camera.limelightName,
+              camera.botpose.getEntryName(),
+              () -> LockSupport.unpark(thread));
+    }
+  }
+
+  private void unbindTransport() {
+    for (Camera camera : cameras) {
+      if (camera.queue != null) {
+        transport.removeListener(camera.listenerHandle);
+        camera.queue.close();
+        camera.queue = null;
+      }
+    }
+  }
+
+  private void process(Camera camera, double[] poseArray) {
+    if (poseArray.length < PoseEstimateConstants.POSE_ESTIMATE_DATA_SIZE) {
+      return;
+    }
+    processedCount.incrementAndGet();
+
+    double latency = poseArray[6];
+    int tagCount = (int) poseArray[7];
+    double avgTagDist = poseArray[9];
+    if (!isAccepted(poseArray, tagCount, avgTagDist)) {
+      rejectedCount.incrementAndGet();
+      return;
+    }
+
+    VisionEstimate estimate = ring.claim();
+    if (estimate == null) {
+      droppedCount.incrementAndGet();
+      return;
+    }
+
+    // Matches DataUtils.unpackBotPoseEstimate
+    estimate.set(
+        camera.limelightName,
+        camera.botpose,
+        poseArray[0],
+        poseArray[1],
+        Units.degreesToRadians(poseArray[5]),
+        camera.latencyModel.getCaptureTimestampSeconds(),
+        latency,
+        tagCount,
+        poseArray[8],
+        avgTagDist,
+        poseArray[10]);
+    double distanceFactor = avgTagDist * avgTagDist / tagCount;
+    estimate.setStdDevs(
+        xyStdDevCoefficient * distanceFactor,
+        camera.botpose.isMegaTag2()
+            ? MEGATAG2_THETA_STD_DEV
+            : thetaStdDevCoefficient * distanceFactor);
+    ring.publish();
+  }
+
+  private boolean isAccepted(double[] poseArray, int tagCount, double avgTagDist) {
+    if (tagCount < minTagCount || tagCount <= 0 || avgTagDist > maxAvgTagDist) {
+      return false;
+    }
+    // Single tag estimates are only trusted if the tag isn't ambiguous
+    if (tagCount == 1) {
+      int ambiguityIndex =
+          PoseEstimateConstants.POSE_ESTIMATE_DATA_SIZE + FiducialConstants.FIDUCIAL_DATA_SIZE - 1;
+      return DataUtils.extractArrayEntry(poseArray, ambiguityIndex) <= maxAmbiguity;
+    }
+    return true;
+  }
+
+  private static class Camera {
+    private final String limelightName;
+    private final Botpose botpose;
+    private final LatencyModel latencyModel = new LatencyModel();
+    private DoubleArrayQueue queue;
+    private int listenerHandle;
+
+    private Camera(String limelightName, Botpose botpose) {
+      this.limelightName = limelightName;
+      this.botpose = botpose;
+    }
+  }
+}
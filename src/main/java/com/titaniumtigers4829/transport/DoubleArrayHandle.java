@@ -0,0 +1,44 @@
+package com.titaniumtigers4829.transport;
+
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+
+/**
+ * A pre-resolved double array entry from a {@link LimelightTransport}. Reading and writing through
+ * a handle skips looking the entry up by name, so it is the fastest way to access a value that is
+ * used every loop.
+ */
+public interface DoubleArrayHandle {
+
+  /**
+   * Reads the value.
+   *
+   * @return The value, or an empty array if it has never been written
+   */
+  double[] get();
+
+  /**
+   * Reads the value along with the time it was written.
+   *
+   * @return The value and the time it was written in microseconds, or an empty array with a
+   *     timestamp of 0 if it has never been written
+   */
+  TimestampedDoubleArray getAtomic();
+
+  /**
+   * Reads only the time the value was last written, without copying the value. By default this
+   * calls {@link #getAtomic()}, but transports should override this to skip the copy.
+   *
+   * @return The time the value was written in microseconds, in the same time base as {@link
+   *     #getAtomic()}, or 0 if it has never been written
+   */
+  default long getLastChange() {
+    return getAtomic().timestamp;
+  }
+
+  /**
+   * Writes the value. The array is copied, so it can be reused by the caller.
+   *
+   * @param value Value to write
+   */
+  void set(double[] value);
+}
@@ -0,0 +1,24 @@
+package com.titaniumtigers4829.transport;
+
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+
+/**
+ * A queued subscription to a double array entry from a {@link LimelightTransport}. Unlike a {@link
+ * DoubleArrayHandle}, which only has the latest value, this keeps every value written since it was
+ * last read, so values written faster than they are read aren't missed. It should be closed when
+ * it is no longer needed.
+ */
+public interface DoubleArrayQueue extends AutoCloseable {
+
+  /**
+   * Reads every value written since the last read, oldest first. If more values were written than
+   * the queue can hold, the oldest ones are dropped.
+   *
+   * @return The values and the times they were written, or an empty array if there are none
+   */
+  TimestampedDoubleArray[] readQueue();
+
+  /** Stops queueing values. */
+  @Override
+  void close();
+}
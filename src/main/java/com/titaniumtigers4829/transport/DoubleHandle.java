@@ -0,0 +1,23 @@
+package com.titaniumtigers4829.transport;
+
+/**
+ * A pre-resolved double entry from a {@link LimelightTransport}. Reading and writing through a
+ * handle skips looking the entry up by name, so it is the fastest way to access a value that is
+ * used every loop.
+ */
+public interface DoubleHandle {
+
+  /**
+   * Reads the value.
+   *
+   * @return The value, or 0 if it has never been written
+   */
+  double get();
+
+  /**
+   * Writes the value.
+   *
+   * @param value Value to write
+   */
+  void set(double value);
+}
@@ -0,0 +1,272 @@
+package com.titaniumtigers4829.transport;
+
+import com.titaniumtigers4829.utils.NTUtils;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link LimelightTransport} that keeps every value in memory. Nothing is serialized, so this is
+ * much faster than NetworkTables for unit tests, simulations, and benchmarks, and each instance is
+ * completely isolated, so multiple robots can be simulated in one JVM. Listeners are called on the
+ * thread that writes the value.
+ */
+public class InMemoryTransport implements LimelightTransport {
+
+  private static final double[] EMPTY_ARRAY = new double[0];
+  private static final TimestampedDoubleArray EMPTY_VALUE =
+      new TimestampedDoubleArray(0, 0, EMPTY_ARRAY);
+
+  private final Map<String, Map<String, Entry>> tables = new ConcurrentHashMap<>();
+  private final Map<Integer, Entry> listenerEntries = new ConcurrentHashMap<>();
+  private final AtomicInteger nextListenerHandle = new AtomicInteger(1);
+  // Advanced by clear, so anything keeping handles to the removed entries resolves them again
+  private final AtomicLong generation = new AtomicLong();
+  private final LongSupplier clock;
+
+  /**
+   * Creates an InMemoryTransport.
+   *
+   * @param clock Supplies the timestamp, in microseconds, of written values
+   */
+  public InMemoryTransport(LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  /** Creates an InMemoryTransport that timestamps written values with {@link System#nanoTime()}. */
+  public InMemoryTransport() {
+    this(() -> System.nanoTime() / 1000);
+  }
+
+  @Override
+  public double readDouble(String limelightName, String entryName) {
+    return getEntry(limelightName, entryName).doubleValue;
+  }
+
+  @Override
+  public double[] readDoubleArray(String limelightName, String entryName) {
+    return getEntry(limelightName, entryName).arrayValue.value.clone();
+  }
+
+  @Override
+  public TimestampedDoubleArray readTimestampedDoubleArray(String limelightName, String entryName) {
+    return getEntry(limelightName, entryName).getAtomic();
+  }
+
+  @Override
+  public String readString(String limelightName, String entryName) {
+    return getEntry(limelightName, entryName).stringValue;
+  }
+
+  @Override
+  public void writeDouble(String limelightName, String entryName, double value) {
+    getEntry(limelightName, entryName).setDouble(value);
+  }
+
+  @Override
+  public void writeDoubleArray(String limelightName, String entryName, double[] value) {
+    getEntry(limelightName, entryName).setDoubleArray(value);
+  }
+
+  @Override
+  public void writeString(String limelightName, String entryName, String value) {
+    getEntry(limelightName, entryName).setString(value);
+  }
+
+  @Override
+  public void flush() {
+    // Values are visible as soon as they are written, so there is nothing to flush
+  }
+
+  @Override
+  public int listen(String limelightName, String entryName, Runnable listener) {
+    int listenerHandle = nextListenerHandle.getAndIncrement();
+    Entry entry = getEntry(limelightName, entryName);
+    entry.listeners.add(new Listener(listenerHandle, listener));
+    listenerEntries.put(listenerHandle, entry);
+    return listenerHandle;
+  }
+
+  @Override
+  public void removeListener(int listenerHandle) {
+    Entry entry = listenerEntries.remove(listenerHandle);
+    if (entry != null) {
+      entry.listeners.removeIf(listener -> listener.handle == listenerHandle);
+    }
+  }
+
+  @Override
+  public DoubleArrayQueue subscribeQueue(String limelightName, String entryName, int capacity) {
+    Entry entry = getEntry(limelightName, entryName);
+    Queue queue = new Queue(entry, capacity);
+    entry.queues.add(queue);
+    return queue;
+  }
+
+  @Override
+  public DoubleHandle getDoubleHandle(String limelightName, String entryName) {
+    Entry entry = getEntry(limelightName, entryName);
+    return new DoubleHandle() {
+      @Override
+      public double get() {
+        return entry.doubleValue;
+      }
+
+      @Override
+      public void set(double value) {
+        entry.setDouble(value);
+      }
+    };
+  }
+
+  @Override
+  public DoubleArrayHandle getDoubleArrayHandle(String limelightName, String entryName) {
+    Entry entry = getEntry(limelightName, entryName);
+    return new DoubleArrayHandle() {
+      @Override
+      public double[] get() {
+        return entry.arrayValue.value.clone();
+      }
+
+      @Override
+      public TimestampedDoubleArray getAtomic() {
+        return entry.getAtomic();
+      }
+
+      @Override
+      public long getLastChange() {
+        return entry.arrayValue.timestamp;
+      }
+
+      @Override
+      public void set(double[] value) {
+        entry.setDoubleArray(value);
+      }
+    };
+  }
+
+  @Override
+  public StringHandle getStringHandle(String limelightName, String entryName) {
+    Entry entry = getEntry(limelightName, entryName);
+    return new StringHandle() {
+      @Override
+      public String get() {
+        return entry.stringValue;
+      }
+
+      @Override
+      public void set(String value) {
+        entry.setString(value);
+      }
+    };
+  }
+
+  @Override
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  /**
+   * Removes every value and listener. Handles from before this is called will no longer see new
+   * values, so the {@link #getGeneration() generation} is advanced and the cameras in {@link
+   * com.titaniumtigers4829.TigerHelpers} are recreated the next time they're used.
+   */
+  public void clear() {
+    tables.clear();
+    listenerEntries.clear();
+    generation.incrementAndGet();
+  }
+
+  private Entry getEntry(String limelightName, String entryName) {
+    return tables
+        .computeIfAbsent(NTUtils.sanitizeName(limelightName), k -> new ConcurrentHashMap<>())
+        .computeIfAbsent(entryName, k -> new Entry());
+  }
+
+  private class Entry {
+    private volatile double doubleValue;
+    private volatile TimestampedDoubleArray arrayValue = EMPTY_VALUE;
+    private volatile String stringValue = "";
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final List<Queue> queues = new CopyOnWriteArrayList<>();
+
+    private TimestampedDoubleArray getAtomic() {
+      TimestampedDoubleArray value = arrayValue;
+      return new TimestampedDoubleArray(value.timestamp, value.serverTime, value.value.clone());
+    }
+
+    private void setDouble(double value) {
+      doubleValue = value;
+      notifyListeners();
+    }
+
+    private void setDoubleArray(double[] value) {
+      long timestamp = clock.getAsLong();
+      arrayValue = new TimestampedDoubleArray(timestamp, timestamp, value.clone());
+      for (Queue queue : queues) {
+        // Each queue gets its own copy, since readers own the arrays they read
+        queue.offer(new TimestampedDoubleArray(timestamp, timestamp, value.clone()));
+      }
+      notifyListeners();
+    }
+
+    private void setString(String value) {
+      stringValue = value;
+      notifyListeners();
+    }
+
+    private void notifyListeners() {
+      for (Listener listener : listeners) {
+        listener.runnable.run();
+      }
+    }
+  }
+
+  private record Listener(int handle, Runnable runnable) {}
+
+  private static class Queue implements DoubleArrayQueue {
+    private static final TimestampedDoubleArray[] EMPTY_QUEUE = new TimestampedDoubleArray[0];
+
+    private final Entry entry;
+    private final int capacity;
+    // Locked on itself, values are only written by the writer and only removed by the reader
+    private final ArrayDeque<TimestampedDoubleArray> values = new ArrayDeque<>();
+
+    private Queue(Entry entry, int capacity) {
+      this.entry = entry;
+      this.capacity = Math.max(capacity, 1);
+    }
+
+    private void offer(TimestampedDoubleArray value) {
+      synchronized (values) {
+        if (values.size() == capacity) {
+          values.pollFirst();
+        }
+        values.addLast(value);
+      }
+    }
+
+    @Override
+    public TimestampedDoubleArray[] readQueue() {
+      synchronized (values) {
+        if (values.isEmpty()) {
+          return EMPTY_QUEUE;
+        }
+        TimestampedDoubleArray[] result = values.toArray(EMPTY_QUEUE);
+        values.clear();
+        return result;
+      }
+    }
+
+    @Override
+    public void close() {
+      entry.queues.remove(this);
+    }
+  }
+}
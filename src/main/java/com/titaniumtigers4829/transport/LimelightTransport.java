@@ -0,0 +1,229 @@
+package com.titaniumtigers4829.transport;
+
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import java.util.OptionalLong;
+
+/**
+ * The way TigerHelpers reads and writes Limelight values. Normally this is {@link
+ * NetworkTablesTransport}, but {@link InMemoryTransport} can be used for unit tests and
+ * simulations, where serializing every value through NetworkTables is unnecessary.
+ *
+ * <p>Every method takes the name of the Limelight set in the UI ("" for default) and the name of
+ * the entry, which are the same as the NetworkTables table and entry names.
+ */
+public interface LimelightTransport {
+
+  /**
+   * Reads a double value.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param entryName Name of the entry to read
+   * @return The value, or 0 if it has never been written
+   */
+  double readDouble(String limelightName, String entryName);
+
+  /**
+   * Reads a double array value.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param entryName Name of the entry to read
+   * @return The value, or an empty array if it has never been written
+   */
+  double[] readDoubleArray(String limelightName, String entryName);
+
+  /**
+   * Reads a double array value along with the time it was written.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param entryName Name of the entry to read
+   * @return The value and the time it was written in microseconds, or an empty array with a
+   *     timestamp of 0 if it has never been written
+   */
+  TimestampedDoubleArray readTimestampedDoubleArray(String limelightName, String entryName);
+
+  /**
+   * Reads a string value.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param entryName Name of the entry to read
+   * @return The value, or an empty string if it has never been written
+   */
+  String readString(String limelightName, String entryName);
+
+  /**
+   * Writes a double value.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param entryName Name of the entry to write
+   * @param value Value to write
+   */
+  void writeDouble(String limelightName, String entryName, double value);
+
+  /**
+   * Writes a double array value. The array is copied, so it can be reused by the caller.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param entryName Name of the entry to write
+   * @param value Value to write
+   */
+  void writeDoubleArray(String limelightName, String entryName, double[] value);
+
+  /**
+   * Writes a string value.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param entryName Name of the entry to write
+   * @param value Value to write
+   */
+  void writeString(String limelightName, String entryName, String value);
+
+  /** Sends any written values to the Limelights immediately. */
+  void flush();
+
+  /**
+   * Registers a listener that is called whenever an entry's value changes. The listener may be
+   * called from another thread.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param entryName Name of the entry to listen to
+   * @param listener Called whenever the value changes
+   * @return A handle that can be passed to {@link #removeListener(int)}
+   */
+  int listen(String limelightName, String entryName, Runnable listener);
+
+  /**
+   * Removes a listener registered with {@link #listen(String, String, Runnable)}.
+   *
+   * @param listenerHandle The handle returned when the listener was registered
+   */
+  void removeListener(int listenerHandle);
+
+  /**
+   * Gets the offset between the clock that timestamps published values (the server time in {@link
+   * TimestampedDoubleArray#serverTime}) and the local clock. By default the clocks are the same, so
+   * this is 0.
+   *
+   * @return The offset in microseconds to add to local time to get server time, or empty if it
+   *     isn't known yet
+   */
+  default OptionalLong getServerTimeOffset() {
+    return OptionalLong.of(0);
+  }
+
+  /**
+   * Gets a counter that changes whenever the handles and subscriptions made with this transport
+   * stop being valid, such as when the NetworkTableInstance behind it is replaced. Anything that
+   * keeps handles should resolve them again when this changes. By default handles are always valid,
+   * so this is always 0.
+   *
+   * @return The generation of the handles made with this transport
+   */
+  default long getGeneration() {
+    return 0;
+  }
+
+  /**
+   * Subscribes to every value written to a double array entry, not just the latest one. By default
+   * the queue only has the latest value if it changed since the last read, so transports that can
+   * keep every value should override this.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param entryName Name of the entry
+   * @param capacity The max number of values kept between reads
+   * @return The queue, which should be closed when it is no longer needed
+   */
+  default DoubleArrayQueue subscribeQueue(String limelightName, String entryName, int capacity) {
+    DoubleArrayHandle handle = getDoubleArrayHandle(limelightName, entryName);
+    return new DoubleArrayQueue() {
+      private long lastTimestamp;
+
+      @Override
+      public TimestampedDoubleArray[] readQueue() {
+        TimestampedDoubleArray value = handle.getAtomic();
+        if (value.timestamp == 0 || value.timestamp == lastTimestamp) {
+          return new TimestampedDoubleArray[0];
+        }
+        lastTimestamp = value.timestamp;
+        return new TimestampedDoubleArray[] {value};
+      }
+
+      @Override
+      public void close() {}
+    };
+  }
+
+  /**
+   * Gets a pre-resolved handle to a double entry. By default the handle just calls {@link
+   * #readDouble(String, String)} and {@link #writeDouble(String, String, double)}, but transports
+   * should override this to skip the name lookup.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param entryName Name of the entry
+   * @return The handle to the entry
+   */
+  default DoubleHandle getDoubleHandle(String limelightName, String entryName) {
+    return new DoubleHandle() {
+      @Override
+      public double get() {
+        return readDouble(limelightName, entryName);
+      }
+
+      @Override
+      public void set(double value) {
+        writeDouble(limelightName, entryName, value);
+      }
+    };
+  }
+
+  /**
+   * Gets a pre-resolved handle to a string entry. By default the handle just calls {@link
+   * #readString(String, String)} and {@link #writeString(String, String, String)}, but transports
+   * should override this to skip the name lookup.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param entryName Name of the entry
+   * @return The handle to the entry
+   */
+  default StringHandle getStringHandle(String limelightName, String entryName) {
+    return new StringHandle() {
+      @Override
+      public String get() {
+        return readString(limelightName, entryName);
+      }
+
+      @Override
+      public void set(String value) {
+        writeString(limelightName, entryName, value);
+      }
+    };
+  }
+
+  /**
+   * Gets a pre-resolved handle to a double array entry. By default the handle just calls {@link
+   * #readDoubleArray(String, String)}, {@link #readTimestampedDoubleArray(String, String)}, and
+   * {@link #writeDoubleArray(String, String, double[])}, but transports should override this to
+   * skip the name lookup.
+   *
+   * @param limelightName The name of the Limelight set in the UI ("" for default)
+   * @param entryName Name of the entry
+   * @return The handle to the entry
+   */
+  default DoubleArrayHandle getDoubleArrayHandle(String limelightName, String entryName) {
+    return new DoubleArrayHandle() {
+      @Override
+      public double[] get() {
+        return readDoubleArray(limelightName, entryName);
+      }
+
+      @Override
+      public TimestampedDoubleArray getAtomic() {
+        return readTimestampedDoubleArray(limelightName, entryName);
+      }
+
+      @Override
+      public void set(double[] value) {
+        writeDoubleArray(limelightName, entryName, value);
+      }
+    };
+  }
+}
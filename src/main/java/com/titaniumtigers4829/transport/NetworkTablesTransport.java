@@ -0,0 +1,209 @@
+package com.titaniumtigers4829.transport;
+
+import com.titaniumtigers4829.utils.NTUtils;
+import edu.wpi.first.networktables.DoubleArrayEntry;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoubleEntry;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.StringEntry;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link LimelightTransport} that reads and writes through NetworkTables. This is the default
+ * transport, and by default it uses the instance set with {@link NTUtils#setNetworkTableInstance},
+ * advancing its {@link #getGeneration() generation} whenever the instance or NTUtils' caches are
+ * replaced. It can also be fixed to one instance, such as a private instance made with {@link
+ * NetworkTableInstance#create()} that nothing on the network can see.
+ */
+public class NetworkTablesTransport implements LimelightTransport {
+
+  private static final double[] EMPTY_ARRAY = new double[0];
+
+  // Null to follow the instance set in NTUtils, which caches the entries itself
+  private final NetworkTableInstance instance;
+  private final Map<String, DoubleArrayEntry> doubleArrayEntries = new ConcurrentHashMap<>();
+
+  /** Creates a transport that uses the instance set in {@link NTUtils}. */
+  public NetworkTablesTransport() {
+    this(null);
+  }
+
+  /**
+   * Creates a transport fixed to one NetworkTableInstance, which isn't changed by {@link
+   * NTUtils#setNetworkTableInstance}.
+   *
+   * @param instance The instance to read and write through
+   */
+  public NetworkTablesTransport(NetworkTableInstance instance) {
+    this.instance = instance;
+  }
+
+  private NetworkTableInstance getInstance() {
+    return instance != null ? instance : NTUtils.getNetworkTableInstance();
+  }
+
+  private NetworkTable getTable(String limelightName) {
+    return instance != null
+        ? instance.getTable(NTUtils.sanitizeName(limelightName))
+        : NTUtils.getLimelightNetworkTable(limelightName);
+  }
+
+  @Override
+  public double readDouble(String limelightName, String entryName) {
+    return getTable(limelightName).getEntry(entryName).getDouble(0.0);
+  }
+
+  @Override
+  public double[] readDoubleArray(String limelightName, String entryName) {
+    return getTable(limelightName).getEntry(entryName).getDoubleArray(EMPTY_ARRAY);
+  }
+
+  @Override
+  public TimestampedDoubleArray readTimestampedDoubleArray(String limelightName, String entryName) {
+    if (instance != null) {
+      return doubleArrayEntries
+          .computeIfAbsent(
+              limelightName + "/" + entryName,
+              key -> getTable(limelightName).getDoubleArrayTopic(entryName).getEntry(EMPTY_ARRAY))
+          .getAtomic();
+    }
+    return NTUtils.getLimelightDoubleArrayEntry(limelightName, entryName).getAtomic();
+  }
+
+  @Override
+  public String readString(String limelightName, String entryName) {
+    return getTable(limelightName).getEntry(entryName).getString("");
+  }
+
+  @Override
+  public void writeDouble(String limelightName, String entryName, double value) {
+    getTable(limelightName).getEntry(entryName).setDouble(value);
+  }
+
+  @Override
+  public void writeDoubleArray(String limelightName, String entryName, double[] value) {
+    getTable(limelightName).getEntry(entryName).setDoubleArray(value);
+  }
+
+  @Override
+  public void writeString(String limelightName, String entryName, String value) {
+    getTable(limelightName).getEntry(entryName).setString(value);
+  }
+
+  @Override
+  public void flush() {
+    getInstance().flush();
+  }
+
+  @Override
+  public int listen(String limelightName, String entryName, Runnable listener) {
+    return getInstance()
+        .addListener(
+            getTable(limelightName).getTopic(entryName),
+            EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+            event -> listener.run());
+  }
+
+  @Override
+  public void removeListener(int listenerHandle) {
+    getInstance().removeListener(listenerHandle);
+  }
+
+  @Override
+  public OptionalLong getServerTimeOffset() {
+    return getInstance().getServerTimeOffset();
+  }
+
+  @Override
+  public long getGeneration() {
+    return instance != null ? 0 : NTUtils.getInstanceGeneration();
+  }
+
+  @Override
+  public DoubleArrayQueue subscribeQueue(String limelightName, String entryName, int capacity) {
+    DoubleArraySubscriber subscriber =
+        getTable(limelightName)
+            .getDoubleArrayTopic(entryName)
+            .subscribe(
+                EMPTY_ARRAY,
+                PubSubOption.keepDuplicates(true),
+                PubSubOption.pollStorage(capacity));
+    return new DoubleArrayQueue() {
+      @Override
+      public TimestampedDoubleArray[] readQueue() {
+        return subscriber.readQueue();
+      }
+
+      @Override
+      public void close() {
+        subscriber.close();
+      }
+    };
+  }
+
+  @Override
+  public DoubleHandle getDoubleHandle(String limelightName, String entryName) {
+    DoubleEntry entry = getTable(limelightName).getDoubleTopic(entryName).getEntry(0.0);
+    return new DoubleHandle() {
+      @Override
+      public double get() {
+        return entry.get();
+      }
+
+      @Override
+      public void set(double value) {
+        entry.set(value);
+      }
+    };
+  }
+
+  @Override
+  public StringHandle getStringHandle(String limelightName, String entryName) {
+    StringEntry entry = getTable(limelightName).getStringTopic(entryName).getEntry("");
+    return new StringHandle() {
+      @Override
+      public String get() {
+        return entry.get();
+      }
+
+      @Override
+      public void set(String value) {
+        entry.set(value);
+      }
+    };
+  }
+
+  @Override
+  public DoubleArrayHandle getDoubleArrayHandle(String limelightName, String entryName) {
+    DoubleArrayEntry entry =
+        getTable(limelightName).getDoubleArrayTopic(entryName).getEntry(EMPTY_ARRAY);
+    return new DoubleArrayHandle() {
+      @Override
+      public double[] get() {
+        return entry.get();
+      }
+
+      @Override
+      public TimestampedDoubleArray getAtomic() {
+        return entry.getAtomic();
+      }
+
+      @Override
+      public long getLastChange() {
+        return entry.getLastChange();
+      }
+
+      @Override
+      public void set(double[] value) {
+        entry.set(value);
+      }
+    };
+  }
+}
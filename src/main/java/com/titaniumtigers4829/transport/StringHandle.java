@@ -0,0 +1,23 @@
+package com.titaniumtigers4829.transport;
+
+/**
+ * A pre-resolved string entry from a {@link LimelightTransport}. Reading and writing through a
+ * handle skips looking the entry up by name, so it is the fastest way to access a value that is
+ * used every loop.
+ */
+public interface StringHandle {
+
+  /**
+   * Reads the value.
+   *
+   * @return The value, or an empty string if it has never been written
+   */
+  String get();
+
+  /**
+   * Writes the value.
+   *
+   * @param value Value to write
+   */
+  void set(String value);
+}
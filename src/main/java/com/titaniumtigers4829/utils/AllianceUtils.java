@@ -0,0 +1,85 @@
+package com.titaniumtigers4829.utils;
+
+import com.titaniumtigers4829.data.pose.Botpose;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import java.util.Optional;
+
+public class AllianceUtils {
+
+  private AllianceUtils() {}
+
+  /**
+   * How often the cached alliance is read again from the DriverStation once it is known, in
+   * nanoseconds.
+   */
+  public static final long REFRESH_PERIOD_NANOS = 1_000_000_000L;
+
+  // The DriverStation locks on every read, so a known alliance is only read once per refresh
+  // period. System.nanoTime is used so the cache still refreshes while simulation timing is paused
+  // Null until the alliance is first read
+  private static volatile Optional<Alliance> alliance;
+  private static volatile long nextRefreshNanos;
+
+  /**
+   * Gets the robot's alliance. Until the DriverStation reports it, it is read again on every call,
+   * so it is used as soon as it is known. After that it is cached and only read once per refresh
+   * period, since it can only change while the robot is disabled, so a change made while disabled,
+   * such as between practice matches, can take up to {@link #REFRESH_PERIOD_NANOS} to be seen. Call
+   * {@link #refresh()} to see it immediately.
+   *
+   * @return The alliance, or empty if the DriverStation hasn't reported it yet
+   */
+  public static Optional<Alliance> getAlliance() {
+    long now = System.nanoTime();
+    if (alliance == null || alliance.isEmpty() || now - nextRefreshNanos >= 0) {
+      refresh(now);
+    }
+    return alliance;
+  }
+
+  /**
+   * Reads the alliance from the DriverStation immediately, for example after changing it in a
+   * simulation or unit test.
+   *
+   * @return True if the alliance changed, false otherwise
+   */
+  public static boolean refresh() {
+    return refresh(System.nanoTime());
+  }
+
+  /**
+   * Gets the botpose type with the origin on the robot's alliance's side of the field, using the
+   * blue-side origin if the alliance isn't known.
+   *
+   * @param isMegaTag2 True to use MegaTag2, false to use MegaTag1
+   * @return The botpose type
+   */
+  public static Botpose getBotpose(boolean isMegaTag2) {
+    return getBotpose(getAlliance(), isMegaTag2);
+  }
+
+  /**
+   * Gets the botpose type with the origin on an alliance's side of the field.
+   *
+   * @param alliance The alliance, or empty if it isn't known, which uses the blue-side origin
+   * @param isMegaTag2 True to use MegaTag2, false to use MegaTag1
+   * @return The botpose type
+   */
+  public static Botpose getBotpose(Optional<Alliance> alliance, boolean isMegaTag2) {
+    if (alliance.isPresent() && alliance.get() == Alliance.Red) {
+      return isMegaTag2 ? Botpose.RED_MEGATAG2 : Botpose.RED_MEGATAG1;
+    }
+    return isMegaTag2 ? Botpose.BLUE_MEGATAG2 : Botpose.BLUE_MEGATAG1;
+  }
+
+  private static boolean refresh(long now) {
+    nextRefreshNanos = now + REFRESH_PERIOD_NANOS;
+    Optional<Alliance> newAlliance = DriverStation.getAlliance();
+    if (newAlliance.equals(alliance)) {
+      return false;
+    }
+    alliance = newAlliance;
+    return true;
+  }
+}
@@ -98,9 +98,37 @@ public class DataUtils {
   public static PoseEstimate unpackBotPoseEstimate(
       String limelightName, String entryName, boolean isMegaTag2) {
     DoubleArrayEntry poseEntry = NTUtils.getLimelightDoubleArrayEntry(limelightName, entryName);
-    Botpose botpose = Botpose.fromEntryName(entryName);
+    return unpackBotPoseEstimate(poseEntry.getAtomic(), entryName, isMegaTag2);
+  }
 
-    TimestampedDoubleArray tsValue = poseEntry.getAtomic();
+  /**
+   * Unpacks a botpose array that has already been read into a PoseEstimate.
+   *
+   * @param tsValue The botpose array and the time it was received in microseconds
+   * @param entryName The name of the botpose entry the array was read from
+   * @param isMegaTag2 True if the botpose is calculated using MegaTag2
+   * @return The PoseEstimate, or an empty PoseEstimate if the array is empty
+   */
+  public static PoseEstimate unpackBotPoseEstimate(
+      TimestampedDoubleArray tsValue, String entryName, boolean isMegaTag2) {
+    return unpackBotPoseEstimate(tsValue, Botpose.fromEntryName(entryName), isMegaTag2);
+  }
+
+  /**
+   * Unpacks a botpose array that has already been read into a PoseEstimate. This avoids looking up
+   * the {@link Botpose} from the entry name when the caller already has it.
+   *
+   * @param tsValue The botpose array and the time it was received in microseconds
+   * @param botpose The botpose type the array was read from
+   * @return The PoseEstimate, or an empty PoseEstimate if the array is empty
+   */
+  public static PoseEstimate unpackBotPoseEstimate(
+      TimestampedDoubleArray tsValue, Botpose botpose) {
+    return unpackBotPoseEstimate(tsValue, botpose, botpose.isMegaTag2());
+  }
+
+  private static PoseEstimate unpackBotPoseEstimate(
+      TimestampedDoubleArray tsValue, Botpose botpose, boolean isMegaTag2) {
     double[] poseArray = tsValue.value;
     long timestamp = tsValue.timestamp;
 
@@ -119,6 +147,29 @@ public class DataUtils {
     // Convert server timestamp from microseconds to seconds and adjust for latency
     double adjustedTimestamp = (timestamp / 1000000.0) - (latency / 1000.0);
 
+    RawFiducial[] rawFiducials = unpackRawFiducials(poseArray, tagCount);
+
+    return new PoseEstimate(
+        pose,
+        adjustedTimestamp,
+        latency,
+        tagCount,
+        tagSpan,
+        tagDist,
+        tagArea,
+        rawFiducials,
+        isMegaTag2,
+        botpose);
+  }
+
+  /**
+   * Unpacks the fiducials that follow the header of a botpose array.
+   *
+   * @param poseArray The botpose array
+   * @param tagCount The number of tags in the botpose array's header
+   * @return The fiducials, which are left null if the array's length doesn't match the tag count
+   */
+  public static RawFiducial[] unpackRawFiducials(double[] poseArray, int tagCount) {
     RawFiducial[] rawFiducials = new RawFiducial[tagCount];
     int valsPerFiducial = 7;
     int expectedTotalVals = 11 + valsPerFiducial * tagCount;
@@ -138,17 +189,6 @@ public class DataUtils {
         rawFiducials[i] = new RawFiducial(id, txnc, tync, ta, distToCamera, distToRobot, ambiguity);
       }
     }
-
-    return new PoseEstimate(
-        pose,
-        adjustedTimestamp,
-        latency,
-        tagCount,
-        tagSpan,
-        tagDist,
-        tagArea,
-        rawFiducials,
-        isMegaTag2,
-        botpose);
+    return rawFiducials;
   }
 }
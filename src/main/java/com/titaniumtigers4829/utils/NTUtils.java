@@ -6,12 +6,14 @@ import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class NTUtils {
 
-  private static NetworkTableInstance networkTableInstance = NetworkTableInstance.getDefault();
-
-  private static final Map<String, DoubleArrayEntry> doubleArrayEntries = new ConcurrentHashMap<>();
+  // The instance and the entries resolved on it are swapped together, so a thread that reads the
+  // state once never caches an entry from one instance under another
+  private static final AtomicReference<InstanceState> state =
+      new AtomicReference<>(new InstanceState(NetworkTableInstance.getDefault(), 0));
 
   /**
    * Gets the NetworkTableInstance used for Limelight communication.
@@ -19,25 +21,42 @@ public class NTUtils {
    * @return The NetworkTableInstance used for Limelight communication
    */
   public static NetworkTableInstance getNetworkTableInstance() {
-    return networkTableInstance;
+    return state.get().instance;
   }
 
   /**
    * Sets the NetworkTableInstance to use for Limelight communication. Normally it it uses the
    * default instance. This is useful for unit testing when you might need multiple instances.
+   *
+   * <p>The swap is atomic, so this can be called while other threads are reading. Reads that
+   * started before the swap finish on the old instance, and every read after it uses the new one.
+   * The {@link #getInstanceGeneration() generation} is advanced, so cameras created on the old
+   * instance are recreated the next time they're used.
    */
   public static void setNetworkTableInstance(NetworkTableInstance newNetworkTableInstance) {
-    networkTableInstance = newNetworkTableInstance;
-    clearCaches();
+    state.updateAndGet(
+        current -> new InstanceState(newNetworkTableInstance, current.generation + 1));
     flushNetworkTable();
   }
 
   /**
-   * Clears any static caches held in TigerHelpers. This should be called in your test setup (or
-   * teardown) to ensure a fresh state between tests.
+   * Clears the cached entries and advances the {@link #getInstanceGeneration() generation}, so the
+   * cameras in TigerHelpers are recreated the next time they're used. This should be called in your
+   * test setup (or teardown) to ensure a fresh state between tests.
    */
   public static void clearCaches() {
-    doubleArrayEntries.clear();
+    state.updateAndGet(current -> new InstanceState(current.instance, current.generation + 1));
+  }
+
+  /**
+   * Gets a counter that is advanced whenever the NetworkTableInstance or the cached entries are
+   * replaced. Anything that keeps entries from the instance should resolve them again when this
+   * changes.
+   *
+   * @return The generation of the current instance
+   */
+  public static long getInstanceGeneration() {
+    return state.get().generation;
   }
 
   /**
@@ -45,7 +64,7 @@ public class NTUtils {
    * network.
    */
   public static void flushNetworkTable() {
-    networkTableInstance.flush();
+    state.get().instance.flush();
   }
 
   /**
@@ -55,7 +74,7 @@ public class NTUtils {
    * @return NetworkTable for the Limelight
    */
   public static NetworkTable getLimelightNetworkTable(String tableName) {
-    return networkTableInstance.getTable(sanitizeName(tableName));
+    return state.get().instance.getTable(sanitizeName(tableName));
   }
 
   /**
@@ -118,6 +137,29 @@ public class NTUtils {
     getLimelightNetworkTableEntry(tableName, entryName).setDoubleArray(val);
   }
 
+  /**
+   * Gets a NetworkTableEntry from a Limelight camera as a string.
+   *
+   * @param tableName The name of the Limelight set in the UI ("" for default)
+   * @param entryName Name of the entry to get
+   * @return string value of the entry
+   */
+  public static String getLimelightNetworkTableString(String tableName, String entryName) {
+    return getLimelightNetworkTableEntry(tableName, entryName).getString("");
+  }
+
+  /**
+   * Sets a NetworkTableEntry from a Limelight camera as a string.
+   *
+   * @param tableName The name of the Limelight set in the UI ("" for default)
+   * @param entryName Name of the entry to set
+   * @param val Value to set the entry to
+   */
+  public static void setLimelightNetworkTableString(
+      String tableName, String entryName, String val) {
+    getLimelightNetworkTableEntry(tableName, entryName).setString(val);
+  }
+
   /**
    * Gets a DoubleArrayEntry from a Limelight camera. This is useful for getting raw pose data.
    *
@@ -126,19 +168,43 @@ public class NTUtils {
    * @return DoubleArrayEntry for the entry name
    */
   public static DoubleArrayEntry getLimelightDoubleArrayEntry(String tableName, String entryName) {
+    InstanceState current = state.get();
     String key = tableName + "/" + entryName;
-    return doubleArrayEntries.computeIfAbsent(
-        key,
-        k -> {
-          NetworkTable table = getLimelightNetworkTable(tableName);
-          return table.getDoubleArrayTopic(entryName).getEntry(new double[0]);
-        });
+    DoubleArrayEntry entry = current.doubleArrayEntries.get(key);
+    if (entry == null) {
+      entry =
+          current.doubleArrayEntries.computeIfAbsent(
+              key,
+              k -> {
+                NetworkTable table = current.instance.getTable(sanitizeName(tableName));
+                return table.getDoubleArrayTopic(entryName).getEntry(new double[0]);
+              });
+    }
+    return entry;
   }
 
-  private static final String sanitizeName(String name) {
+  /**
+   * Gets the name of the NetworkTable a Limelight publishes to, which is "limelight" for the
+   * default name.
+   *
+   * @param name The name of the Limelight set in the UI ("" for default)
+   * @return The name of the Limelight's NetworkTable
+   */
+  public static final String sanitizeName(String name) {
     if (name.equals("") || name.equals(null)) {
       return "limelight";
     }
     return name;
   }
+
+  private static class InstanceState {
+    private final NetworkTableInstance instance;
+    private final long generation;
+    private final Map<String, DoubleArrayEntry> doubleArrayEntries = new ConcurrentHashMap<>();
+
+    private InstanceState(NetworkTableInstance instance, long generation) {
+      this.instance = instance;
+      this.generation = generation;
+    }
+  }
 }
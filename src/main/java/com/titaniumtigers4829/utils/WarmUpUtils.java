@@ -0,0 +1,115 @@
+package com.titaniumtigers4829.utils;
+
+import com.titaniumtigers4829.LimelightCamera;
+import com.titaniumtigers4829.data.detection.RawDetections;
+import com.titaniumtigers4829.data.fiducial.TagCorners;
+import com.titaniumtigers4829.data.networktables.NetworkTablesEntries;
+import com.titaniumtigers4829.data.pose.Botpose;
+import com.titaniumtigers4829.data.pose.PoseEstimate;
+import com.titaniumtigers4829.data.results.LimelightResults;
+import com.titaniumtigers4829.data.targeting.TargetingSnapshot;
+import com.titaniumtigers4829.estimation.AimingSolution;
+import com.titaniumtigers4829.transport.NetworkTablesTransport;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+public class WarmUpUtils {
+
+  private WarmUpUtils() {}
+
+  /** Enough calls for the JVM's optimizing compiler to compile every decode path. */
+  public static final int DEFAULT_ITERATIONS = 10000;
+
+  private static final String WARM_UP_NAME = "tigerhelpers-warmup";
+
+  // Two tags, matching the layout read by DataUtils.unpackBotPoseEstimate
+  private static final double[] SYNTHETIC_BOTPOSE = {
+    3.2, 4.1, 0, 0, 0, 35, 28, 2, 1.1, 2.6, 0.4, 7, -12.5, 3.1, 0.5, 2.4, 2.5, 0.08, 8, 9.5, 2.7,
+    0.3, 2.8, 2.9, 0.12
+  };
+  private static final double[] SYNTHETIC_RAW_FIDUCIALS = {
+    7, -12.5, 3.1, 0.5, 2.4, 2.5, 0.08, 8, 9.5, 2.7, 0.3, 2.8, 2.9, 0.12
+  };
+  private static final double[] SYNTHETIC_T2D = {
+    1, 2, 22, 6, -12.5, 3.1, -12.4, 3.0, 0.5, 7, 0, 0, 40, 38, 41, 39, 2
+  };
+  private static final double[] SYNTHETIC_RAW_DETECTIONS = {
+    0, -5.2, -8.1, 1.4, 300, 400, 360, 400, 360, 450, 300, 450, 0, 10.3, -6.5, 0.9, 700, 380, 740,
+    380, 740, 420, 700, 420
+  };
+  private static final double[] SYNTHETIC_CORNERS = {
+    410, 250, 450, 250, 450, 290, 410, 290, 820, 240, 850, 240, 850, 272, 820, 272
+  };
+  private static final double[] SYNTHETIC_IMU = {35, 0.2, -0.1, 35, 0.5, -0.3, 12, 0.01, 0, 1};
+  private static final double[] SYNTHETIC_TARGET_POSE = {2.4, -0.6, 0.5, 0, 0, 14};
+  private static final String SYNTHETIC_JSON =
+      "{\"Results\":{\"pID\":0,\"tl\":22,\"cl\":6,\"ts\":1234.5,\"v\":1,\"Fiducial\":[{\"fID\":7,"
+          + "\"pts\":[[410,250],[450,250],[450,290],[410,290]],\"t6t_rs\":[2.4,-0.6,0.5,0,0,14],"
+          + "\"ta\":0.5,\"tx\":-12.5,\"txp\":430,\"ty\":3.1,\"typ\":270}],\"Detector\":[{\"class\":"
+          + "\"note\",\"classID\":0,\"conf\":0.9,\"ta\":1.4,\"tx\":-5.2,\"ty\":-8.1}],"
+          + "\"Classifier\":[],\"botpose\":[3.2,4.1,0,0,0,35]}}";
+
+  // Written with every decoded value so the compiler can't remove the decoding as dead code
+  private static volatile double sink;
+
+  /**
+   * Runs every decode and encode path on synthetic frames until the JVM compiles them. The frames
+   * are published to a private NetworkTableInstance that nothing on the network can see, and read
+   * by a camera backed by a {@link NetworkTablesTransport} on it, so the same NetworkTables handle
+   * classes the real cameras use are compiled and nothing is written to a real Limelight.
+   *
+   * @param iterations The number of times to run each path
+   */
+  public static void exerciseDecoders(int iterations) {
+    try (NetworkTableInstance instance = NetworkTableInstance.create()) {
+      exerciseDecoders(iterations, new NetworkTablesTransport(instance));
+    }
+  }
+
+  private static void exerciseDecoders(int iterations, NetworkTablesTransport transport) {
+    LimelightCamera camera = new LimelightCamera(WARM_UP_NAME, transport);
+    for (Botpose botpose : Botpose.values()) {
+      transport.writeDoubleArray(WARM_UP_NAME, botpose.getEntryName(), SYNTHETIC_BOTPOSE);
+    }
+    transport.writeDoubleArray(
+        WARM_UP_NAME, NetworkTablesEntries.RAW_FIDUCIALS, SYNTHETIC_RAW_FIDUCIALS);
+    transport.writeDoubleArray(WARM_UP_NAME, NetworkTablesEntries.T2D, SYNTHETIC_T2D);
+    transport.writeDoubleArray(
+        WARM_UP_NAME, NetworkTablesEntries.RAW_DETECTIONS, SYNTHETIC_RAW_DETECTIONS);
+    transport.writeDoubleArray(WARM_UP_NAME, NetworkTablesEntries.TCORNXY, SYNTHETIC_CORNERS);
+    transport.writeDoubleArray(WARM_UP_NAME, NetworkTablesEntries.IMU, SYNTHETIC_IMU);
+    transport.writeDoubleArray(
+        WARM_UP_NAME, NetworkTablesEntries.TARGETPOSE_ROBOTSPACE, SYNTHETIC_TARGET_POSE);
+    transport.writeDoubleArray(
+        WARM_UP_NAME, NetworkTablesEntries.BOTPOSE_TARGETSPACE, SYNTHETIC_TARGET_POSE);
+    transport.writeString(WARM_UP_NAME, NetworkTablesEntries.JSON, SYNTHETIC_JSON);
+
+    TargetingSnapshot snapshot = new TargetingSnapshot();
+    RawDetections detections = new RawDetections();
+    TagCorners corners = new TagCorners();
+    AimingSolution solution = new AimingSolution();
+    LimelightResults results = new LimelightResults();
+    Botpose[] botposes = Botpose.values();
+
+    double total = 0;
+    for (int i = 0; i < iterations; i++) {
+      Botpose botpose = botposes[i % botposes.length];
+      PoseEstimate estimate = camera.getBotPoseEstimate(botpose);
+      total += estimate.pose().getX() + estimate.rawFiducials().length;
+      total += camera.getLazyBotPoseEstimate(botpose).getPose().getY();
+      total += camera.getBotPose2d(botpose).getX();
+      total += DataUtils.toPose3D(SYNTHETIC_TARGET_POSE).getZ();
+      total += camera.getRawFiducials().length;
+      total += camera.getIMUData().robotYaw();
+      total += camera.getTX() + camera.getTY() + camera.getTA();
+      total += camera.getTargetingSnapshot(snapshot) ? snapshot.getTX() : 0;
+      total += camera.getRawDetections(detections);
+      total += camera.getTagCorners(corners);
+      total += camera.getAimingSolution(solution) ? solution.getDistance() : 0;
+      total += camera.getLatestResults(results) ? results.getFiducialCount() : 0;
+
+      camera.setRobotOrientation(i % 360, 0, 0, 0, 0, 0);
+      camera.setBotPoseEstimate(estimate, botpose);
+    }
+    sink = total;
+  }
+}
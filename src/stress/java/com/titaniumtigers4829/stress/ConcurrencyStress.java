@@ -0,0 +1,271 @@
+package com.titaniumtigers4829.stress;
+
+import com.titaniumtigers4829.LimelightCamera;
+import com.titaniumtigers4829.TigerHelpers;
+import com.titaniumtigers4829.data.pose.Botpose;
+import com.titaniumtigers4829.transport.InMemoryTransport;
+import com.titaniumtigers4829.transport.NetworkTablesTransport;
+import com.titaniumtigers4829.utils.NTUtils;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stress tests the thread safety of TigerHelpers. Reader threads read pose estimates through the
+ * static methods while the main thread keeps replacing the transport, advancing its generation,
+ * and clearing the cameras, then while NTUtils is switched between two NetworkTable instances.
+ * Finally several threads read one camera while frames are published to check that every frame is
+ * counted exactly once. Run it with "./gradlew runStress", and it exits with a nonzero status if a
+ * check fails.
+ */
+public class ConcurrencyStress {
+
+  private static final String[] NAMES = {"limelight-a", "limelight-b", "limelight-c", "limelight"};
+  private static final int READER_THREADS = 6;
+  private static final int SWAPS = 200000;
+  // Lower since each swap leaves entries open on the instances until they are closed
+  private static final int INSTANCE_SWAPS = 2000;
+  private static final int FRAMES = 20000;
+
+  private static boolean failed;
+
+  /**
+   * Runs the stress tests.
+   *
+   * @param args Unused
+   * @throws InterruptedException If interrupted while waiting for the reader threads
+   */
+  public static void main(String[] args) throws InterruptedException {
+    stressTransportSwaps();
+    stressInstanceSwaps();
+    stressFrameCounting();
+    if (failed) {
+      System.exit(1);
+    }
+    System.out.println("All stress checks passed");
+  }
+
+  /**
+   * Reads every camera through the static methods while the transport is replaced, its generation
+   * is advanced, and the cameras are cleared. Every read must succeed and come from one of the
+   * transports, and afterwards every camera must use the last transport.
+   */
+  private static void stressTransportSwaps() throws InterruptedException {
+    GenerationTransport first = new GenerationTransport();
+    GenerationTransport second = new GenerationTransport();
+    for (String name : NAMES) {
+      first.writeDoubleArray(name, Botpose.BLUE_MEGATAG1.getEntryName(), botpose(1));
+      second.writeDoubleArray(name, Botpose.BLUE_MEGATAG1.getEntryName(), botpose(2));
+    }
+    TigerHelpers.setTransport(first);
+
+    AtomicBoolean stop = new AtomicBoolean();
+    LongAdder reads = new LongAdder();
+    AtomicLong errors = new AtomicLong();
+    List<Thread> readers = new ArrayList<>();
+    for (int i = 0; i < READER_THREADS; i++) {
+      String name = NAMES[i % NAMES.length];
+      Thread reader =
+          new Thread(
+              () -> {
+                while (!stop.get()) {
+                  try {
+                    double x =
+                        TigerHelpers.getBotPoseEstimate(name, Botpose.BLUE_MEGATAG1).pose().getX();
+                    if (x != 1 && x != 2) {
+                      errors.incrementAndGet();
+                    }
+                    reads.increment();
+                  } catch (RuntimeException e) {
+                    errors.incrementAndGet();
+                    e.printStackTrace();
+                  }
+                }
+              });
+      readers.add(reader);
+      reader.start();
+    }
+
+    for (int i = 0; i < SWAPS; i++) {
+      GenerationTransport transport = i % 2 == 0 ? first : second;
+      TigerHelpers.setTransport(transport);
+      if (i % 5 == 0) {
+        transport.advanceGeneration();
+      }
+      if (i % 7 == 0) {
+        TigerHelpers.clearCameras();
+      }
+    }
+    TigerHelpers.setTransport(second);
+    second.advanceGeneration();
+    stop.set(true);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+
+    check(errors.get() == 0, errors.get() + " reads failed during transport swaps");
+    for (String name : NAMES) {
+      double x = TigerHelpers.getBotPoseEstimate(name, Botpose.BLUE_MEGATAG1).pose().getX();
+      check(x == 2, name + " still reads from a replaced transport");
+    }
+    System.out.println("Transport swaps: " + reads.sum() + " reads");
+  }
+
+  /**
+   * Reads every camera through the default NetworkTables transport, both through the static methods
+   * and straight from NTUtils' cached entries, while NTUtils is switched between two instances.
+   * Every read must succeed and come from one of the instances, and afterwards every camera must
+   * use the last instance.
+   */
+  private static void stressInstanceSwaps() throws InterruptedException {
+    NetworkTableInstance first = NetworkTableInstance.create();
+    NetworkTableInstance second = NetworkTableInstance.create();
+    String entryName = Botpose.BLUE_MEGATAG1.getEntryName();
+    for (String name : NAMES) {
+      first.getTable(NTUtils.sanitizeName(name)).getEntry(entryName).setDoubleArray(botpose(1));
+      second.getTable(NTUtils.sanitizeName(name)).getEntry(entryName).setDoubleArray(botpose(2));
+    }
+    TigerHelpers.setTransport(new NetworkTablesTransport());
+    NTUtils.setNetworkTableInstance(first);
+
+    AtomicBoolean stop = new AtomicBoolean();
+    LongAdder reads = new LongAdder();
+    AtomicLong errors = new AtomicLong();
+    List<Thread> readers = new ArrayList<>();
+    for (int i = 0; i < READER_THREADS; i++) {
+      String name = NAMES[i % NAMES.length];
+      boolean readsEntry = i % 2 == 1;
+      Thread reader =
+          new Thread(
+              () -> {
+                while (!stop.get()) {
+                  try {
+                    double x = readsEntry ? readEntry(name) : readEstimate(name);
+                    if (x != 1 && x != 2) {
+                      errors.incrementAndGet();
+                    }
+                    reads.increment();
+                  } catch (RuntimeException e) {
+                    errors.incrementAndGet();
+                    e.printStackTrace();
+                  }
+                }
+              });
+      readers.add(reader);
+      reader.start();
+    }
+
+    for (int i = 0; i < INSTANCE_SWAPS; i++) {
+      // Swaps are much slower to make than to read, so wait for some reads between each one
+      long target = reads.sum() + READER_THREADS;
+      while (reads.sum() < target) {
+        Thread.yield();
+      }
+      NTUtils.setNetworkTableInstance(i % 2 == 0 ? first : second);
+      if (i % 7 == 0) {
+        NTUtils.clearCaches();
+      }
+    }
+    NTUtils.setNetworkTableInstance(second);
+    stop.set(true);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+
+    check(errors.get() == 0, errors.get() + " reads failed during instance swaps");
+    for (String name : NAMES) {
+      check(readEstimate(name) == 2, name + " still reads from a replaced instance");
+      check(readEntry(name) == 2, name + " still has an entry from a replaced instance");
+    }
+    System.out.println("Instance swaps: " + reads.sum() + " reads");
+
+    NTUtils.setNetworkTableInstance(NetworkTableInstance.getDefault());
+    first.close();
+    second.close();
+  }
+
+  /**
+   * Reads one camera from several threads while frames are published. Each call must count as
+   * either a new or a repeated frame, and no frame can be counted as new more than once.
+   */
+  private static void stressFrameCounting() throws InterruptedException {
+    InMemoryTransport transport = new InMemoryTransport();
+    LimelightCamera camera = new LimelightCamera("limelight", transport);
+
+    AtomicBoolean stop = new AtomicBoolean();
+    LongAdder calls = new LongAdder();
+    List<Thread> readers = new ArrayList<>();
+    for (int i = 0; i < READER_THREADS; i++) {
+      Thread reader =
+          new Thread(
+              () -> {
+                while (!stop.get()) {
+                  camera.getBotPoseEstimate(Botpose.BLUE_MEGATAG1);
+                  calls.increment();
+                }
+              });
+      readers.add(reader);
+      reader.start();
+    }
+
+    for (int frame = 1; frame <= FRAMES; frame++) {
+      double[] botpose = botpose(1);
+      botpose[6] = frame;
+      transport.writeDoubleArray("limelight", Botpose.BLUE_MEGATAG1.getEntryName(), botpose);
+    }
+    stop.set(true);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+
+    long newFrames = camera.getNewFrameCount();
+    long repeatedFrames = camera.getRepeatedFrameCount();
+    check(newFrames <= FRAMES, newFrames + " new frames counted from " + FRAMES + " frames");
+    check(
+        newFrames + repeatedFrames == calls.sum(),
+        (newFrames + repeatedFrames) + " frames counted from " + calls.sum() + " calls");
+    System.out.println(
+        "Frame counting: " + newFrames + " new, " + repeatedFrames + " repeated frames");
+  }
+
+  private static double readEstimate(String name) {
+    return TigerHelpers.getBotPoseEstimate(name, Botpose.BLUE_MEGATAG1).pose().getX();
+  }
+
+  private static double readEntry(String name) {
+    double[] value =
+        NTUtils.getLimelightDoubleArrayEntry(name, Botpose.BLUE_MEGATAG1.getEntryName()).get();
+    return value.length > 0 ? value[0] : 0;
+  }
+
+  private static double[] botpose(double x) {
+    // x, y, z, roll, pitch, yaw, latency, tag count, tag span, tag distance, tag area
+    double[] botpose = new double[11];
+    botpose[0] = x;
+    return botpose;
+  }
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      System.err.println("FAILED: " + message);
+      failed = true;
+    }
+  }
+
+  /** An in-memory transport whose generation can be advanced, like an NT instance swap. */
+  private static class GenerationTransport extends InMemoryTransport {
+    private final AtomicLong generation = new AtomicLong();
+
+    private void advanceGeneration() {
+      generation.incrementAndGet();
+    }
+
+    @Override
+    public long getGeneration() {
+      return generation.get();
+    }
+  }
+}